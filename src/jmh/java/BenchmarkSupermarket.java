@@ -0,0 +1,144 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import benchmarks.SupermarketWorkload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * benchmark fixture on top of the jambi250_8.xml base configuration
+ * with 250 customers the dataset itself is used, other sizes get seeded random customers
+ * for the same products and opening hours
+ */
+public class BenchmarkSupermarket implements SupermarketWorkload {
+    static final String BASE_DATASET = "jambi250_8.xml";
+    static final long SEED = 20191103L;
+    static final int PROBES = 16;               // number of probe customers per call
+    static final int QUEUED_PER_LANE = 8;       // number of customers waiting at each loaded cashier
+
+    private Supermarket supermarket;
+    private File datasetFile;
+    private Customer[] arrivals;
+    private Cashier[] fifoLanes;
+    private List<Cashier> loadedPriorityLanes;
+    private List<Cashier> loadedMixedLanes;
+    private Customer[] probes;
+    private int closingSecond;
+
+    @Override
+    public void setUp(int nCustomers, int nLanes) throws IOException {
+        supermarket = Supermarket.importFromXML(BASE_DATASET);
+        if (supermarket.getCustomers().size() != nCustomers) {
+            supermarket.getCustomers().clear();
+            supermarket.addRandomCustomers(nCustomers, 8, SEED);
+        }
+        datasetFile = File.createTempFile("benchmark" + nCustomers + "_", ".xml");
+        supermarket.exportXML(datasetFile.getPath());
+
+        arrivals = supermarket.getCustomersInArrivalOrder().toArray(new Customer[0]);
+        closingSecond = supermarket.getClosingTime().toSecondOfDay();
+
+        fifoLanes = new Cashier[nLanes];
+        loadedPriorityLanes = new ArrayList<>();
+        loadedMixedLanes = new ArrayList<>();
+        for (int lane = 0; lane < nLanes; lane++) {
+            fifoLanes[lane] = new FIFOCashier("FIFO-" + lane);
+            loadedPriorityLanes.add(new PriorityCashier("PRIO-" + lane, 5));
+            loadedMixedLanes.add(lane % 2 == 0 ? new FIFOCashier("FIFO-" + lane) : new PriorityCashier("PRIO-" + lane, 5));
+        }
+
+        // load the cashiers with waiting customers at opening time
+        int openSecond = supermarket.getOpenTime().toSecondOfDay();
+        for (int lane = 0; lane < nLanes; lane++) {
+            loadedPriorityLanes.get(lane).reStart(openSecond);
+            loadedMixedLanes.get(lane).reStart(openSecond);
+        }
+        int nQueued = Math.min(arrivals.length, QUEUED_PER_LANE * nLanes);
+        List<Customer> queued = new ArrayList<>();
+        for (int i = 0; i < nQueued; i++) {
+            queued.add(enqueueCopy(arrivals[i], loadedPriorityLanes.get(i % nLanes)));
+            enqueueCopy(arrivals[i], loadedMixedLanes.get(i % nLanes));
+        }
+
+        // probe both customers that are waiting and customers that are about to choose a cashier
+        probes = new Customer[PROBES];
+        for (int p = 0; p < PROBES; p++) {
+            probes[p] = (p % 2 == 0 && !queued.isEmpty()
+                    ? queued.get((p * 7919) % queued.size())
+                    : arrivals[(p * 7919) % arrivals.length]);
+        }
+    }
+
+    private Customer enqueueCopy(Customer customer, Cashier cashier) {
+        Customer copy = new Customer(supermarket.getOpenTime(), customer.getZipCode());
+        copy.getItems().addAll(customer.getItems());
+        cashier.add(copy);
+        return copy;
+    }
+
+    @Override
+    public int fifoDoTheWorkUntil() {
+        int openSecond = supermarket.getOpenTime().toSecondOfDay();
+        for (Cashier c : fifoLanes) {
+            c.reStart(openSecond);
+        }
+        for (int i = 0; i < arrivals.length; i++) {
+            int arrivalSecond = arrivals[i].getQueuedAt().toSecondOfDay();
+            for (Cashier c : fifoLanes) {
+                c.doTheWorkUntil(arrivalSecond);
+            }
+            fifoLanes[i % fifoLanes.length].add(arrivals[i]);
+        }
+        int totalIdleTime = 0;
+        for (Cashier c : fifoLanes) {
+            c.doTheWorkUntil(closingSecond + 15 * 60);
+            totalIdleTime += c.getTotalIdleTime();
+        }
+        return totalIdleTime;
+    }
+
+    @Override
+    public int priorityExpectedWaitingTime() {
+        int totalWaitingTime = 0;
+        for (Customer probe : probes) {
+            for (int lane = 0; lane < loadedPriorityLanes.size(); lane++) {
+                totalWaitingTime += loadedPriorityLanes.get(lane).expectedWaitingTime(probe);
+            }
+        }
+        return totalWaitingTime;
+    }
+
+    @Override
+    public Object selectCashier() {
+        Cashier selected = null;
+        for (Customer probe : probes) {
+            selected = probe.selectCashier(loadedMixedLanes);
+        }
+        return selected;
+    }
+
+    @Override
+    public Object importFromXML() {
+        return Supermarket.importFromXML(datasetFile.getPath());
+    }
+
+    @Override
+    public Object revenueByZipCode() {
+        return supermarket.revenueByZipCode();
+    }
+
+    @Override
+    public Object mostBoughtProductByZipCode() {
+        return supermarket.mostBoughtProductByZipCode();
+    }
+
+    @Override
+    public void tearDown() {
+        datasetFile.delete();
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * end-to-end scaling benchmark: generates seeded datasets of increasing size and measures
+ * the import, the simulation of several lane mixes and the customer analytics on each of them
+ * for every phase the wall time, the bytes allocated by all threads and the peak of the used heap,
+ * both sampled every few milliseconds, are recorded and written to scaling.csv and scaling.json in the output folder
+ *
+ * run with:  mvn -Pbenchmark compile exec:java [-Dexec.args="sizes seed outputFolder laneMix..."]
+ * e.g.       mvn -Pbenchmark compile exec:java -Dexec.args="1000,10000 42 target/scaling FIFO 2xFIFO,PRIO:5"
+ */
+public class ScalingBenchmark {
+    static final String BASE_DATASET = "jambi250_8.xml";
+    static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    static final long DEFAULT_SEED = 20191103L;
+    static final String[] DEFAULT_LANE_MIXES = {"FIFO", "2xFIFO", "FIFO,PRIO:5", "4xFIFO", "4xFIFO,4xPRIO:5"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean HEAP = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * the measurement of one phase of the benchmark
+     */
+    static class Measurement {
+        final int nCustomers;
+        final String phase;
+        final String laneMix;
+        final long wallTimeNanos;
+        final long allocatedBytes;
+        final long peakHeapBytes;
+
+        Measurement(int nCustomers, String phase, String laneMix,
+                    long wallTimeNanos, long allocatedBytes, long peakHeapBytes) {
+            this.nCustomers = nCustomers;
+            this.phase = phase;
+            this.laneMix = laneMix;
+            this.wallTimeNanos = wallTimeNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+    }
+
+    private final List<Measurement> measurements = new ArrayList<>();
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int[] sizes = (args.length > 0 ? parseSizes(args[0]) : DEFAULT_SIZES);
+        long seed = (args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED);
+        File outputFolder = new File(args.length > 2 ? args[2] : "target/scaling");
+        List<LaneMix> laneMixes = new ArrayList<>();
+        for (String mix : (args.length > 3 ? Arrays.copyOfRange(args, 3, args.length) : DEFAULT_LANE_MIXES)) {
+            laneMixes.add(LaneMix.parse(mix));
+        }
+
+        ScalingBenchmark benchmark = new ScalingBenchmark();
+        for (int nCustomers : sizes) {
+            benchmark.run(nCustomers, seed, laneMixes);
+        }
+
+        outputFolder.mkdirs();
+        benchmark.writeCSV(new File(outputFolder, "scaling.csv"));
+        benchmark.writeJSON(new File(outputFolder, "scaling.json"), seed);
+        System.out.printf("Results written to %s\n", outputFolder.getAbsolutePath());
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+        }
+        return result;
+    }
+
+    /**
+     * measures all phases on a dataset of nCustomers customers
+     * @param nCustomers
+     * @param seed
+     * @param laneMixes
+     */
+    void run(int nCustomers, long seed, List<LaneMix> laneMixes) {
+        Supermarket base = Supermarket.importFromXML(BASE_DATASET);
+        File datasetFile = new File(System.getProperty("java.io.tmpdir"), "scaling" + nCustomers + "_" + seed + ".xml");
+        try {
+            measure(nCustomers, "generate", "", () -> {
+                base.exportXML(datasetFile.getPath(),
+                        base.randomCustomerGenerator(8, seed).arrivalOrderedIterator(nCustomers,
+                                Runtime.getRuntime().availableProcessors()));
+                return datasetFile;
+            });
+
+            Supermarket supermarket = measure(nCustomers, "import", "",
+                    () -> Supermarket.importFromXML(datasetFile.getPath()));
+
+            for (LaneMix laneMix : laneMixes) {
+                supermarket.getCashiers().clear();
+                supermarket.getCashiers().addAll(laneMix.createCashiers());
+                measure(nCustomers, "simulate", laneMix.toString(), () -> {
+                    supermarket.simulateCashiers();
+                    return supermarket;
+                });
+            }
+
+            measure(nCustomers, "revenueByZipCode", "", supermarket::revenueByZipCode);
+            measure(nCustomers, "mostBoughtProductByZipCode", "", supermarket::mostBoughtProductByZipCode);
+        } finally {
+            datasetFile.delete();
+        }
+    }
+
+    /**
+     * samples the allocations of all threads and the total used heap while a phase runs,
+     * such that the work of thread pools is counted and the peak is that of the heap as a whole
+     * threads that end within a phase are counted up to their last sample
+     */
+    private static class Sampler extends Thread {
+        static final long INTERVAL_MILLIS = 5;
+
+        private final Map<Long, Long> allocatedBefore;
+        private final Map<Long, Long> allocatedAfter = new HashMap<>();
+        private long peakHeap;
+        private volatile boolean stopped;
+
+        Sampler() {
+            super("scaling-sampler");
+            setDaemon(true);
+            this.allocatedBefore = allocatedPerThread();
+            this.peakHeap = HEAP.getHeapMemoryUsage().getUsed();
+        }
+
+        private static Map<Long, Long> allocatedPerThread() {
+            long[] threadIds = THREADS.getAllThreadIds();
+            long[] allocated = THREADS.getThreadAllocatedBytes(threadIds);
+            Map<Long, Long> perThread = new HashMap<>();
+            for (int i = 0; i < threadIds.length; i++) {
+                if (allocated[i] >= 0) perThread.put(threadIds[i], allocated[i]);
+            }
+            return perThread;
+        }
+
+        private synchronized void sample() {
+            allocatedAfter.putAll(allocatedPerThread());
+            peakHeap = Math.max(peakHeap, HEAP.getHeapMemoryUsage().getUsed());
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                sample();
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * stops sampling and takes a last sample
+         */
+        void finish() {
+            stopped = true;
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sample();
+        }
+
+        /**
+         * @return the bytes allocated by all threads but the sampler since the sampler was created
+         */
+        synchronized long getAllocatedBytes() {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> thread : allocatedAfter.entrySet()) {
+                if (thread.getKey() == getId()) continue;
+                allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+            }
+            return allocated;
+        }
+
+        synchronized long getPeakHeap() {
+            return peakHeap;
+        }
+    }
+
+    /**
+     * runs a single phase and records its wall time, the allocations of all threads and the peak of the used heap
+     * @param nCustomers
+     * @param phase
+     * @param laneMix
+     * @param action
+     * @return the result of the action
+     */
+    <T> T measure(int nCustomers, String phase, String laneMix, Supplier<T> action) {
+        System.gc();
+        Sampler sampler = new Sampler();
+        sampler.start();
+        long startTime = System.nanoTime();
+
+        T result = action.get();
+
+        long wallTime = System.nanoTime() - startTime;
+        sampler.finish();
+        long allocated = sampler.getAllocatedBytes();
+        long peakHeap = sampler.getPeakHeap();
+
+        measurements.add(new Measurement(nCustomers, phase, laneMix, wallTime, allocated, peakHeap));
+        System.out.printf(Locale.US, "%10d %-28s %-20s %12.3f ms %14d bytes %14d peak\n",
+                nCustomers, phase, laneMix, wallTime / 1e6, allocated, peakHeap);
+        return result;
+    }
+
+    void writeCSV(File file) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            out.println("customers,phase,laneMix,wallTimeMillis,allocatedBytes,peakHeapBytes");
+            for (Measurement m : measurements) {
+                out.printf(Locale.US, "%d,%s,\"%s\",%.3f,%d,%d\n",
+                        m.nCustomers, m.phase, m.laneMix, m.wallTimeNanos / 1e6, m.allocatedBytes, m.peakHeapBytes);
+            }
+        }
+    }
+
+    void writeJSON(File file, long seed) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            out.printf("{\n  \"timestamp\": \"%s\",\n  \"javaVersion\": \"%s\",\n  \"processors\": %d,\n  \"seed\": %d,\n",
+                    LocalDateTime.now(), System.getProperty("java.version"),
+                    Runtime.getRuntime().availableProcessors(), seed);
+            out.println("  \"measurements\": [");
+            for (int i = 0; i < measurements.size(); i++) {
+                Measurement m = measurements.get(i);
+                out.printf(Locale.US,
+                        "    {\"customers\": %d, \"phase\": \"%s\", \"laneMix\": \"%s\", " +
+                                "\"wallTimeMillis\": %.3f, \"allocatedBytes\": %d, \"peakHeapBytes\": %d}%s\n",
+                        m.nCustomers, m.phase, m.laneMix, m.wallTimeNanos / 1e6, m.allocatedBytes, m.peakHeapBytes,
+                        (i < measurements.size() - 1 ? "," : ""));
+            }
+            out.println("  ]\n}");
+        }
+    }
+}
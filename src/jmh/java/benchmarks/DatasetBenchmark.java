@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * micro benchmarks of loading a dataset and of the customer analytics
+ * these do not depend on the cashiers, so they are parameterized by the number of customers only
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatasetBenchmark {
+
+    @Param({"250", "10000", "100000"})
+    public int customers;
+
+    private SupermarketWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = SupermarketWorkload.create(customers, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object importFromXML() {
+        return workload.importFromXML();
+    }
+
+    @Benchmark
+    public Object revenueByZipCode() {
+        return workload.revenueByZipCode();
+    }
+
+    @Benchmark
+    public Object mostBoughtProductByZipCode() {
+        return workload.mostBoughtProductByZipCode();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * micro benchmarks of the cashier simulation hot paths
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"250", "10000", "100000"})
+    public int customers;
+
+    @Param({"1", "2", "4", "8"})
+    public int lanes;
+
+    private SupermarketWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = SupermarketWorkload.create(customers, lanes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public int fifoDoTheWorkUntil() {
+        return workload.fifoDoTheWorkUntil();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int priorityExpectedWaitingTime() {
+        return workload.priorityExpectedWaitingTime();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object selectCashier() {
+        return workload.selectCashier();
+    }
+}
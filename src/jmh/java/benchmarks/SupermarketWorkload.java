@@ -0,0 +1,57 @@
+package benchmarks;
+
+/**
+ * the operations of the supermarket simulation that are being benchmarked
+ * the supermarket classes live in the default package and cannot be referenced from the
+ * benchmark classes directly; the implementation of this interface is loaded by name instead,
+ * after which the benchmarks call it through this interface without any reflection
+ */
+public interface SupermarketWorkload {
+    String IMPLEMENTATION = "BenchmarkSupermarket";
+
+    /**
+     * creates a workload with a dataset of nCustomers customers and nLanes cashiers
+     * @param nCustomers
+     * @param nLanes
+     * @return
+     * @throws Exception
+     */
+    static SupermarketWorkload create(int nCustomers, int nLanes) throws Exception {
+        SupermarketWorkload workload = (SupermarketWorkload) Class.forName(IMPLEMENTATION)
+                .getDeclaredConstructor().newInstance();
+        workload.setUp(nCustomers, nLanes);
+        return workload;
+    }
+
+    void setUp(int nCustomers, int nLanes) throws Exception;
+
+    /**
+     * simulates all customers on FIFO cashiers, handing out customers round robin
+     * @return the total idle time of the cashiers
+     */
+    int fifoDoTheWorkUntil();
+
+    /**
+     * asks all loaded priority cashiers for the expected waiting time of a series of probe customers
+     * @return the sum of expected waiting times
+     */
+    int priorityExpectedWaitingTime();
+
+    /**
+     * lets a series of probe customers select one of the loaded FIFO and priority cashiers
+     * @return the last selected cashier
+     */
+    Object selectCashier();
+
+    /**
+     * loads the complete dataset from its XML file
+     * @return the loaded supermarket
+     */
+    Object importFromXML();
+
+    Object revenueByZipCode();
+
+    Object mostBoughtProductByZipCode();
+
+    void tearDown();
+}
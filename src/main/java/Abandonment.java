@@ -0,0 +1,200 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.TimingWheel;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * lets customers leave without checking out:
+ *  balking:    on arrival, a customer leaves if the expected wait at the cashier of its choice exceeds a threshold
+ *  reneging:   a waiting customer leaves the queue when its patience runs out before its check-out starts
+ * the patience timeouts of all waiting customers are kept in a timing wheel, such that scheduling a timeout
+ * on arrival and cancelling it when the check-out starts take constant time
+ * configure it with Supermarket.setAbandonment; it follows the simulation as a listener of the cashiers,
+ * and passes all events on to the listener of the supermarket
+ */
+public class Abandonment implements SimulationListener {
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private final int balkingThreshold;     // maximum expected waiting time that customers accept on arrival
+    private final int patience;             // maximum time that customers wait in a queue
+
+    // state of the running simulation
+    private SimulationListener listener;
+    private TimingWheel<Customer> timeouts;
+    private final Map<Customer, TimingWheel.Timer<Customer>> pendingTimeouts = new IdentityHashMap<>();
+    private final Map<Cashier, Integer> laneIndex = new IdentityHashMap<>();
+    private int[] nBalked = new int[0];     // per lane
+    private int[] nReneged = new int[0];    // per lane
+
+    /**
+     * @param balkingThreshold  maximum expected waiting time in seconds that customers accept on arrival, or NEVER
+     * @param patience          maximum time in seconds that customers wait for their check-out, or NEVER
+     */
+    public Abandonment(int balkingThreshold, int patience) {
+        this.balkingThreshold = balkingThreshold;
+        this.patience = patience;
+    }
+
+    /**
+     * prepares for a simulation of the given cashiers
+     * @param cashiers
+     * @param listener  the listener that receives all events, or null
+     * @param startTime
+     */
+    void start(List<Cashier> cashiers, SimulationListener listener, int startTime) {
+        this.listener = listener;
+        this.timeouts = new TimingWheel<>(startTime);
+        this.pendingTimeouts.clear();
+        this.laneIndex.clear();
+        for (Cashier cashier : cashiers) {
+            this.laneIndex.put(cashier, this.laneIndex.size());
+        }
+        this.nBalked = new int[cashiers.size()];
+        this.nReneged = new int[cashiers.size()];
+    }
+
+    /**
+     * follows a cashier that has been opened during the simulation
+     * @param cashier
+     */
+    void opened(Cashier cashier) {
+        this.laneIndex.put(cashier, this.laneIndex.size());
+        this.nBalked = Arrays.copyOf(this.nBalked, this.laneIndex.size());
+        this.nReneged = Arrays.copyOf(this.nReneged, this.laneIndex.size());
+    }
+
+    /**
+     * decides whether an arriving customer leaves instead of joining the queue of the selected cashier
+     * @param customer
+     * @param cashier
+     * @param time
+     * @return true if the customer balks
+     */
+    boolean balks(Customer customer, Cashier cashier, int time) {
+        if (balkingThreshold == NEVER || cashier.expectedWaitingTime(customer) <= balkingThreshold) {
+            return false;
+        }
+        nBalked[lane(cashier)]++;
+        customer.setAbandoned(true);
+        if (listener != null) {
+            listener.onAbandon(cashier, customer, time);
+        }
+        return true;
+    }
+
+    /**
+     * starts the patience of a customer that has joined a queue
+     * @param customer
+     * @param time
+     */
+    void joined(Customer customer, int time) {
+        if (patience != NEVER && customer.getCheckOutCashier() != null) {
+            pendingTimeouts.put(customer, timeouts.schedule(time + patience, customer));
+        }
+    }
+
+    /**
+     * lets all customers whose patience runs out up to and including the given time leave their queue,
+     * in order of time. the cashier of each customer first proceeds its work until that time
+     * @param time
+     */
+    void expireUntil(int time) {
+        if (pendingTimeouts.isEmpty() || time < timeouts.getCurrentTime()) return;
+        timeouts.advanceTo(time, timeout -> {
+            Customer customer = timeout.getPayload();
+            Cashier cashier = customer.getCheckOutCashier();
+            cashier.doTheWorkUntil(timeout.getTime());
+            // a check-out that has started in the meantime has taken the customer out of the pending timeouts
+            if (pendingTimeouts.remove(customer) == null) return;
+            if (cashier.renege(customer)) {
+                nReneged[lane(cashier)]++;
+                customer.setActualWaitingTime(timeout.getTime() - customer.getQueuedAt().toSecondOfDay());
+                if (listener != null) {
+                    listener.onAbandon(cashier, customer, timeout.getTime());
+                }
+                customer.setCheckOutCashier(null);
+            }
+        });
+    }
+
+    private int lane(Cashier cashier) {
+        return laneIndex.get(cashier);
+    }
+
+    @Override
+    public void onArrival(Cashier cashier, Customer customer, int time, int queueLength) {
+        if (listener != null) listener.onArrival(cashier, customer, time, queueLength);
+    }
+
+    @Override
+    public void onServiceStart(Cashier cashier, Customer customer, int time) {
+        TimingWheel.Timer<Customer> timeout = pendingTimeouts.remove(customer);
+        if (timeout != null) {
+            timeouts.cancel(timeout);
+        }
+        if (listener != null) listener.onServiceStart(cashier, customer, time);
+    }
+
+    @Override
+    public void onServiceEnd(Cashier cashier, Customer customer, int time) {
+        if (listener != null) listener.onServiceEnd(cashier, customer, time);
+    }
+
+    @Override
+    public void onIdle(Cashier cashier, int fromTime, int toTime) {
+        if (listener != null) listener.onIdle(cashier, fromTime, toTime);
+    }
+
+    @Override
+    public void onAbandon(Cashier cashier, Customer customer, int time) {
+        if (listener != null) listener.onAbandon(cashier, customer, time);
+    }
+
+    public int getBalkingThreshold() {
+        return balkingThreshold;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    /**
+     * @return the number of customers that left on arrival at the given cashier in the last simulation
+     */
+    public int getNumberOfBalked(Cashier cashier) {
+        Integer lane = laneIndex.get(cashier);
+        return (lane != null ? nBalked[lane] : 0);
+    }
+
+    /**
+     * @return the number of customers that left the queue of the given cashier in the last simulation
+     */
+    public int getNumberOfReneged(Cashier cashier) {
+        Integer lane = laneIndex.get(cashier);
+        return (lane != null ? nReneged[lane] : 0);
+    }
+
+    /**
+     * reports the customers that have been lost per cashier
+     * @param cashiers
+     * @param out
+     */
+    public void printLostCustomers(List<Cashier> cashiers, PrintStream out) {
+        out.println("Lost customers:\tbalked:\treneged:");
+        int totalBalked = 0, totalReneged = 0;
+        for (Cashier cashier : cashiers) {
+            out.printf("\t%s\t\t%4d\t%4d\n", cashier.getName(), getNumberOfBalked(cashier), getNumberOfReneged(cashier));
+            totalBalked += getNumberOfBalked(cashier);
+            totalReneged += getNumberOfReneged(cashier);
+        }
+        out.printf("\t%s\t\t%4d\t%4d\n", "overall", totalBalked, totalReneged);
+    }
+}
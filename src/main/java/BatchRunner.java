@@ -0,0 +1,214 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.SLF4J;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * simulates the same lane mixes for a whole directory of datasets, e.g. every store and every day
+ * datasets are loaded by I/O tasks, on virtual threads where the JVM provides them, and simulated
+ * on a fixed pool with a thread per core. at most maxLoaded datasets are in memory at the same time:
+ * the next dataset is only loaded after an earlier one has been simulated (backpressure)
+ * the results of all datasets are written to one tab-separated file, in the order of the datasets
+ *
+ * run with:  BatchRunner datasets resultFile laneMix...
+ *            datasets is a directory with xml files or a glob pattern, e.g. "data/jambi*.xml"
+ * e.g.       BatchRunner src/main/resources results.tsv FIFO 2xFIFO PRIO:5
+ */
+public class BatchRunner {
+
+    private final List<LaneMix> laneMixes;  // simulated for every dataset
+    private final int parallelism;          // number of datasets that are simulated at the same time
+    private final int maxLoaded;            // number of datasets that may be in memory at the same time
+
+    /**
+     * the outcome of all lane mixes of a single dataset
+     */
+    public static class Result {
+        private final Path dataset;
+        private final SimulationStatistics[] statistics;    // per lane mix, null if the dataset could not be loaded
+
+        Result(Path dataset, SimulationStatistics[] statistics) {
+            this.dataset = dataset;
+            this.statistics = statistics;
+        }
+
+        public Path getDataset() {
+            return dataset;
+        }
+
+        public boolean isLoaded() {
+            return statistics != null;
+        }
+
+        public SimulationStatistics getStatistics(int laneMix) {
+            return statistics[laneMix];
+        }
+    }
+
+    public BatchRunner(List<LaneMix> laneMixes, int parallelism) {
+        this(laneMixes, parallelism, 2 * parallelism);
+    }
+
+    public BatchRunner(List<LaneMix> laneMixes, int parallelism, int maxLoaded) {
+        this.laneMixes = laneMixes;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxLoaded = Math.max(this.parallelism, maxLoaded);
+    }
+
+    /**
+     * finds the xml datasets in a directory, or the files that match a glob pattern
+     * @param directoryOrGlob
+     * @return the datasets in order of their file names
+     */
+    public static List<Path> findDatasets(String directoryOrGlob) {
+        Path path = Paths.get(directoryOrGlob);
+        Path directory;
+        String pattern;
+        if (Files.isDirectory(path)) {
+            directory = path;
+            pattern = "*.xml";
+        } else {
+            directory = (path.getParent() != null ? path.getParent() : Paths.get("."));
+            pattern = path.getFileName().toString();
+        }
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + pattern);
+        List<Path> datasets = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && matcher.matches(file.getFileName())) {
+                    datasets.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list datasets in " + directory, e);
+        }
+        datasets.sort(null);
+        return datasets;
+    }
+
+    /**
+     * loads and simulates all datasets
+     * @param datasets
+     * @return one result per dataset, in the order of the datasets
+     */
+    public List<Result> run(List<Path> datasets) {
+        Result[] results = new Result[datasets.size()];
+        Semaphore loadPermits = new Semaphore(maxLoaded);
+        ExecutorService loaders = newLoaderExecutor();
+        ExecutorService simulators = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<CompletableFuture<Void>> runs = new ArrayList<>(datasets.size());
+            for (int d = 0; d < datasets.size(); d++) {
+                final int dataset = d;
+                // wait until an earlier dataset has been simulated and released its memory
+                loadPermits.acquire();
+                runs.add(CompletableFuture
+                        .supplyAsync(() -> Supermarket.importFromXML(datasets.get(dataset).toString(), true), loaders)
+                        .thenApplyAsync(this::simulate, simulators)
+                        .whenComplete((statistics, failure) -> loadPermits.release())
+                        .thenAccept(statistics -> results[dataset] = new Result(datasets.get(dataset), statistics)));
+            }
+            CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run has been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch run failed", e.getCause());
+        } finally {
+            loaders.shutdownNow();
+            simulators.shutdownNow();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * simulates all lane mixes on a loaded dataset
+     * @param supermarket   the dataset, or null if it could not be loaded
+     * @return the statistics per lane mix, or null
+     */
+    private SimulationStatistics[] simulate(Supermarket supermarket) {
+        if (supermarket == null) return null;
+        SimulationStatistics[] statistics = new SimulationStatistics[laneMixes.size()];
+        for (int m = 0; m < laneMixes.size(); m++) {
+            supermarket.getCashiers().clear();
+            supermarket.getCashiers().addAll(laneMixes.get(m).createCashiers());
+            supermarket.simulateCashiers();
+            statistics[m] = supermarket.getSimulationStatistics();
+        }
+        return statistics;
+    }
+
+    /**
+     * loading is I/O bound: use a virtual thread per dataset on JVMs that support them,
+     * or else ordinary threads. the number of loading datasets is bounded by the load permits anyway
+     * @return
+     */
+    private static ExecutorService newLoaderExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * writes the results as a tab-separated file, with a line per dataset and lane mix
+     * @param results
+     * @param out
+     */
+    public void writeResults(List<Result> results, PrintWriter out) {
+        out.println("dataset\tlane-mix\tn-customers\tavg-wait-time\tp95-wait-time\tmax-wait-time\tmax-queue-length\tidle-time\tabandoned");
+        for (Result result : results) {
+            if (!result.isLoaded()) {
+                out.printf("%s\t\t\t\t\t\t\t\t\n", result.dataset);
+                continue;
+            }
+            for (int m = 0; m < laneMixes.size(); m++) {
+                SimulationStatistics s = result.statistics[m];
+                out.printf(Locale.US, "%s\t%s\t%d\t%.2f\t%d\t%d\t%d\t%d\t%d\n",
+                        result.dataset, laneMixes.get(m), s.getNumberOfCustomers(), s.getAverageWaitingTime(),
+                        s.getWaitingTimePercentile(0.95), s.getMaxWaitingTime(), s.getMaxQueueLength(),
+                        s.getTotalIdleTime(), s.getNumberOfAbandoned());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String datasets = (args.length > 0 ? args[0] : "src/main/resources");
+        Path resultFile = Paths.get(args.length > 1 ? args[1] : "results.tsv");
+        List<LaneMix> laneMixes = new ArrayList<>();
+        for (String mix : (args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[]{"FIFO", "2xFIFO", "PRIO:5"})) {
+            laneMixes.add(LaneMix.parse(mix));
+        }
+
+        BatchRunner runner = new BatchRunner(laneMixes, Runtime.getRuntime().availableProcessors());
+        long started = System.nanoTime();
+        List<Result> results = runner.run(findDatasets(datasets));
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(resultFile))) {
+            runner.writeResults(results, out);
+        }
+        long failed = results.stream().filter(r -> !r.isLoaded()).count();
+        SLF4J.LOGGER.info(String.format("Simulated %d dataset(s) in %d ms into %s%s", results.size() - failed,
+                (System.nanoTime() - started) / 1_000_000, resultFile, (failed > 0 ? ", " + failed + " failed to load" : "")));
+    }
+}
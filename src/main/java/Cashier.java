@@ -4,16 +4,25 @@
  */
 
 import java.time.LocalTime;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.function.UnaryOperator;
 
-public abstract class Cashier {
+public abstract class Cashier implements Cloneable {
 
     private String name;                    // name of the cashier, for results identification
     protected Queue<Customer> waitingQueue; // queue of waiting customers
-    protected LocalTime currentTime;        // tracks time for the cashier during simulation
+    protected int nReneged;                 // customers that have left the queue, but remain in it until they reach its head
+    protected int currentTime;              // tracks time for the cashier during simulation, in seconds of the day
     protected int totalIdleTime;            // tracks cumulative seconds when there was no work for the cashier
     protected int maxQueueLength;           // tracks the maximum number of customers at the cashier at any time
             // during simulation. Includes both waiting customers and the customer being served
+    protected SimulationListener listener;  // receives the simulation events of this cashier, if any
+    protected boolean open = true;          // accepts new customers
+    protected boolean staffed = true;       // a closing cashier remains staffed until its queue has been handled
+    protected int closedAt;                 // time at which the cashier has become unstaffed
+
+    static final int SECONDS_PER_DAY = 24 * 60 * 60;
 
     protected Cashier(String name) {
         this.name = name;
@@ -25,13 +34,66 @@ public abstract class Cashier {
      * @param currentTime
      */
     public void reStart(LocalTime currentTime) {
+        reStart(currentTime.toSecondOfDay());
+    }
+
+    /**
+     * restart the state if simulation of the cashier to initial time in seconds of the day
+     * with empty queues
+     * @param currentTime
+     */
+    public void reStart(int currentTime) {
         this.waitingQueue.clear();
+        this.nReneged = 0;
         this.currentTime = currentTime;
         this.totalIdleTime = 0;
         this.maxQueueLength = 0;
+        this.open = true;
+        this.staffed = true;
+        this.closedAt = currentTime;
         // TODO: you may need to override this method in sub-classes
     }
 
+    /**
+     * opens the cashier at its current time, after which it accepts new customers
+     * idle time is accounted from now on
+     */
+    public void open() {
+        this.open = true;
+        this.staffed = true;
+    }
+
+    /**
+     * closes the cashier at its current time: it does not accept new customers anymore,
+     * but remains staffed until all customers in its queue have been checked out
+     */
+    public void close() {
+        this.open = false;
+    }
+
+    /**
+     * calls back a closed cashier that has already left, for a customer that has no open cashier to go to
+     * the cashier remains closed, is staffed again such that its idle time is accounted,
+     * and leaves again as soon as its queue has been handled
+     */
+    public void recall() {
+        this.staffed = true;
+    }
+
+    /**
+     * lets the cashier work until closing time plus overtime, after which the overtime is removed
+     * from its clock and from its idle time, as far as the cashier has been staffed during the overtime
+     * @param closingTime
+     * @param overtime
+     */
+    public void finishWork(int closingTime, int overtime) {
+        int overtimeSecond = closingTime + overtime;
+        doTheWorkUntil(overtimeSecond);
+        int staffedUntil = (this.staffed ? overtimeSecond : Math.min(overtimeSecond, this.closedAt));
+        this.currentTime -= overtime;
+        this.totalIdleTime -= Math.max(0, staffedUntil - closingTime);
+    }
+
     /**
      * calculate the expected nett checkout time of a customer with a given number of items
      * this may be different for different types of Cashiers
@@ -61,7 +123,16 @@ public abstract class Cashier {
      *      after which new customers may arrive.
      * @param targetTime
      */
-    public abstract void doTheWorkUntil(LocalTime targetTime);
+    public void doTheWorkUntil(LocalTime targetTime) {
+        doTheWorkUntil(targetTime.toSecondOfDay());
+    }
+
+    /**
+     * proceed the cashier's work until the given targetTime in seconds of the day has been reached
+     * the simulation runs on these primitive seconds such that time can advance without allocations
+     * @param targetTime
+     */
+    public abstract void doTheWorkUntil(int targetTime);
 
     /**
      * add a new customer to the queue of the cashier
@@ -74,15 +145,121 @@ public abstract class Cashier {
         }
     }
 
+    /**
+     * creates an independent copy of the cashier, including its simulation state at the current time
+     * the customers in the queue of the copy are provided by the customerMapping,
+     * such that the copy can continue the simulation on its own copies of the customers
+     * @param customerMapping   provides the counterpart of every queued customer in the copy
+     * @return
+     */
+    public Cashier copy(UnaryOperator<Customer> customerMapping) {
+        Cashier copy;
+        try {
+            copy = (Cashier) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.waitingQueue = newWaitingQueue();
+        for (Customer customer : this.waitingQueue) {
+            copy.waitingQueue.add(customerMapping.apply(customer));
+        }
+        return copy;
+    }
+
+    /**
+     * sets the simulation state of this cashier to that of a copy, e.g. of a checkpoint,
+     * such that references to this cashier keep following the simulation
+     * @param snapshot          a copy of a cashier of the same type and configuration
+     * @param customerMapping   provides the counterpart of every queued customer of the snapshot
+     */
+    public void restoreFrom(Cashier snapshot, UnaryOperator<Customer> customerMapping) {
+        if (snapshot.getClass() != getClass() || !snapshot.getLaneType().equals(getLaneType())) {
+            throw new IllegalArgumentException("Cannot restore " + this + " from " + snapshot);
+        }
+        this.waitingQueue.clear();
+        for (Customer customer : snapshot.waitingQueue) {
+            this.waitingQueue.add(customerMapping.apply(customer));
+        }
+        this.nReneged = snapshot.nReneged;
+        this.currentTime = snapshot.currentTime;
+        this.totalIdleTime = snapshot.totalIdleTime;
+        this.maxQueueLength = snapshot.maxQueueLength;
+        this.open = snapshot.open;
+        this.staffed = snapshot.staffed;
+        this.closedAt = snapshot.closedAt;
+    }
+
+    /**
+     * @return a new, empty queue of the kind that is used by this type of cashier
+     */
+    protected Queue<Customer> newWaitingQueue() {
+        return new ArrayDeque<>();
+    }
+
+    /**
+     * lets a waiting customer that does not want to wait any longer leave the queue
+     * the customer is marked as abandoned and remains in the queue until it reaches the head,
+     * where it is skipped, such that leaving takes constant time
+     * @param customer
+     * @return false if the customer is not waiting in the queue (anymore)
+     */
+    public boolean renege(Customer customer) {
+        if (customer.getCheckOutCashier() != this || customer.isAbandoned() || customer.getActualCheckOutTime() > 0) {
+            return false;
+        }
+        customer.setAbandoned(true);
+        nReneged++;
+        return true;
+    }
+
+    /**
+     * @return the next customer in the waiting queue, after dropping the customers at its head that have reneged
+     */
+    protected Customer peekWaitingCustomer() {
+        Customer next;
+        while ((next = waitingQueue.peek()) != null && next.isAbandoned()) {
+            waitingQueue.poll();
+            nReneged--;
+        }
+        return next;
+    }
+
+    /**
+     * @return the number of customers in the waiting queue that have not reneged
+     */
+    public int getNumberOfWaitingCustomers() {
+        return waitingQueue.size() - nReneged;
+    }
+
     // TODO implement relevant overrides and/or local classes to be able to
     //  print Cashiers and/or use them in sets, maps and/or priority queues.
 
+    /**
+     * @return a short description of the type and configuration of the cashier
+     */
+    public String getLaneType() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + getLaneType() + ")";
+    }
+
 
     public int getTotalIdleTime() {
         return totalIdleTime;
     }
 
     public LocalTime getCurrentTime() {
+        return LocalTime.ofSecondOfDay(Math.floorMod(currentTime, SECONDS_PER_DAY));
+    }
+
+    /**
+     * @return the current time of the cashier in seconds since midnight;
+     *          may exceed a day while the cashier is working overtime
+     */
+    public int getCurrentSecondOfDay() {
         return currentTime;
     }
 
@@ -95,12 +272,40 @@ public abstract class Cashier {
     }
 
     public void setCurrentTime(LocalTime currentTime) {
+        this.currentTime = currentTime.toSecondOfDay();
+    }
+    public void setCurrentSecondOfDay(int currentTime) {
         this.currentTime = currentTime;
     }
     public void setTotalIdleTime(int totalIdleTime) {
         this.totalIdleTime = totalIdleTime;
     }
 
+    /**
+     * @return whether the cashier accepts new customers
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return whether the cashier is staffed, i.e. open or still handling its queue after closing
+     */
+    public boolean isStaffed() {
+        return staffed;
+    }
+
+    public SimulationListener getSimulationListener() {
+        return listener;
+    }
+
+    public void setSimulationListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the waiting queue, which may still hold customers that have reneged (Customer.isAbandoned)
+     */
     public Queue<Customer> getWaitingQueue() {
         return waitingQueue;
     }
@@ -8,38 +8,54 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.function.ObjIntConsumer;
 
 public class Customer {
     private LocalTime queuedAt;      // time of arrival at cashier
     private String zipCode;          // zip-code of the customer
-    private Set<Purchase> items;     // items procured by customer
+    private PurchaseSet items;       // items procured by customer, null until decoded if they are packed
+    private PackedPurchases packed;  // compact encoding of the items of a lazily imported customer, or null
     private int actualWaitingTime;   // actual waiting time in seconds before check-out
     private int actualCheckOutTime;  // actual check-out time at cashier in seconds
     private Cashier checkOutCashier; // cashier that the customer has chosen for check-out
+    private boolean abandoned;       // customer has left without checking out
 
     public Customer(LocalTime queuedAt, String zipCode) {
         this.queuedAt = queuedAt;
         this.zipCode = zipCode;
-        items = new HashSet<>();
+        items = new PurchaseSet();
+    }
+
+    /**
+     * creates a copy of a customer for a separate simulation
+     * the copy shares the purchases of the original, which are not modified by a simulation,
+     * but keeps its own simulation results
+     * @param original
+     */
+    public Customer(Customer original) {
+        this.queuedAt = original.queuedAt;
+        this.zipCode = original.zipCode;
+        this.items = original.items;
+        this.packed = original.packed;
     }
 
     /**
      * calculate the total number of items purchased by this customer
+     * the count is maintained by the set of purchases, so the simulation can ask for it
+     * on every check-out decision without iterating the purchases
      * @return
      */
     public int getNumberOfItems() {
-        int numItems = 0;
-
-        for(Purchase p : items){
-            numItems += p.getAmount();
-        }
-
-        return numItems;
+        return (items != null ? items.numberOfItems : packed.numberOfItems);
     }
 
     public double calculateTotalBill() {
         double totalBill = 0.0;
 
+        if (items == null) {
+            // packed purchases are billed without decoding them
+            return packed.calculateTotalBill();
+        }
         for(Purchase p : items){
             totalBill += (p.getAmount() * p.getProduct().getPrice());
         }
@@ -52,6 +68,8 @@ public class Customer {
      *      passthrough time = waiting time + time to check-out my own bought items
      *      waiting time = remaining time for the current customer +
      *             check-out times of all other customers that will be in front of me in the cashier's queue
+     * only open cashiers are considered, unless all cashiers have been closed,
+     * in which case a cashier that has already left is called back by the supermarket
      * @param cashiers  the list of available cashiers to select from
      * @return
      */
@@ -61,18 +79,31 @@ public class Customer {
         if (cashiers.size() == 1) {
             selectedCashier = cashiers.get(0);
         } else {
-            int passthroughTime = 0;
+            int numberOfItems = getNumberOfItems();
+            selectedCashier = selectCashier(cashiers, numberOfItems, true);
+            if (selectedCashier == null) {
+                selectedCashier = selectCashier(cashiers, numberOfItems, false);
+            }
+        }
+        return selectedCashier;
+    }
+
+    private Cashier selectCashier(List<Cashier> cashiers, int numberOfItems, boolean openOnly) {
+        Cashier selectedCashier = null;
+        int passthroughTime = 0;
 
-            for(Cashier c : cashiers){
-                int waitTime = c.expectedCheckOutTime(getNumberOfItems());
-                waitTime += c.expectedWaitingTime(this);
-                if (passthroughTime == 0)
-                    passthroughTime = waitTime;
+        for (int i = 0; i < cashiers.size(); i++) {
+            Cashier c = cashiers.get(i);
+            if (openOnly && !c.isOpen())
+                continue;
+            int waitTime = c.expectedCheckOutTime(numberOfItems);
+            waitTime += c.expectedWaitingTime(this);
+            if (passthroughTime == 0)
+                passthroughTime = waitTime;
 
-                if (passthroughTime >= waitTime) {
-                    selectedCashier = c;
-                    passthroughTime = waitTime;
-                }
+            if (passthroughTime >= waitTime) {
+                selectedCashier = c;
+                passthroughTime = waitTime;
             }
         }
         return selectedCashier;
@@ -89,10 +120,32 @@ public class Customer {
         return zipCode;
     }
 
+    /**
+     * provides the purchases of the customer, decoding them first if they have been imported lazily
+     * @return
+     */
     public Set<Purchase> getItems() {
+        if (items == null) {
+            items = packed.decode();
+        }
         return items;
     }
 
+    /**
+     * passes every purchase to the action as product and amount,
+     * without decoding the purchases if they have been imported lazily
+     * @param action
+     */
+    public void forEachPurchase(ObjIntConsumer<Product> action) {
+        if (items == null) {
+            packed.forEachPurchase(action);
+            return;
+        }
+        for (Purchase p : items) {
+            action.accept(p.getProduct(), p.getAmount());
+        }
+    }
+
     public int getActualWaitingTime() {
         return actualWaitingTime;
     }
@@ -117,6 +170,18 @@ public class Customer {
         this.actualCheckOutTime = actualCheckOutTime;
     }
 
+    /**
+     * @return whether the customer has left the supermarket without checking out,
+     *          because the queue was too long (balking) or the wait took too long (reneging)
+     */
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public void setAbandoned(boolean abandoned) {
+        this.abandoned = abandoned;
+    }
+
     /**
      * read a series of customers with their purchases from the xml stream
      * and add them to the provided customers list
@@ -129,11 +194,29 @@ public class Customer {
      */
     public static List<Customer> importCustomersFromXML(XMLParser xmlParser, List<Customer> customers,
                                                         Set<Product> products) throws XMLStreamException {
+        return importCustomersFromXML(xmlParser, customers, products, false);
+    }
+
+    /**
+     * read a series of customers from the xml stream and add them to the provided customers list
+     * in lazy mode, the purchases of each customer are only recorded as packed product indexes and amounts,
+     * with the total number of items. Purchase objects are created on demand by getItems,
+     * such that simulation-only runs do not build them at all
+     * @param xmlParser
+     * @param customers
+     * @param products
+     * @param lazy
+     * @return
+     * @throws XMLStreamException
+     */
+    public static List<Customer> importCustomersFromXML(XMLParser xmlParser, List<Customer> customers,
+                                                        Set<Product> products, boolean lazy) throws XMLStreamException {
         if (xmlParser.nextBeginTag("customers")) {
             xmlParser.nextTag();
             if (customers != null) {
+                ProductCatalog catalog = (lazy ? new ProductCatalog(products) : null);
                 Customer customer;
-                while ((customer = importFromXML(xmlParser, products)) != null) {
+                while ((customer = (lazy ? importPackedFromXML(xmlParser, catalog) : importFromXML(xmlParser, products))) != null) {
                     customers.add(customer);
                 }
             }
@@ -172,6 +255,37 @@ public class Customer {
         return null;
     }
 
+    /**
+     * read a single customer from the xml stream, packing its purchases
+     * @param xmlParser
+     * @param catalog
+     * @return
+     * @throws XMLStreamException
+     */
+    private static Customer importPackedFromXML(XMLParser xmlParser, ProductCatalog catalog) throws XMLStreamException {
+        if (xmlParser.nextBeginTag("customer")) {
+            LocalTime qTime = LocalTime.parse(xmlParser.getAttributeValue(null, "queuedAt"));
+            String zipCode = xmlParser.getAttributeValue(null, "zipCode");
+
+            Customer customer = new Customer(qTime, zipCode);
+            PackedPurchases packed = new PackedPurchases(catalog);
+            xmlParser.nextTag();
+            while (xmlParser.nextBeginTag("purchase")) {
+                int product = catalog.indexOf(xmlParser.getAttributeValue(null, "product"));
+                int amount = xmlParser.getIntegerAttributeValue(null, "amount", 0);
+                xmlParser.findAndAcceptEndTag("purchase");
+                if (product < 0) break;     // like importFromXML, an unknown product ends the purchases
+                packed.add(product, amount);
+            }
+            customer.items = null;
+            customer.packed = packed.trim();
+
+            xmlParser.findAndAcceptEndTag("customer");
+            return customer;
+        }
+        return null;
+    }
+
     /**
      * write a single customer with its purchases to the xml stream
      * @param xmlWriter
@@ -181,11 +295,148 @@ public class Customer {
         xmlWriter.writeStartElement("customer");
         xmlWriter.writeAttribute("queuedAt", this.queuedAt.toString().concat(":00").substring(0, 8));
         xmlWriter.writeAttribute("zipCode", this.zipCode);
-        if (this.items != null) {
-            for (Purchase pu : this.items) {
+        if (this.items != null || this.packed != null) {
+            for (Purchase pu : this.getItems()) {
                 pu.exportToXML(xmlWriter);
             }
         }
         xmlWriter.writeEndElement();
     }
+
+    /**
+     * the products of a lazily imported dataset, indexed by their position in order of code
+     */
+    private static class ProductCatalog {
+        private final Product[] products;
+        private final Map<String, Integer> indexes;
+
+        ProductCatalog(Set<Product> products) {
+            this.products = (products != null ? products.toArray(new Product[0]) : new Product[0]);
+            Arrays.sort(this.products);
+            this.indexes = new HashMap<>(2 * this.products.length);
+            for (int i = 0; i < this.products.length; i++) {
+                this.indexes.put(this.products[i].getCode(), i);
+            }
+        }
+
+        /**
+         * @return the index of the product with the given code, or -1 for an unknown product
+         */
+        int indexOf(String code) {
+            Integer index = indexes.get(code);
+            return (index != null ? index : -1);
+        }
+    }
+
+    /**
+     * the purchases of a lazily imported customer as pairs of product index and amount in a single array
+     * the purchases are decoded into a PurchaseSet once, which is shared by all copies of the customer
+     */
+    private static class PackedPurchases {
+        private final ProductCatalog catalog;
+        private int[] purchases = new int[8];   // product index and amount of each purchase
+        private int size;                       // number of used entries of the array
+        private int numberOfItems;
+        private PurchaseSet decoded;
+
+        PackedPurchases(ProductCatalog catalog) {
+            this.catalog = catalog;
+        }
+
+        void add(int product, int amount) {
+            if (size + 2 > purchases.length) {
+                purchases = Arrays.copyOf(purchases, 2 * purchases.length);
+            }
+            purchases[size++] = product;
+            purchases[size++] = amount;
+            numberOfItems += amount;
+        }
+
+        PackedPurchases trim() {
+            purchases = Arrays.copyOf(purchases, size);
+            return this;
+        }
+
+        double calculateTotalBill() {
+            double totalBill = 0.0;
+            for (int i = 0; i < size; i += 2) {
+                totalBill += purchases[i + 1] * catalog.products[purchases[i]].getPrice();
+            }
+            return totalBill;
+        }
+
+        void forEachPurchase(ObjIntConsumer<Product> action) {
+            for (int i = 0; i < size; i += 2) {
+                action.accept(catalog.products[purchases[i]], purchases[i + 1]);
+            }
+        }
+
+        synchronized PurchaseSet decode() {
+            if (decoded == null) {
+                decoded = new PurchaseSet();
+                for (int i = 0; i < size; i += 2) {
+                    decoded.add(new Purchase(catalog.products[purchases[i]], purchases[i + 1]));
+                }
+            }
+            return decoded;
+        }
+    }
+
+    /**
+     * a set of purchases that keeps track of the total number of items being bought
+     * purchases are iterated in the order they have been added, such that exports are reproducible
+     */
+    private static class PurchaseSet extends LinkedHashSet<Purchase> {
+        private static final long serialVersionUID = 1L;
+
+        private int numberOfItems;
+
+        @Override
+        public boolean add(Purchase purchase) {
+            if (super.add(purchase)) {
+                numberOfItems += purchase.getAmount();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (super.remove(o)) {
+                numberOfItems -= ((Purchase) o).getAmount();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            numberOfItems = 0;
+        }
+
+        @Override
+        public Iterator<Purchase> iterator() {
+            Iterator<Purchase> iterator = super.iterator();
+            return new Iterator<>() {
+                private Purchase last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Purchase next() {
+                    return last = iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    numberOfItems -= last.getAmount();
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,245 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * generates reproducible random customers for a given set of products
+ * customers are generated in fixed-size blocks, each block drawing from its own split of a seeded
+ * SplittableRandom, such that the blocks can be generated in parallel and the outcome for a given seed
+ * does not depend on the number of threads being used
+ */
+public class CustomerGenerator {
+    static final int BLOCK_SIZE = 4096;
+
+    private final Product[] products;       // the products to choose from, in order of product code
+    private final LocalTime openTime;       // earliest arrival time of a customer
+    private final int maxArrivalSeconds;    // arrival interval in seconds after openTime
+    private final int averageNrItems;       // the average number of items bought by a customer
+    private final long seed;                // the seed that determines all generated customers
+
+    /**
+     * prepares a generator of customers with a random number of items between 1 and 4 * averageNrItems.
+     * the distribution ensures that on average each customer buys averageNrItems
+     * arrival times are chosen well in advance of closingTime of the supermarket,
+     * such that cashiers can be expected to be able to finish all work
+     * (unless an extreme workload has been configured)
+     * @param products
+     * @param openTime
+     * @param closingTime
+     * @param averageNrItems
+     * @param seed
+     */
+    public CustomerGenerator(Collection<Product> products, LocalTime openTime, LocalTime closingTime,
+                             int averageNrItems, long seed) {
+        this.products = products.toArray(new Product[0]);
+        Arrays.sort(this.products);
+        this.openTime = openTime;
+        // compute an arrival interval range of at least 60 seconds that ends one minute before closing time if possible
+        this.maxArrivalSeconds = Math.max(60, closingTime.toSecondOfDay() - openTime.toSecondOfDay() - 60);
+        this.averageNrItems = averageNrItems;
+        this.seed = seed;
+    }
+
+    /**
+     * generates nCustomers random customers using the given number of threads
+     * @param nCustomers
+     * @param parallelism
+     * @return
+     */
+    public List<Customer> generate(int nCustomers, int parallelism) {
+        List<Customer> customers = new ArrayList<>(nCustomers);
+        Iterator<Customer> iterator = iterator(nCustomers, parallelism);
+        while (iterator.hasNext()) {
+            customers.add(iterator.next());
+        }
+        return customers;
+    }
+
+    /**
+     * provides nCustomers random customers, which are generated on demand by the given number of threads
+     * only a few blocks of customers are generated ahead of the consumer,
+     * such that the customers can be written to a file without holding all of them in memory
+     * @param nCustomers
+     * @param parallelism
+     * @return
+     */
+    public Iterator<Customer> iterator(int nCustomers, int parallelism) {
+        return new BlockIterator(nCustomers, Math.max(1, parallelism), false);
+    }
+
+    /**
+     * provides nCustomers random customers in order of their arrival time,
+     * which are generated on demand by the given number of threads
+     * the arrival times are drawn as a running sequence of sorted uniform random times,
+     * such that an arbitrary number of customers can be streamed to a file without sorting them in memory
+     * @param nCustomers
+     * @param parallelism
+     * @return
+     */
+    public Iterator<Customer> arrivalOrderedIterator(int nCustomers, int parallelism) {
+        return new BlockIterator(nCustomers, Math.max(1, parallelism), true);
+    }
+
+    /**
+     * generates a single block of customers with the given random source
+     * @param random
+     * @param nCustomers
+     * @param arrivalSeconds    the arrival times of the customers in seconds after openTime,
+     *                          or null to draw random arrival times
+     * @return
+     */
+    private Customer[] generateBlock(SplittableRandom random, int nCustomers, int[] arrivalSeconds) {
+        // each block randomly permutes its own copy of the products
+        Product[] prods = this.products.clone();
+        Customer[] block = new Customer[nCustomers];
+
+        for (int i = 0; i < nCustomers; i++) {
+            // create a random customer with random arrival time and zip code
+            int arrivalSecond = (arrivalSeconds != null ? arrivalSeconds[i] : random.nextInt(this.maxArrivalSeconds));
+            Customer c = new Customer(this.openTime.plusSeconds(arrivalSecond), generateRandomZIPCode(random));
+
+            // select a random number of bought items
+            int remainingNumberOfItems = selectRandomNrItems(random, this.averageNrItems);
+
+            // build a random distribution of these items across available products
+            int upper = prods.length;
+            while (remainingNumberOfItems > 0 && upper > 0) {
+                int count = 1 + random.nextInt(remainingNumberOfItems);
+                // pick a random product that has not been used yet by this customer
+                int pIdx = random.nextInt(upper);
+                c.getItems().add(new Purchase(prods[pIdx], count));
+                remainingNumberOfItems -= count;
+                // move the product out of the range of available products for this customer
+                upper--;
+                Product pt = prods[upper];
+                prods[upper] = prods[pIdx];
+                prods[pIdx] = pt;
+            }
+
+            block[i] = c;
+        }
+        return block;
+    }
+
+    /**
+     * draws the next block of sorted arrival times
+     * each next arrival is the minimum of the remaining customers' uniform arrival times
+     * after the previous arrival
+     * @param random
+     * @param arrivalSeconds    receives the arrival times in seconds after openTime
+     * @param remainingCustomers    the number of customers that still need an arrival time
+     * @param previousArrival   the previous arrival as a fraction of the arrival interval
+     * @return the last arrival as a fraction of the arrival interval
+     */
+    private double drawSortedArrivals(SplittableRandom random, int[] arrivalSeconds,
+                                      int remainingCustomers, double previousArrival) {
+        double arrival = previousArrival;
+        for (int i = 0; i < arrivalSeconds.length; i++) {
+            arrival += (1.0 - arrival) * (1.0 - Math.pow(random.nextDouble(), 1.0 / (remainingCustomers - i)));
+            arrivalSeconds[i] = Math.min(this.maxArrivalSeconds - 1, (int) (arrival * this.maxArrivalSeconds));
+        }
+        return arrival;
+    }
+
+    static int selectRandomNrItems(SplittableRandom random, int averageNrItems) {
+        return 1 + (int) ((4 * averageNrItems - 1) * random.nextDouble() * random.nextDouble());
+    }
+
+    static String generateRandomZIPCode(SplittableRandom random) {
+        int randomDigit = random.nextInt(5);
+        int randomChar1 = random.nextInt(2);
+        int randomChar2 = random.nextInt(2);
+        return String.valueOf(1013 + randomDigit) +
+                (char) (randomDigit + 9 * randomChar1 + randomChar2 + 'A') +
+                (char) (randomDigit + 3 * randomChar1 + 7 * randomChar2 + 'D');
+    }
+
+    /**
+     * iterates the generated customers block by block, in block order,
+     * while a bounded number of subsequent blocks is being generated in the background
+     */
+    private class BlockIterator implements Iterator<Customer> {
+        private final int nCustomers;
+        private final SplittableRandom blockRandoms;
+        private final SplittableRandom arrivalRandom;   // source of sorted arrivals, or null for random arrivals
+        private double lastArrival = 0.0;
+        private final ExecutorService executor;
+        private final Deque<Future<Customer[]>> pendingBlocks = new ArrayDeque<>();
+        private final int maxPendingBlocks;
+        private int submittedCustomers = 0;
+        private Customer[] currentBlock = new Customer[0];
+        private int nextInBlock = 0;
+
+        BlockIterator(int nCustomers, int parallelism, boolean arrivalOrdered) {
+            this.nCustomers = nCustomers;
+            this.blockRandoms = new SplittableRandom(seed);
+            this.arrivalRandom = (arrivalOrdered ? this.blockRandoms.split() : null);
+            this.maxPendingBlocks = 2 * parallelism;
+            this.executor = (parallelism > 1 ? Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "customer-generator");
+                thread.setDaemon(true);
+                return thread;
+            }) : null);
+            submitBlocks();
+        }
+
+        private void submitBlocks() {
+            while (this.submittedCustomers < this.nCustomers && this.pendingBlocks.size() < this.maxPendingBlocks) {
+                // the random source of each block is split off in block order, independent of the threads
+                SplittableRandom random = this.blockRandoms.split();
+                int blockSize = Math.min(BLOCK_SIZE, this.nCustomers - this.submittedCustomers);
+                int[] arrivals = null;
+                if (this.arrivalRandom != null) {
+                    // sorted arrivals depend on their predecessors and are drawn in sequence
+                    arrivals = new int[blockSize];
+                    this.lastArrival = drawSortedArrivals(this.arrivalRandom, arrivals,
+                            this.nCustomers - this.submittedCustomers, this.lastArrival);
+                }
+                int[] blockArrivals = arrivals;
+                if (this.executor != null) {
+                    this.pendingBlocks.add(this.executor.submit(() -> generateBlock(random, blockSize, blockArrivals)));
+                } else {
+                    this.pendingBlocks.add(CompletableFuture.completedFuture(generateBlock(random, blockSize, blockArrivals)));
+                }
+                this.submittedCustomers += blockSize;
+            }
+            if (this.submittedCustomers >= this.nCustomers && this.executor != null) {
+                this.executor.shutdown();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.nextInBlock < this.currentBlock.length) {
+                return true;
+            }
+            if (this.pendingBlocks.isEmpty()) {
+                return false;
+            }
+            try {
+                this.currentBlock = this.pendingBlocks.poll().get();
+            } catch (InterruptedException | ExecutionException ex) {
+                if (this.executor != null) {
+                    this.executor.shutdownNow();
+                }
+                throw new IllegalStateException("Customer generation failed", ex);
+            }
+            this.nextInBlock = 0;
+            submitBlocks();
+            return this.currentBlock.length > 0;
+        }
+
+        @Override
+        public Customer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.currentBlock[this.nextInBlock++];
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * answers aggregates of the customers over any range of arrival times without scanning the customers,
+ * e.g. the revenue between 12:00 and 12:15 or the average waiting time per half hour
+ * the index is built once over the customers in order of arrival and holds prefix sums of the revenue,
+ * the number of items and the waiting times, overall and per zip code
+ * overall ranges are located via a table with the first customer of every second: O(1) per query
+ * ranges of a single zip code are located by binary search: O(log N) per query
+ * waiting times are those of the last simulation before the index was built
+ */
+public class CustomerIndex {
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * the aggregates of the customers that arrived within a range of time
+     */
+    public static class Aggregate {
+        private final int from, to;         // range of arrival times in seconds of the day, to is exclusive
+        private final int nCustomers;
+        private final long nItems;
+        private final double revenue;
+        private final int nCheckedOut;      // customers that have not abandoned
+        private final long totalWaitingTime;
+
+        Aggregate(int from, int to, int nCustomers, long nItems, double revenue, int nCheckedOut, long totalWaitingTime) {
+            this.from = from;
+            this.to = to;
+            this.nCustomers = nCustomers;
+            this.nItems = nItems;
+            this.revenue = revenue;
+            this.nCheckedOut = nCheckedOut;
+            this.totalWaitingTime = totalWaitingTime;
+        }
+
+        public LocalTime getFrom() {
+            return LocalTime.ofSecondOfDay(from);
+        }
+
+        public int getNumberOfCustomers() {
+            return nCustomers;
+        }
+
+        public long getNumberOfItems() {
+            return nItems;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+
+        public long getTotalWaitingTime() {
+            return totalWaitingTime;
+        }
+
+        /**
+         * @return the average waiting time of the customers that have checked out
+         */
+        public double getAverageWaitingTime() {
+            return (nCheckedOut > 0 ? totalWaitingTime / (double) nCheckedOut : 0.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s-%s n=%d items=%d revenue=%.2f avg-wait=%.2f",
+                    LocalTime.ofSecondOfDay(from), LocalTime.ofSecondOfDay(Math.min(to, SECONDS_PER_DAY - 1)),
+                    nCustomers, nItems, revenue, getAverageWaitingTime());
+        }
+    }
+
+    /**
+     * customers in order of arrival, with prefix sums over the first i customers at index i
+     */
+    private static class Series {
+        final int[] arrivals;
+        final double[] revenue;
+        final long[] items;
+        final int[] checkedOut;
+        final long[] waitingTime;
+
+        Series(List<Customer> customers) {
+            int n = customers.size();
+            arrivals = new int[n];
+            revenue = new double[n + 1];
+            items = new long[n + 1];
+            checkedOut = new int[n + 1];
+            waitingTime = new long[n + 1];
+            for (int i = 0; i < n; i++) {
+                Customer customer = customers.get(i);
+                arrivals[i] = customer.getQueuedAt().toSecondOfDay();
+                revenue[i + 1] = revenue[i] + customer.calculateTotalBill();
+                items[i + 1] = items[i] + customer.getNumberOfItems();
+                boolean abandoned = customer.isAbandoned();
+                checkedOut[i + 1] = checkedOut[i] + (abandoned ? 0 : 1);
+                waitingTime[i + 1] = waitingTime[i] + (abandoned ? 0 : customer.getActualWaitingTime());
+            }
+        }
+
+        /**
+         * @param second
+         * @return the position of the first customer that arrives at or after the given second
+         */
+        int lowerBound(int second) {
+            int low = 0, high = arrivals.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (arrivals[middle] < second) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        Aggregate aggregate(int from, int to, int first, int last) {
+            return new Aggregate(from, to, last - first, items[last] - items[first], revenue[last] - revenue[first],
+                    checkedOut[last] - checkedOut[first], waitingTime[last] - waitingTime[first]);
+        }
+    }
+
+    private final Series customers;
+    private final int firstSecond;          // arrival of the first customer
+    private final int[] firstAtSecond;      // position of the first customer arriving at or after firstSecond + s
+    private final Map<String, Series> zipCodes = new TreeMap<>();
+
+    /**
+     * builds the index over the customers of the supermarket
+     * @param supermarket
+     */
+    public CustomerIndex(Supermarket supermarket) {
+        List<Customer> inOrder = supermarket.getCustomersInArrivalOrder();
+        this.customers = new Series(inOrder);
+
+        int[] arrivals = customers.arrivals;
+        this.firstSecond = (arrivals.length > 0 ? arrivals[0] : 0);
+        int lastSecond = (arrivals.length > 0 ? arrivals[arrivals.length - 1] : 0);
+        this.firstAtSecond = new int[lastSecond - firstSecond + 2];
+        for (int s = 0, i = 0; s < firstAtSecond.length; s++) {
+            while (i < arrivals.length && arrivals[i] < firstSecond + s) i++;
+            firstAtSecond[s] = i;
+        }
+
+        Map<String, List<Customer>> byZipCode = new HashMap<>();
+        for (Customer customer : inOrder) {
+            byZipCode.computeIfAbsent(customer.getZipCode(), zip -> new ArrayList<>()).add(customer);
+        }
+        for (Map.Entry<String, List<Customer>> zip : byZipCode.entrySet()) {
+            zipCodes.put(zip.getKey(), new Series(zip.getValue()));
+        }
+    }
+
+    private int firstAt(int second) {
+        if (second <= firstSecond) return 0;
+        int s = second - firstSecond;
+        return (s < firstAtSecond.length ? firstAtSecond[s] : customers.arrivals.length);
+    }
+
+    /**
+     * aggregates all customers that arrived in the given range of time
+     * @param from
+     * @param to    exclusive; see aggregateThrough to include a customer arriving at LocalTime.MAX
+     * @return
+     */
+    public Aggregate aggregate(LocalTime from, LocalTime to) {
+        return aggregate(from.toSecondOfDay(), to.toSecondOfDay());
+    }
+
+    /**
+     * aggregates all customers that arrived in the given range of time, including its last second
+     * @param from
+     * @param through   inclusive, e.g. LocalTime.MAX
+     * @return
+     */
+    public Aggregate aggregateThrough(LocalTime from, LocalTime through) {
+        return aggregate(from.toSecondOfDay(), through.toSecondOfDay() + 1);
+    }
+
+    /**
+     * @return the aggregate of all customers of the day
+     */
+    public Aggregate aggregateDay() {
+        return aggregate(0, SECONDS_PER_DAY);
+    }
+
+    public Aggregate aggregate(int from, int to) {
+        return customers.aggregate(from, to, firstAt(from), Math.max(firstAt(from), firstAt(to)));
+    }
+
+    /**
+     * aggregates the customers of a zip code that arrived in the given range of time
+     * @param zipCode
+     * @param from
+     * @param to    exclusive
+     * @return
+     */
+    public Aggregate aggregate(String zipCode, LocalTime from, LocalTime to) {
+        return aggregate(zipCode, from.toSecondOfDay(), to.toSecondOfDay());
+    }
+
+    /**
+     * aggregates the customers of a zip code that arrived in the given range of time, including its last second
+     * @param zipCode
+     * @param from
+     * @param through   inclusive, e.g. LocalTime.MAX
+     * @return
+     */
+    public Aggregate aggregateThrough(String zipCode, LocalTime from, LocalTime through) {
+        return aggregate(zipCode, from.toSecondOfDay(), through.toSecondOfDay() + 1);
+    }
+
+    public Aggregate aggregate(String zipCode, int from, int to) {
+        Series series = zipCodes.get(zipCode);
+        if (series == null) return new Aggregate(from, to, 0, 0, 0.0, 0, 0);
+        int first = series.lowerBound(from);
+        return series.aggregate(from, to, first, Math.max(first, series.lowerBound(to)));
+    }
+
+    /**
+     * aggregates the customers in the given range of time per zip code
+     * @param from
+     * @param to    exclusive
+     * @return the aggregates ordered by zip code
+     */
+    public Map<String, Aggregate> aggregateByZipCode(LocalTime from, LocalTime to) {
+        return aggregateByZipCode(from.toSecondOfDay(), to.toSecondOfDay());
+    }
+
+    /**
+     * aggregates all customers of the day per zip code
+     * @return the aggregates ordered by zip code
+     */
+    public Map<String, Aggregate> aggregateByZipCode() {
+        return aggregateByZipCode(0, SECONDS_PER_DAY);
+    }
+
+    private Map<String, Aggregate> aggregateByZipCode(int from, int to) {
+        Map<String, Aggregate> aggregates = new TreeMap<>();
+        for (String zipCode : zipCodes.keySet()) {
+            aggregates.put(zipCode, aggregate(zipCode, from, to));
+        }
+        return aggregates;
+    }
+
+    /**
+     * aggregates the customers per consecutive bucket of time, e.g. per half hour
+     * @param from
+     * @param to            exclusive
+     * @param bucketSeconds
+     * @return an aggregate per bucket, also for buckets without customers
+     */
+    public List<Aggregate> aggregatePerBucket(LocalTime from, LocalTime to, int bucketSeconds) {
+        if (bucketSeconds <= 0) {
+            throw new IllegalArgumentException("Bucket length must be positive: " + bucketSeconds);
+        }
+        List<Aggregate> buckets = new ArrayList<>();
+        for (int start = from.toSecondOfDay(); start < to.toSecondOfDay(); start += bucketSeconds) {
+            buckets.add(aggregate(start, Math.min(start + bucketSeconds, to.toSecondOfDay())));
+        }
+        return buckets;
+    }
+
+    public int getNumberOfCustomers() {
+        return customers.arrivals.length;
+    }
+
+    /**
+     * prints the aggregates per bucket of time over the given range
+     * @param from
+     * @param to
+     * @param bucketSeconds
+     * @param out
+     */
+    public void print(LocalTime from, LocalTime to, int bucketSeconds, PrintStream out) {
+        out.println("From:\t\tn-customers:\tn-items:\trevenue:\tavg-wait-time:");
+        for (Aggregate bucket : aggregatePerBucket(from, to, bucketSeconds)) {
+            out.printf(Locale.US, "%s\t%4d\t\t%5d\t\t%8.2f\t%6.2f%n", bucket.getFrom(), bucket.nCustomers,
+                    bucket.nItems, bucket.revenue, bucket.getAverageWaitingTime());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * keeps recently used parsed datasets in memory, least recently used first out
+ * datasets are keyed by their path and modification time, such that a changed file is parsed again
+ * the size of the cache is bounded by the total number of customers of the cached datasets
+ * concurrent requests for the same dataset wait for a single parse
+ * cached supermarkets are shared: simulate a copyForSimulation of them
+ */
+public class DatasetCache {
+
+    private static final class Key {
+        final String path;
+        final long modified;    // modification time of a file, 0 for a class path resource
+
+        Key(String path, long modified) {
+            this.path = path;
+            this.modified = modified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return modified == key.modified && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, modified);
+        }
+    }
+
+    private final int maxCustomers;     // total number of customers of all cached datasets
+    private final LinkedHashMap<Key, CompletableFuture<Supermarket>> datasets = new LinkedHashMap<>(16, 0.75f, true);
+    private int nCustomers;
+    private long hits, misses;
+
+    public DatasetCache(int maxCustomers) {
+        this.maxCustomers = maxCustomers;
+    }
+
+    /**
+     * provides a parsed dataset from the cache, or parses it
+     * @param dataset   a resource on the class path or a file
+     * @return the shared supermarket of the dataset
+     * @throws IllegalArgumentException if the dataset cannot be loaded
+     */
+    public Supermarket get(String dataset) {
+        Key key = keyOf(dataset);
+        CompletableFuture<Supermarket> entry;
+        boolean loading = false;
+        synchronized (this) {
+            entry = datasets.get(key);
+            if (entry == null) {
+                entry = new CompletableFuture<>();
+                datasets.put(key, entry);
+                loading = true;
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+
+        if (loading) {
+            // the entry is always completed, such that no request waits forever for a failed load
+            try {
+                Supermarket supermarket = Supermarket.importFromXML(dataset, true);
+                if (supermarket == null) {
+                    throw new IllegalArgumentException("Cannot load dataset " + dataset);
+                }
+                synchronized (this) {
+                    nCustomers += supermarket.getCustomers().size();
+                    evict(entry);
+                }
+                entry.complete(supermarket);
+            } catch (Throwable failure) {
+                synchronized (this) {
+                    datasets.remove(key, entry);
+                }
+                entry.completeExceptionally(failure);
+            }
+        }
+
+        try {
+            return entry.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Loading " + dataset + " has been interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw (e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() :
+                    new IllegalStateException("Loading " + dataset + " failed", e.getCause()));
+        }
+    }
+
+    /**
+     * removes the least recently used datasets until the cache fits, except the one that has just been loaded
+     * datasets that are still being loaded do not count yet
+     * @param loaded
+     */
+    private void evict(CompletableFuture<Supermarket> loaded) {
+        Iterator<CompletableFuture<Supermarket>> lru = datasets.values().iterator();
+        while (nCustomers > maxCustomers && lru.hasNext()) {
+            CompletableFuture<Supermarket> entry = lru.next();
+            if (entry != loaded && entry.isDone()) {
+                nCustomers -= entry.join().getCustomers().size();
+                lru.remove();
+            }
+        }
+    }
+
+    private static Key keyOf(String dataset) {
+        if (DatasetCache.class.getClassLoader().getResource(dataset) != null) {
+            return new Key(dataset, 0L);
+        }
+        Path file = Paths.get(dataset);
+        try {
+            return new Key(file.toAbsolutePath().normalize().toString(), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot find dataset " + dataset, e);
+        }
+    }
+
+    public synchronized int size() {
+        return datasets.size();
+    }
+
+    public synchronized int getNumberOfCustomers() {
+        return nCustomers;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder description = new StringBuilder();
+        for (Map.Entry<Key, CompletableFuture<Supermarket>> entry : datasets.entrySet()) {
+            description.append(entry.getKey().path).append(entry.getValue().isDone() ? "\n" : " (loading)\n");
+        }
+        return description.toString();
+    }
+}
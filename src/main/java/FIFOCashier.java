@@ -1,26 +1,46 @@
-import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.function.UnaryOperator;
 
 public class FIFOCashier extends Cashier {
 
     protected int checkoutTimePerCustomer = 20;
     protected int checkoutTimePerItem = 2;
     protected int timeServicingCustomer = 0;
+    protected int servicingCheckOutTime = 0;    // expected check-out time of the customer being served
+    protected int queuedCheckOutTime = 0;       // total expected check-out time of all waiting customers
     protected Customer servicingCustomer;
 
     public FIFOCashier(String name) {
         super(name);
-        waitingQueue = new LinkedList<>();
+        waitingQueue = new ArrayDeque<>();
     }
 
     @Override
-    public void reStart(LocalTime currentTime) {
-        this.waitingQueue.clear();
-        this.currentTime = currentTime;
-        this.totalIdleTime = 0;
-        this.maxQueueLength = 0;
+    public void reStart(int currentTime) {
+        super.reStart(currentTime);
         this.timeServicingCustomer = 0;
+        this.servicingCheckOutTime = 0;
+        this.queuedCheckOutTime = 0;
+        this.servicingCustomer = null;
+    }
+
+    @Override
+    public FIFOCashier copy(UnaryOperator<Customer> customerMapping) {
+        FIFOCashier copy = (FIFOCashier) super.copy(customerMapping);
+        if (this.servicingCustomer != null) {
+            copy.servicingCustomer = customerMapping.apply(this.servicingCustomer);
+        }
+        return copy;
+    }
+
+    @Override
+    public void restoreFrom(Cashier snapshot, UnaryOperator<Customer> customerMapping) {
+        super.restoreFrom(snapshot, customerMapping);
+        FIFOCashier fifo = (FIFOCashier) snapshot;
+        this.timeServicingCustomer = fifo.timeServicingCustomer;
+        this.servicingCheckOutTime = fifo.servicingCheckOutTime;
+        this.queuedCheckOutTime = fifo.queuedCheckOutTime;
+        this.servicingCustomer = (fifo.servicingCustomer != null ? customerMapping.apply(fifo.servicingCustomer) : null);
     }
 
     @Override
@@ -28,13 +48,29 @@ public class FIFOCashier extends Cashier {
         if (customer.getNumberOfItems() > 0) {
             this.waitingQueue.add(customer);
             customer.setCheckOutCashier(this);
-            int currentQueueLength = this.waitingQueue.size() + (servicingCustomer == null ? 0 : 1);
+            this.queuedCheckOutTime += expectedCheckOutTime(customer.getNumberOfItems());
+            int currentQueueLength = getNumberOfWaitingCustomers() + (servicingCustomer == null ? 0 : 1);
             if (currentQueueLength > maxQueueLength) {
                 maxQueueLength = currentQueueLength;
             }
+            if (listener != null) {
+                listener.onArrival(this, customer, customer.getQueuedAt().toSecondOfDay(), currentQueueLength);
+            }
         }
     }
 
+    @Override
+    public boolean renege(Customer customer) {
+        if (customer == servicingCustomer || !super.renege(customer)) return false;
+        this.queuedCheckOutTime -= expectedCheckOutTime(customer.getNumberOfItems());
+        return true;
+    }
+
+    @Override
+    public String getLaneType() {
+        return "FIFO";
+    }
+
     /**
      * calculate the expected nett checkout time of a customer with a given number of items
      * this may be different for different types of Cashiers
@@ -64,10 +100,17 @@ public class FIFOCashier extends Cashier {
         int totalWaitTime = 0;
 
         if (servicingCustomer != null){
-            totalWaitTime += expectedCheckOutTime(servicingCustomer.getNumberOfItems()) - timeServicingCustomer;
+            totalWaitTime += servicingCheckOutTime - timeServicingCustomer;
+        }
+
+        // a customer that has not joined this queue yet will wait for everybody in it
+        if (customer.getCheckOutCashier() != this) {
+            return totalWaitTime + queuedCheckOutTime;
         }
 
         for(Customer waitingCustomer : waitingQueue){
+            if (waitingCustomer.isAbandoned())
+                continue;
             if (!waitingCustomer.equals(customer))
                 totalWaitTime += expectedCheckOutTime(waitingCustomer.getNumberOfItems());
             else
@@ -84,37 +127,63 @@ public class FIFOCashier extends Cashier {
      * b) serving new customers that are waiting on the queue
      * c) sitting idle, taking a break until time has reached targetTime,
      *      after which new customers may arrive.
+     * time advances from event to event, i.e. straight to the end of the current check-out,
+     * the arrival of the next customer or the targetTime, whichever comes first
      * @param targetTime
      */
     @Override
-    public void doTheWorkUntil(LocalTime targetTime) {
-        while (currentTime.isBefore(targetTime)) {
-            if (waitingQueue.isEmpty() && servicingCustomer == null) {
-                setTotalIdleTime(getTotalIdleTime()+1);
-                this.setCurrentTime(currentTime.plusSeconds(1));
-                continue;
-            }
-            else if (!waitingQueue.isEmpty() && servicingCustomer == null && waitingQueue.peek().getQueuedAt().isAfter(currentTime)) {
-                setTotalIdleTime(getTotalIdleTime()+1);
-                this.setCurrentTime(currentTime.plusSeconds(1));
-                continue;
-            }
+    public void doTheWorkUntil(int targetTime) {
+        while (currentTime < targetTime) {
             if (servicingCustomer == null) {
-                servicingCustomer = waitingQueue.poll();
-                servicingCustomer.setActualWaitingTime((int) ChronoUnit.SECONDS.between(servicingCustomer.getQueuedAt(), currentTime));
+                Customer nextCustomer = peekWaitingCustomer();
+                if (nextCustomer == null && !open && staffed) {
+                    // a closing cashier leaves as soon as its queue has been handled
+                    staffed = false;
+                    closedAt = currentTime;
+                }
+                int idleUntil = (nextCustomer == null ? targetTime :
+                        Math.min(targetTime, nextCustomer.getQueuedAt().toSecondOfDay()));
+                if (idleUntil > currentTime) {
+                    if (staffed) {
+                        if (listener != null) {
+                            listener.onIdle(this, currentTime, idleUntil);
+                        }
+                        totalIdleTime += idleUntil - currentTime;
+                    }
+                    currentTime = idleUntil;
+                    continue;
+                }
+                startServicing();
             }
 
-            if (timeServicingCustomer < expectedCheckOutTime(servicingCustomer.getNumberOfItems())) {
-                timeServicingCustomer++; //servicingCustomer.setActualCheckOutTime(servicingCustomer.getActualCheckOutTime()+1);
-                this.setCurrentTime(currentTime.plusSeconds(1));
+            int remainingCheckOutTime = servicingCheckOutTime - timeServicingCustomer;
+            if (remainingCheckOutTime > 0) {
+                int workTime = Math.min(remainingCheckOutTime, targetTime - currentTime);
+                timeServicingCustomer += workTime;
+                currentTime += workTime;
             }
             else {
                 servicingCustomer.setActualCheckOutTime(timeServicingCustomer);
+                if (listener != null) {
+                    listener.onServiceEnd(this, servicingCustomer, currentTime);
+                }
                 timeServicingCustomer = 0;
                 servicingCustomer = null;
-//                maxQueueLength--;
-//                this.setCurrentTime(currentTime.plusSeconds(1));
             }
         }
     }
+
+    /**
+     * take the next customer from the waiting queue and start the check-out at the current time
+     */
+    protected void startServicing() {
+        peekWaitingCustomer();
+        servicingCustomer = waitingQueue.poll();
+        servicingCheckOutTime = expectedCheckOutTime(servicingCustomer.getNumberOfItems());
+        queuedCheckOutTime -= servicingCheckOutTime;
+        servicingCustomer.setActualWaitingTime(currentTime - servicingCustomer.getQueuedAt().toSecondOfDay());
+        if (listener != null) {
+            listener.onServiceStart(this, servicingCustomer, currentTime);
+        }
+    }
 }
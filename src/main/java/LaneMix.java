@@ -0,0 +1,282 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * describes a configuration of cashier lanes, such that fresh cashiers can be created for every simulation run
+ * a lane mix is written as a comma separated list of lanes, each being
+ *      FIFO            a FIFOCashier
+ *      PRIO:n          a PriorityCashier that gives priority to customers with at most n items
+ *      SHARED:c        a SharedQueueCashier with c stations at regular speed
+ *      SHARED:r1;r2..  a SharedQueueCashier with a station per service rate, e.g. SHARED:1.0;0.5
+ * optionally preceded by a count, e.g. "2xFIFO,PRIO:5"
+ * shared lanes need at least one station and positive rates; their canonical description is the one of
+ * SharedQueueCashier.getLaneType, e.g. SHARED:1.0;1.0 is written as SHARED:2 and SHARED:1;0.50 as SHARED:1.0;0.5
+ */
+public class LaneMix {
+
+    /**
+     * the configuration of a single lane of a mix
+     */
+    public static final class Lane {
+        public enum Type { FIFO, PRIO, SHARED }
+
+        private static final double[] REGULAR = {1.0};
+
+        private final String description;       // canonical description
+        private final Type type;
+        private final int maxNumPriorityItems;  // of a priority lane, 0 for other lanes
+        private final double[] serviceRates;    // relative speed per station, a single regular station if not shared
+
+        private Lane(String description, Type type, int maxNumPriorityItems, double[] serviceRates) {
+            this.description = description;
+            this.type = type;
+            this.maxNumPriorityItems = maxNumPriorityItems;
+            this.serviceRates = serviceRates;
+        }
+
+        /**
+         * @param description   a canonical lane description
+         * @return
+         */
+        static Lane of(String description) {
+            int colon = description.indexOf(':');
+            Type type = Type.valueOf(colon >= 0 ? description.substring(0, colon) : description);
+            switch (type) {
+                case FIFO:
+                    return new Lane(description, type, 0, REGULAR);
+                case PRIO:
+                    return new Lane(description, type, Integer.parseInt(description.substring(colon + 1)), REGULAR);
+                default:
+                    String stations = description.substring(colon + 1);
+                    double[] rates;
+                    if (stations.contains(".") || stations.contains(";")) {
+                        rates = Arrays.stream(stations.split(";")).mapToDouble(Double::parseDouble).toArray();
+                    } else {
+                        rates = new double[Integer.parseInt(stations)];
+                        Arrays.fill(rates, 1.0);
+                    }
+                    return new Lane(description, type, 0, rates);
+            }
+        }
+
+        /**
+         * @param name
+         * @return a new cashier of this lane
+         */
+        Cashier createCashier(String name) {
+            switch (type) {
+                case FIFO:
+                    return new FIFOCashier(name);
+                case PRIO:
+                    return new PriorityCashier(name, maxNumPriorityItems);
+                default:
+                    return new SharedQueueCashier(name, serviceRates);
+            }
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the maximum number of items of priority customers, 0 if the lane has no priorities
+         */
+        public int getMaxNumPriorityItems() {
+            return maxNumPriorityItems;
+        }
+
+        public int getNumberOfStations() {
+            return serviceRates.length;
+        }
+
+        /**
+         * @return the relative speed of each station, 1.0 being the speed of a regular cashier
+         */
+        public double[] getServiceRates() {
+            return serviceRates.clone();
+        }
+
+        /**
+         * @return the total speed of the stations, in regular cashiers
+         */
+        public double getCapacity() {
+            double capacity = 0.0;
+            for (double rate : serviceRates) {
+                capacity += rate;
+            }
+            return capacity;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final Lane[] lanes;         // in order
+
+    private LaneMix(Lane[] lanes) {
+        this.lanes = lanes;
+    }
+
+    /**
+     * parses a lane mix description
+     * @param description
+     * @return
+     * @throws IllegalArgumentException if the description contains an unknown lane type,
+     *          or a shared lane without stations or with a rate that is not positive
+     */
+    public static LaneMix parse(String description) {
+        List<Lane> lanes = new ArrayList<>();
+        for (String part : description.split(",")) {
+            String lane = part.trim().toUpperCase();
+            int count = 1;
+            int times = lane.indexOf('X');
+            if (times > 0 && Character.isDigit(lane.charAt(0))) {
+                count = Integer.parseInt(lane.substring(0, times));
+                lane = lane.substring(times + 1);
+            }
+            if (!lane.equals("FIFO") && !lane.matches("PRIO:\\d+") &&
+                    !lane.matches("SHARED:\\d+") && !lane.matches("SHARED:\\d+(\\.\\d+)?(;\\d+(\\.\\d+)?)*")) {
+                throw new IllegalArgumentException("Unknown lane '" + part + "' in lane mix '" + description + "'");
+            }
+            if (count <= 0) {
+                throw new IllegalArgumentException("Lane count must be positive in '" + part + "' of lane mix '" + description + "'");
+            }
+            if (lane.startsWith("SHARED:")) {
+                lane = canonicalSharedLane(lane.substring(7), part, description);
+            }
+            Lane parsed = Lane.of(lane);
+            for (int i = 0; i < count; i++) {
+                lanes.add(parsed);
+            }
+        }
+        return new LaneMix(lanes.toArray(new Lane[0]));
+    }
+
+    /**
+     * @param stations  the number of stations or their service rates
+     * @param part
+     * @param description
+     * @return the canonical description of a shared lane: the number of stations if they all work at regular speed
+     */
+    private static String canonicalSharedLane(String stations, String part, String description) {
+        if (!stations.contains(".") && !stations.contains(";")) {
+            if (Integer.parseInt(stations) <= 0) {
+                throw new IllegalArgumentException("No stations in '" + part + "' of lane mix '" + description + "'");
+            }
+            return "SHARED:" + Integer.parseInt(stations);
+        }
+        String[] rates = stations.split(";");
+        boolean regular = true;
+        StringBuilder canonical = new StringBuilder("SHARED:");
+        for (int i = 0; i < rates.length; i++) {
+            double rate = Double.parseDouble(rates[i]);
+            if (!(rate > 0.0)) {
+                throw new IllegalArgumentException("Service rates must be positive in '" + part + "' of lane mix '" + description + "'");
+            }
+            regular &= rate == 1.0;
+            canonical.append(i > 0 ? ";" : "").append(rate);
+        }
+        return (regular ? "SHARED:" + rates.length : canonical.toString());
+    }
+
+    /**
+     * creates a lane mix of the given numbers of FIFO and priority lanes
+     * @param nFifo
+     * @param nPriority
+     * @param maxNumPriorityItems
+     * @return
+     */
+    public static LaneMix of(int nFifo, int nPriority, int maxNumPriorityItems) {
+        Lane fifo = Lane.of("FIFO");
+        Lane priority = Lane.of("PRIO:" + maxNumPriorityItems);
+        Lane[] lanes = new Lane[nFifo + nPriority];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = (i < nFifo ? fifo : priority);
+        }
+        return new LaneMix(lanes);
+    }
+
+    /**
+     * creates a new set of cashiers according to the lane mix,
+     * named by their type and sequence number, e.g. FIFO-1, FIFO-2, PRIO-1, SHARED-1
+     * @return
+     */
+    public List<Cashier> createCashiers() {
+        List<Cashier> cashiers = new ArrayList<>(lanes.length);
+        Map<String, Integer> sequenceNumbers = new HashMap<>();
+        for (Lane lane : lanes) {
+            cashiers.add(lane.createCashier(lane.type.name() + "-" + sequenceNumbers.merge(lane.type.name(), 1, Integer::sum)));
+        }
+        return cashiers;
+    }
+
+    /**
+     * creates a cashier for a single canonical lane description,
+     * named by its type and the next sequence number of that type
+     * @param lane
+     * @param sequenceNumbers   the last used sequence number per type
+     * @return
+     */
+    static Cashier createCashier(String lane, Map<String, Integer> sequenceNumbers) {
+        Lane parsed = Lane.of(lane);
+        return parsed.createCashier(parsed.type.name() + "-" + sequenceNumbers.merge(parsed.type.name(), 1, Integer::sum));
+    }
+
+    /**
+     * creates a named cashier for a single canonical lane description
+     * @param lane
+     * @param name
+     * @return
+     */
+    static Cashier createCashier(String lane, String name) {
+        return Lane.of(lane).createCashier(name);
+    }
+
+    public int getNumberOfLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * @return the configuration of each lane, in order
+     */
+    public List<Lane> getLanes() {
+        return Collections.unmodifiableList(Arrays.asList(lanes));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        return toString().equals(o.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * @return the canonical description of the lane mix, which parses into an equal lane mix
+     */
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        for (Lane lane : lanes) {
+            description.append(description.length() > 0 ? "," : "").append(lane);
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,413 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.SLF4J;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * runs the cashier simulation alongside a real store, fed by a live stream of arrivals
+ * customers are pushed into a stepwise simulation one at a time, and are not kept by the supermarket:
+ * once checked out (or abandoned) their outcome is accounted in a ring of per-minute slots and the
+ * customer is garbage, so memory stays constant however long the simulation runs
+ * an event that is more than a few minutes before the simulation time, after closing time or more than
+ * half a day before, starts the next day: the previous day is finished with overtime and the cashiers
+ * restart at open time. other events before the simulation time have arrived too late and are rejected
+ *
+ * the stream has a line per event:
+ *      HH:mm[:ss] zipCode code:amount...   a customer arrives with its purchases
+ *      HH:mm[:ss]                          the clock advances, the cashiers work until that time
+ * blank lines and lines starting with # are ignored
+ *
+ * run with:  OnlineSimulation dataset laneMix source [windowMinutes]
+ *            the dataset provides the products and opening hours, source is a file to tail or a port number
+ * e.g.       OnlineSimulation jambi250_8.xml 2xFIFO,PRIO:5 pos-events.txt 15
+ */
+public class OnlineSimulation {
+    static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    static final int SLOT_SECONDS = 60;
+    static final int MAX_LATENESS = 5 * 60;     // events that are at most this late do not start a new day
+
+    private final Supermarket supermarket;
+    private final Map<String, Product> products = new HashMap<>();
+    private final Slot[] slots;             // ring of the most recent minutes, by slot index modulo its length
+    private final SimulationStatistics totals = new SimulationStatistics();
+    private int day;                        // number of days that have been finished
+    private long nEvents, nRejected;
+
+    /**
+     * the outcome of the customers of a single minute of stream time
+     */
+    private static class Slot {
+        long index = -1;                    // minute since the start of the stream, -1 if not used yet
+        SimulationStatistics statistics;
+        int nArrivals;
+        long offeredWork;                   // expected check-out time of the arrivals in seconds
+    }
+
+    /**
+     * accounts the events of the simulation in the slot of the minute in which they happen
+     */
+    private final SimulationListener recorder = new SimulationListener() {
+        @Override
+        public void onArrival(Cashier cashier, Customer customer, int time, int queueLength) {
+            Slot slot = slotAt(time);
+            slot.nArrivals++;
+            slot.offeredWork += cashier.expectedCheckOutTime(customer.getNumberOfItems());
+            slot.statistics.addQueueLength(queueLength);
+            totals.addQueueLength(queueLength);
+        }
+
+        @Override
+        public void onServiceEnd(Cashier cashier, Customer customer, int time) {
+            slotAt(time).statistics.addCustomer(customer.getActualWaitingTime(), customer.getActualCheckOutTime());
+            totals.addCustomer(customer.getActualWaitingTime(), customer.getActualCheckOutTime());
+        }
+
+        @Override
+        public void onAbandon(Cashier cashier, Customer customer, int time) {
+            slotAt(time).statistics.addAbandoned();
+            totals.addAbandoned();
+        }
+    };
+
+    /**
+     * starts the simulation of the configured cashiers at open time
+     * the simulation listener of the supermarket is replaced by the recorder of the online simulation
+     * @param supermarket       with products and cashiers, but without customers
+     * @param windowSeconds     length of the rolling window of the metrics
+     * @throws IllegalArgumentException if the supermarket has customers
+     */
+    public OnlineSimulation(Supermarket supermarket, int windowSeconds) {
+        if (!supermarket.getCustomers().isEmpty()) {
+            throw new IllegalArgumentException("An online simulation receives its customers from the stream");
+        }
+        this.supermarket = supermarket;
+        for (Product product : supermarket.getProducts()) {
+            this.products.put(product.getCode(), product);
+        }
+        this.slots = new Slot[Math.max(1, (windowSeconds + SLOT_SECONDS - 1) / SLOT_SECONDS)];
+        for (int s = 0; s < slots.length; s++) {
+            slots[s] = new Slot();
+        }
+        supermarket.setSimulationListener(recorder);
+        supermarket.startSimulation();
+    }
+
+    private Slot slotAt(int secondOfDay) {
+        long index = ((long) day * SECONDS_PER_DAY + secondOfDay) / SLOT_SECONDS;
+        Slot slot = slots[(int) (index % slots.length)];
+        if (slot.index != index) {
+            slot.index = index;
+            slot.statistics = new SimulationStatistics();
+            slot.nArrivals = 0;
+            slot.offeredWork = 0;
+        }
+        return slot;
+    }
+
+    /**
+     * pushes an arriving customer into the simulation
+     * @param customer
+     * @return false if the customer arrived before the simulation time and has been ignored
+     */
+    public synchronized boolean arrive(Customer customer) {
+        nEvents++;
+        if (!startsDay(customer.getQueuedAt().toSecondOfDay())) {
+            nRejected++;
+            return false;
+        }
+        supermarket.arrive(customer);
+        return true;
+    }
+
+    /**
+     * lets all cashiers work until the given time, without arrivals
+     * @param time
+     */
+    public synchronized void advanceTo(LocalTime time) {
+        nEvents++;
+        if (startsDay(time.toSecondOfDay())) {
+            supermarket.simulateUntil(time.toSecondOfDay());
+        }
+    }
+
+    /**
+     * finishes the current day if the given time lies before the simulation time, and either the store has closed
+     * or the time lies more than half a day before. other times before the simulation time are late events
+     * @param secondOfDay
+     * @return whether the simulation can proceed to the given time
+     */
+    private boolean startsDay(int secondOfDay) {
+        int simulationTime = supermarket.getSimulationTime();
+        if (secondOfDay >= simulationTime) return true;
+        if (simulationTime - secondOfDay <= MAX_LATENESS) return false;
+        if (simulationTime < supermarket.getClosingTime().toSecondOfDay() && simulationTime - secondOfDay < SECONDS_PER_DAY / 2) {
+            return false;
+        }
+
+        supermarket.finishSimulation();
+        day++;
+        supermarket.startSimulation();
+        return secondOfDay >= supermarket.getSimulationTime();
+    }
+
+    /**
+     * handles a single line of the event stream
+     * @param line
+     * @throws IllegalArgumentException if the line is not a valid event
+     */
+    public void accept(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields[0].isEmpty() || fields[0].startsWith("#")) return;
+        LocalTime time;
+        try {
+            time = LocalTime.parse(fields[0]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid time in event '" + line + "'", e);
+        }
+        if (fields.length == 1) {
+            advanceTo(time);
+            return;
+        }
+        Customer customer = new Customer(time, fields[1]);
+        for (int f = 2; f < fields.length; f++) {
+            int colon = fields[f].indexOf(':');
+            Product product = products.get(colon > 0 ? fields[f].substring(0, colon) : fields[f]);
+            if (product == null) {
+                throw new IllegalArgumentException("Unknown product in event '" + line + "'");
+            }
+            int amount = (colon > 0 ? Integer.parseInt(fields[f].substring(colon + 1)) : 1);
+            customer.getItems().add(new Purchase(product, amount));
+        }
+        arrive(customer);
+    }
+
+    /**
+     * handles all lines of a stream until its end, skipping invalid lines
+     * @param events
+     * @throws IOException
+     */
+    public void feed(Reader events) throws IOException {
+        BufferedReader lines = new BufferedReader(events);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            acceptOrSkip(line);
+        }
+    }
+
+    private void acceptOrSkip(String line) {
+        try {
+            accept(line);
+        } catch (IllegalArgumentException e) {
+            synchronized (this) {
+                nRejected++;
+            }
+            SLF4J.LOGGER.warn(e.getMessage());
+        }
+    }
+
+    /**
+     * follows a file that is being appended to, like tail -f, until the thread is interrupted
+     * a line is only handled once it has been completed by its line separator
+     * @param file
+     * @param pollMillis    pause after reaching the end of the file
+     * @throws IOException
+     */
+    public void tail(Path file, long pollMillis) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            // the bytes of the current line, decoded as a whole such that multi-byte characters stay intact
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            while (!Thread.currentThread().isInterrupted()) {
+                int n = in.read(buffer);
+                if (n <= 0) {
+                    try {
+                        Thread.sleep(pollMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    continue;
+                }
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        pending.write(buffer, start, i - start);
+                        acceptOrSkip(pending.toString(StandardCharsets.UTF_8));
+                        pending.reset();
+                        start = i + 1;
+                    }
+                }
+                pending.write(buffer, start, n - start);
+            }
+        }
+    }
+
+    /**
+     * handles the events of the connections to a socket, one connection at a time, until the socket is closed
+     * @param server
+     */
+    public void serve(ServerSocket server) {
+        while (!server.isClosed()) {
+            try (Socket connection = server.accept()) {
+                feed(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    SLF4J.LOGGER.warn("Event connection failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of the customers that have been checked out or abandoned within the window
+     */
+    public synchronized SimulationStatistics getWindowStatistics() {
+        SimulationStatistics statistics = new SimulationStatistics();
+        long now = currentSlot();
+        for (Slot slot : slots) {
+            if (slot.index > now - slots.length && slot.index <= now) {
+                statistics.merge(slot.statistics);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of all customers since the start of the stream
+     */
+    public synchronized SimulationStatistics getTotalStatistics() {
+        SimulationStatistics statistics = new SimulationStatistics();
+        statistics.merge(totals);
+        return statistics;
+    }
+
+    /**
+     * @return the number of arrivals per second within the window
+     */
+    public synchronized double getArrivalRate() {
+        long now = currentSlot();
+        long nArrivals = 0;
+        for (Slot slot : slots) {
+            if (slot.index > now - slots.length && slot.index <= now) {
+                nArrivals += slot.nArrivals;
+            }
+        }
+        return nArrivals / (double) (slots.length * SLOT_SECONDS);
+    }
+
+    /**
+     * @return the expected waiting time of a customer that arrives now at the cashier with the shortest wait
+     */
+    public synchronized int getExpectedWaitingTime() {
+        Customer probe = new Customer(LocalTime.ofSecondOfDay(supermarket.getSimulationTime() % SECONDS_PER_DAY), "");
+        int wait = Integer.MAX_VALUE;
+        for (Cashier cashier : supermarket.getCashiers()) {
+            if (cashier.isOpen()) {
+                wait = Math.min(wait, cashier.expectedWaitingTime(probe));
+            }
+        }
+        return (wait == Integer.MAX_VALUE ? 0 : wait);
+    }
+
+    /**
+     * predicts the waiting time of an arrival after the given horizon, by continuing the current
+     * queue with the check-out work that has been offered within the window (fluid approximation)
+     * @param horizonSeconds
+     * @return
+     */
+    public synchronized int predictWaitingTime(int horizonSeconds) {
+        long now = currentSlot();
+        long offeredWork = 0;
+        for (Slot slot : slots) {
+            if (slot.index > now - slots.length && slot.index <= now) {
+                offeredWork += slot.offeredWork;
+            }
+        }
+        int nStations = 0;
+        for (Cashier cashier : supermarket.getCashiers()) {
+            if (cashier.isOpen()) {
+                nStations += (cashier instanceof SharedQueueCashier ? ((SharedQueueCashier) cashier).getNumberOfStations() : 1);
+            }
+        }
+        if (nStations == 0) return Integer.MAX_VALUE;
+        double utilisation = offeredWork / (double) (slots.length * SLOT_SECONDS) / nStations;
+        return (int) Math.max(0, Math.round(getExpectedWaitingTime() + (utilisation - 1.0) * horizonSeconds));
+    }
+
+    private long currentSlot() {
+        return ((long) day * SECONDS_PER_DAY + supermarket.getSimulationTime()) / SLOT_SECONDS;
+    }
+
+    public synchronized long getNumberOfEvents() {
+        return nEvents;
+    }
+
+    /**
+     * @return the number of events that were invalid or arrived too late
+     */
+    public synchronized long getNumberOfRejectedEvents() {
+        return nRejected;
+    }
+
+    public synchronized int getNumberOfDays() {
+        return day;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%s day=%d events=%d rejected=%d window: %s arrivals/min=%.1f wait-now=%d wait+15min=%d",
+                LocalTime.ofSecondOfDay(supermarket.getSimulationTime() % SECONDS_PER_DAY), day, nEvents, nRejected,
+                getWindowStatistics(), getArrivalRate() * 60, getExpectedWaitingTime(), predictWaitingTime(15 * 60));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String dataset = (args.length > 0 ? args[0] : "jambi250_8.xml");
+        LaneMix laneMix = LaneMix.parse(args.length > 1 ? args[1] : "2xFIFO");
+        String source = (args.length > 2 ? args[2] : "9090");
+        int windowMinutes = (args.length > 3 ? Integer.parseInt(args[3]) : 15);
+
+        Supermarket supermarket = Supermarket.importFromXML(dataset, true);
+        if (supermarket == null) return;
+        supermarket.getCustomers().clear();
+        supermarket.getCashiers().addAll(laneMix.createCashiers());
+        OnlineSimulation simulation = new OnlineSimulation(supermarket, windowMinutes * 60);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> SLF4J.LOGGER.info(simulation.toString()), 10, 60, TimeUnit.SECONDS);
+
+        if (source.matches("\\d+")) {
+            try (ServerSocket server = new ServerSocket(Integer.parseInt(source), 50, InetAddress.getLoopbackAddress())) {
+                SLF4J.LOGGER.info("Receiving events on localhost:" + server.getLocalPort());
+                simulation.serve(server);
+            }
+        } else {
+            simulation.tail(Paths.get(source), 200);
+        }
+    }
+}
@@ -1,21 +1,67 @@
-import java.time.LocalTime;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.function.UnaryOperator;
 
 public class PriorityCashier extends FIFOCashier {
 
     private int maxNumPriorityItems;
+    protected int queuedPriorityCheckOutTime = 0;   // total expected check-out time of waiting priority customers
     //private Customer servicingCustomer;
 
     public PriorityCashier(String name, int maxNumPriorityItems) {
         super(name);
         this.maxNumPriorityItems = maxNumPriorityItems;
-        waitingQueue = new PriorityQueue<>((o1, o2) -> {
-            if (o1.getNumberOfItems() <= maxNumPriorityItems && o2.getNumberOfItems() > maxNumPriorityItems) {
-                return -1;
-            }
-            return 0;
-        });
+        waitingQueue = new PriorityLaneQueue(maxNumPriorityItems);
+    }
+
+    @Override
+    protected Queue<Customer> newWaitingQueue() {
+        return new PriorityLaneQueue(maxNumPriorityItems);
+    }
+
+    @Override
+    public String getLaneType() {
+        return "PRIO:" + maxNumPriorityItems;
+    }
+
+    @Override
+    public void reStart(int currentTime) {
+        super.reStart(currentTime);
+        this.queuedPriorityCheckOutTime = 0;
+    }
+
+    @Override
+    public void restoreFrom(Cashier snapshot, UnaryOperator<Customer> customerMapping) {
+        super.restoreFrom(snapshot, customerMapping);
+        this.queuedPriorityCheckOutTime = ((PriorityCashier) snapshot).queuedPriorityCheckOutTime;
+    }
+
+    @Override
+    public void add(Customer customer) {
+        super.add(customer);
+        if (customer.getNumberOfItems() > 0 && customer.getNumberOfItems() <= maxNumPriorityItems) {
+            queuedPriorityCheckOutTime += expectedCheckOutTime(customer.getNumberOfItems());
+        }
+    }
+
+    @Override
+    public boolean renege(Customer customer) {
+        if (!super.renege(customer)) return false;
+        if (customer.getNumberOfItems() <= maxNumPriorityItems) {
+            queuedPriorityCheckOutTime -= expectedCheckOutTime(customer.getNumberOfItems());
+        }
+        return true;
+    }
+
+    @Override
+    protected void startServicing() {
+        super.startServicing();
+        if (servicingCustomer.getNumberOfItems() <= maxNumPriorityItems) {
+            queuedPriorityCheckOutTime -= servicingCheckOutTime;
+        }
     }
 
 //    @Override
@@ -57,10 +103,17 @@ public class PriorityCashier extends FIFOCashier {
         boolean priorityCustomer = customer.getNumberOfItems() <= maxNumPriorityItems;
 
         if (servicingCustomer != null){
-            totalWaitTime += expectedCheckOutTime(servicingCustomer.getNumberOfItems()) - timeServicingCustomer;//;servicingCustomer.getActualCheckOutTime();
+            totalWaitTime += servicingCheckOutTime - timeServicingCustomer;//;servicingCustomer.getActualCheckOutTime();
+        }
+
+        // a customer that has not joined this queue yet will wait for everybody in front of his class
+        if (customer.getCheckOutCashier() != this) {
+            return totalWaitTime + (priorityCustomer ? queuedPriorityCheckOutTime : queuedCheckOutTime);
         }
 
         for(Customer waitingCustomer : waitingQueue){
+            if (waitingCustomer.isAbandoned())
+                continue;
             if (!waitingCustomer.equals(customer)) {
                 if (priorityCustomer && waitingCustomer.getNumberOfItems() > maxNumPriorityItems)
                     break;
@@ -105,4 +158,86 @@ public class PriorityCashier extends FIFOCashier {
 //            }
 //        }
 //    }
+
+    /**
+     * the waiting queue of a priority cashier:
+     * customers with at most maxNumPriorityItems are served first, each class in order of arrival
+     * both classes are kept in their own FIFO queue, such that add and poll take constant time
+     */
+    private static class PriorityLaneQueue extends AbstractQueue<Customer> {
+        private final int maxNumPriorityItems;
+        private final Queue<Customer> priorityQueue = new ArrayDeque<>();
+        private final Queue<Customer> regularQueue = new ArrayDeque<>();
+
+        PriorityLaneQueue(int maxNumPriorityItems) {
+            this.maxNumPriorityItems = maxNumPriorityItems;
+        }
+
+        @Override
+        public boolean offer(Customer customer) {
+            if (customer.getNumberOfItems() <= maxNumPriorityItems) {
+                return priorityQueue.offer(customer);
+            }
+            return regularQueue.offer(customer);
+        }
+
+        @Override
+        public Customer poll() {
+            Customer customer = priorityQueue.poll();
+            return (customer != null ? customer : regularQueue.poll());
+        }
+
+        @Override
+        public Customer peek() {
+            Customer customer = priorityQueue.peek();
+            return (customer != null ? customer : regularQueue.peek());
+        }
+
+        @Override
+        public int size() {
+            return priorityQueue.size() + regularQueue.size();
+        }
+
+        @Override
+        public void clear() {
+            priorityQueue.clear();
+            regularQueue.clear();
+        }
+
+        @Override
+        public Iterator<Customer> iterator() {
+            return new Iterator<>() {
+                private Iterator<Customer> current = priorityQueue.iterator();
+                private Iterator<Customer> lastReturnedFrom;
+                private boolean inPriorityQueue = true;
+
+                @Override
+                public boolean hasNext() {
+                    if (inPriorityQueue && !current.hasNext()) {
+                        current = regularQueue.iterator();
+                        inPriorityQueue = false;
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public Customer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    lastReturnedFrom = current;
+                    return current.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (lastReturnedFrom == null) {
+                        throw new IllegalStateException();
+                    }
+                    lastReturnedFrom.remove();
+                    lastReturnedFrom = null;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,124 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.SpaceSaving;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * approximate counts of the most bought products per zip code, in a fixed number of counters per zip code
+ * each zip code has a Space-Saving sketch of the amounts bought per product code, such that the memory does
+ * not grow with the catalogue or the number of customers. the count of a product is overestimated by at most
+ * the amount bought in its zip code / capacity, and any product above that amount is reported
+ * sketches of separate parts of the customers can be merged, e.g. of parallel threads, and can be passed
+ * between processes as text records, one line per zip code
+ */
+public class ProductSketches {
+    private final int capacity;     // counters per zip code
+    private final Map<String, SpaceSaving<String>> zipCodes = new TreeMap<>();
+
+    public ProductSketches(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * creates sketches that report the top k products per zip code within the given relative error
+     * @param k
+     * @param epsilon   maximum overestimation of a count as a fraction of the amount bought in the zip code
+     * @return
+     */
+    public static ProductSketches of(int k, double epsilon) {
+        return new ProductSketches(Math.max(k, SpaceSaving.capacityFor(epsilon)));
+    }
+
+    /**
+     * counts the purchases of a customer in the sketch of its zip code
+     * purchases that have been imported lazily are counted without decoding them
+     * @param customer
+     */
+    public void add(Customer customer) {
+        SpaceSaving<String> sketch = zipCodes.computeIfAbsent(customer.getZipCode(), zip -> new SpaceSaving<>(capacity));
+        customer.forEachPurchase((product, amount) -> sketch.add(product.getCode(), amount));
+    }
+
+    /**
+     * adds the counts of other sketches into these ones
+     * @param other
+     */
+    public void merge(ProductSketches other) {
+        for (Map.Entry<String, SpaceSaving<String>> zip : other.zipCodes.entrySet()) {
+            zipCodes.computeIfAbsent(zip.getKey(), z -> new SpaceSaving<>(capacity)).merge(zip.getValue());
+        }
+    }
+
+    /**
+     * @param k
+     * @return per zip code the product codes with the highest estimated amounts, highest first, ordered by zip code
+     */
+    public Map<String, List<SpaceSaving.Counter<String>>> top(int k) {
+        Map<String, List<SpaceSaving.Counter<String>>> top = new TreeMap<>();
+        for (Map.Entry<String, SpaceSaving<String>> zip : zipCodes.entrySet()) {
+            top.put(zip.getKey(), zip.getValue().top(k));
+        }
+        return top;
+    }
+
+    public SpaceSaving<String> getSketch(String zipCode) {
+        return zipCodes.get(zipCode);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * encodes the sketches as lines of tab-separated text: the zip code and its total amount, followed by the
+     * product code, count and error of every counter
+     * @return
+     */
+    public String toRecords() {
+        StringBuilder records = new StringBuilder();
+        for (Map.Entry<String, SpaceSaving<String>> zip : zipCodes.entrySet()) {
+            records.append(zip.getKey()).append('\t').append(zip.getValue().getTotal());
+            for (SpaceSaving.Counter<String> counter : zip.getValue().top(capacity)) {
+                records.append('\t').append(counter.getItem()).append('\t').append(counter.getCount())
+                        .append('\t').append(counter.getError());
+            }
+            records.append('\n');
+        }
+        return records.toString();
+    }
+
+    /**
+     * decodes sketches that have been encoded by toRecords, e.g. to merge the sketches of shards
+     * @param records
+     * @param capacity
+     * @return
+     * @throws IllegalArgumentException if a record is not valid
+     */
+    public static ProductSketches fromRecords(String records, int capacity) {
+        ProductSketches sketches = new ProductSketches(capacity);
+        for (String record : records.split("\n")) {
+            if (record.isEmpty()) continue;
+            String[] fields = record.split("\t");
+            if (fields.length % 3 != 2) {
+                throw new IllegalArgumentException("Invalid sketch record '" + record + "'");
+            }
+            try {
+                List<SpaceSaving.Counter<String>> counters = new ArrayList<>();
+                for (int f = 2; f < fields.length; f += 3) {
+                    counters.add(new SpaceSaving.Counter<>(fields[f], Long.parseLong(fields[f + 1]), Long.parseLong(fields[f + 2])));
+                }
+                sketches.zipCodes.put(fields[0], SpaceSaving.restore(capacity, Long.parseLong(fields[1]), counters));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid sketch record '" + record + "'", e);
+            }
+        }
+        return sketches;
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * records the queue length, busy time and idle time of every lane in fixed time buckets during a simulation
+ * the series are kept in primitive arrays per lane; every event only updates the buckets
+ * that have passed since the previous event of its lane, so the recording cost depends on
+ * the number of buckets rather than on the number of simulated seconds
+ * lanes that are opened during the simulation are added on their first event
+ * register it with Supermarket.setSimulationListener; each simulation replaces the previous series
+ */
+public class QueueTimeSeries implements SimulationListener {
+    public static final int ONE_MINUTE = 60;
+    public static final int FIVE_MINUTES = 5 * 60;
+    static final int BINARY_FORMAT_VERSION = 2;
+
+    private final int bucketSeconds;        // the length of a time bucket in seconds
+    private int startTime;                  // start of the first bucket, in seconds of the day
+    private int nBuckets;                   // number of buckets that hold data
+    private int capacity;                   // number of buckets that fit in the arrays
+    private String[] laneNames = new String[0];
+    private Map<Cashier, Integer> laneIndex = new IdentityHashMap<>();
+
+    // per lane, per bucket
+    private int[][] maxQueueLength = new int[0][];
+    private long[][] queueSeconds = new long[0][];  // integral of the queue length over the bucket
+    private int[][] idleSeconds = new int[0][];
+    private int[][] busySeconds = new int[0][];     // seconds in which at least one customer was checked out
+
+    // per lane, the current queue length and the time it was reached
+    private int[] queueLength = new int[0];
+    private int[] queueSince = new int[0];
+    // per lane, the number of check-outs in progress and the time the first of them started
+    private int[] nInService = new int[0];
+    private int[] busySince = new int[0];
+
+    public QueueTimeSeries(int bucketSeconds) {
+        if (bucketSeconds <= 0) {
+            throw new IllegalArgumentException("Bucket length must be positive: " + bucketSeconds);
+        }
+        this.bucketSeconds = bucketSeconds;
+    }
+
+    @Override
+    public void onSimulationStart(List<Cashier> cashiers, int openTime, int closingTime) {
+        int nLanes = cashiers.size();
+        this.capacity = Math.max(1, (closingTime - openTime + 15 * 60 + bucketSeconds - 1) / bucketSeconds);
+        this.startTime = openTime;
+        this.nBuckets = 0;
+        this.laneNames = new String[nLanes];
+        this.laneIndex = new IdentityHashMap<>();
+        this.maxQueueLength = new int[nLanes][capacity];
+        this.queueSeconds = new long[nLanes][capacity];
+        this.idleSeconds = new int[nLanes][capacity];
+        this.busySeconds = new int[nLanes][capacity];
+        this.queueLength = new int[nLanes];
+        this.queueSince = new int[nLanes];
+        this.nInService = new int[nLanes];
+        this.busySince = new int[nLanes];
+        for (int lane = 0; lane < nLanes; lane++) {
+            this.laneNames[lane] = cashiers.get(lane).getName();
+            this.laneIndex.put(cashiers.get(lane), lane);
+            this.queueSince[lane] = openTime;
+        }
+    }
+
+    /**
+     * @param cashier
+     * @param time      of the current event of the cashier
+     * @return the index of the lane of the cashier, after adding it if it has been opened during the simulation
+     */
+    private int lane(Cashier cashier, int time) {
+        Integer lane = laneIndex.get(cashier);
+        return (lane != null ? lane : addLane(cashier, time));
+    }
+
+    private int addLane(Cashier cashier, int time) {
+        int lane = laneNames.length;
+        laneNames = Arrays.copyOf(laneNames, lane + 1);
+        laneNames[lane] = cashier.getName();
+        laneIndex.put(cashier, lane);
+        maxQueueLength = Arrays.copyOf(maxQueueLength, lane + 1);
+        maxQueueLength[lane] = new int[capacity];
+        queueSeconds = Arrays.copyOf(queueSeconds, lane + 1);
+        queueSeconds[lane] = new long[capacity];
+        idleSeconds = Arrays.copyOf(idleSeconds, lane + 1);
+        idleSeconds[lane] = new int[capacity];
+        busySeconds = Arrays.copyOf(busySeconds, lane + 1);
+        busySeconds[lane] = new int[capacity];
+        queueLength = Arrays.copyOf(queueLength, lane + 1);
+        queueSince = Arrays.copyOf(queueSince, lane + 1);
+        queueSince[lane] = time;
+        nInService = Arrays.copyOf(nInService, lane + 1);
+        busySince = Arrays.copyOf(busySince, lane + 1);
+        return lane;
+    }
+
+    @Override
+    public void onArrival(Cashier cashier, Customer customer, int time, int queueLength) {
+        changeQueueLength(lane(cashier, time), time, queueLength);
+    }
+
+    @Override
+    public void onServiceStart(Cashier cashier, Customer customer, int time) {
+        int lane = lane(cashier, time);
+        if (nInService[lane]++ == 0) {
+            busySince[lane] = time;
+        }
+    }
+
+    @Override
+    public void onServiceEnd(Cashier cashier, Customer customer, int time) {
+        int lane = lane(cashier, time);
+        changeQueueLength(lane, time, Math.max(0, queueLength[lane] - 1));
+        if (nInService[lane] > 0 && --nInService[lane] == 0) {
+            addSeconds(busySeconds, lane, busySince[lane], time);
+        }
+    }
+
+    /**
+     * a customer that reneges leaves the queue of its cashier; a customer that balks has never joined it
+     */
+    @Override
+    public void onAbandon(Cashier cashier, Customer customer, int time) {
+        if (customer.getCheckOutCashier() == cashier) {
+            int lane = lane(cashier, time);
+            changeQueueLength(lane, time, Math.max(0, queueLength[lane] - 1));
+        }
+    }
+
+    @Override
+    public void onIdle(Cashier cashier, int fromTime, int toTime) {
+        int lane = lane(cashier, fromTime);
+        addSeconds(idleSeconds, lane, fromTime, toTime);
+    }
+
+    /**
+     * adds the seconds of the interval [from, to) to the buckets of the lane in which they fall
+     * @param seconds   per lane, per bucket
+     * @param lane
+     * @param from
+     * @param to
+     */
+    private void addSeconds(int[][] seconds, int lane, int from, int to) {
+        int lastBucket = bucketOf(to - 1);
+        for (int bucket = bucketOf(from); bucket <= lastBucket; bucket++) {
+            seconds[lane][bucket] += overlap(bucket, from, to);
+        }
+    }
+
+    /**
+     * accounts the current queue length of the lane up to the given time, and continues with the new length
+     * @param lane
+     * @param time
+     * @param newLength
+     */
+    private void changeQueueLength(int lane, int time, int newLength) {
+        int from = queueSince[lane];
+        int length = queueLength[lane];
+        if (time > from) {
+            int lastBucket = bucketOf(time - 1);
+            for (int bucket = bucketOf(from); bucket <= lastBucket; bucket++) {
+                queueSeconds[lane][bucket] += (long) length * overlap(bucket, from, time);
+                maxQueueLength[lane][bucket] = Math.max(maxQueueLength[lane][bucket], length);
+            }
+            queueSince[lane] = time;
+        }
+        int bucket = bucketOf(time);
+        maxQueueLength[lane][bucket] = Math.max(maxQueueLength[lane][bucket], newLength);
+        queueLength[lane] = newLength;
+    }
+
+    /**
+     * finds the bucket of the given time, extending the series if needed
+     * @param time
+     * @return
+     */
+    private int bucketOf(int time) {
+        int bucket = Math.max(0, time - startTime) / bucketSeconds;
+        if (bucket >= capacity) {
+            capacity = Math.max(bucket + 1, 2 * capacity);
+            for (int lane = 0; lane < laneNames.length; lane++) {
+                maxQueueLength[lane] = Arrays.copyOf(maxQueueLength[lane], capacity);
+                queueSeconds[lane] = Arrays.copyOf(queueSeconds[lane], capacity);
+                idleSeconds[lane] = Arrays.copyOf(idleSeconds[lane], capacity);
+                busySeconds[lane] = Arrays.copyOf(busySeconds[lane], capacity);
+            }
+        }
+        nBuckets = Math.max(nBuckets, bucket + 1);
+        return bucket;
+    }
+
+    /**
+     * @return the number of seconds of the interval [from, to) that fall within the bucket
+     */
+    private int overlap(int bucket, int from, int to) {
+        int bucketStart = startTime + bucket * bucketSeconds;
+        return Math.min(to, bucketStart + bucketSeconds) - Math.max(from, bucketStart);
+    }
+
+    public int getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    public int getNumberOfBuckets() {
+        return nBuckets;
+    }
+
+    public int getNumberOfLanes() {
+        return laneNames.length;
+    }
+
+    public LocalTime getBucketStart(int bucket) {
+        return LocalTime.ofSecondOfDay((startTime + (long) bucket * bucketSeconds) % Cashier.SECONDS_PER_DAY);
+    }
+
+    public int getMaxQueueLength(int lane, int bucket) {
+        return maxQueueLength[lane][bucket];
+    }
+
+    public double getAverageQueueLength(int lane, int bucket) {
+        return queueSeconds[lane][bucket] / (double) bucketSeconds;
+    }
+
+    public int getIdleSeconds(int lane, int bucket) {
+        return idleSeconds[lane][bucket];
+    }
+
+    public int getBusySeconds(int lane, int bucket) {
+        return busySeconds[lane][bucket];
+    }
+
+    /**
+     * @return the fraction of the staffed time of the bucket in which the lane was busy,
+     *          0 if the lane has not been staffed during the bucket
+     */
+    public double getUtilization(int lane, int bucket) {
+        int staffed = busySeconds[lane][bucket] + idleSeconds[lane][bucket];
+        return (staffed > 0 ? busySeconds[lane][bucket] / (double) staffed : 0.0);
+    }
+
+    /**
+     * writes the series as comma separated values, one line per lane and bucket
+     * @param out
+     */
+    public void writeCSV(PrintStream out) {
+        out.println("lane,bucketStart,maxQueueLength,avgQueueLength,busySeconds,idleSeconds,utilization");
+        for (int lane = 0; lane < laneNames.length; lane++) {
+            for (int bucket = 0; bucket < nBuckets; bucket++) {
+                out.printf(Locale.US, "%s,%s,%d,%.3f,%d,%d,%.3f\n",
+                        laneNames[lane], getBucketStart(bucket),
+                        getMaxQueueLength(lane, bucket), getAverageQueueLength(lane, bucket),
+                        getBusySeconds(lane, bucket), getIdleSeconds(lane, bucket), getUtilization(lane, bucket));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * writes the series in a compact binary format:
+     *  int version, int bucketSeconds, int startTime, int nLanes, int nBuckets,
+     *  then per lane: UTF name, nBuckets x int maxQueueLength, nBuckets x long queueSeconds, nBuckets x int idleSeconds,
+     *  nBuckets x int busySeconds
+     * @param output
+     * @throws IOException
+     */
+    public void writeBinary(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(BINARY_FORMAT_VERSION);
+        out.writeInt(bucketSeconds);
+        out.writeInt(startTime);
+        out.writeInt(laneNames.length);
+        out.writeInt(nBuckets);
+        for (int lane = 0; lane < laneNames.length; lane++) {
+            out.writeUTF(laneNames[lane]);
+            for (int bucket = 0; bucket < nBuckets; bucket++) {
+                out.writeInt(maxQueueLength[lane][bucket]);
+            }
+            for (int bucket = 0; bucket < nBuckets; bucket++) {
+                out.writeLong(queueSeconds[lane][bucket]);
+            }
+            for (int bucket = 0; bucket < nBuckets; bucket++) {
+                out.writeInt(idleSeconds[lane][bucket]);
+            }
+            for (int bucket = 0; bucket < nBuckets; bucket++) {
+                out.writeInt(busySeconds[lane][bucket]);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * estimates the waiting times of a lane mix analytically, without simulating it
+ * the opening hours are divided in buckets; per bucket the arrival rate and the first two moments
+ * of the check-out times (FIFOCashier.expectedCheckOutTime) are taken from the loaded customers,
+ * cumulative by number of items, such that the classes of any priority threshold are readily available
+ * every bucket is treated as a stationary M/G/c queue of all stations of the mix (Allen-Cunneen),
+ * with the non-preemptive priority correction for the share of priority lanes,
+ * and work that cannot be done within an overloaded bucket is carried over into the next buckets
+ * pooling is optimistic for separate lanes: their customers choose a lane on arrival and cannot move to
+ * another lane that becomes free, so the estimate tends to be below the simulated wait of separate lanes
+ * the estimate is a heuristic for screening: it ranks lane mixes and recognises overload,
+ * but the exact waiting times come from the simulation
+ */
+public class QueueingEstimator {
+    static final int DEFAULT_BUCKET_SECONDS = 15 * 60;
+
+    private final int bucketSeconds;
+    private final int maxItems;
+    private final int nCustomers;
+    // per bucket, cumulative over the number of items k of the customers: count, sum and sum of squares of check-out times
+    private final int[][] count;
+    private final double[][] sum;
+    private final double[][] sumOfSquares;
+
+    /**
+     * the estimated outcome of a lane mix
+     */
+    public static class Estimate {
+        private final double averageWaitingTime;
+        private final double maxUtilisation;
+        private final double backlog;       // seconds of check-out work that is left at closing time
+
+        Estimate(double averageWaitingTime, double maxUtilisation, double backlog) {
+            this.averageWaitingTime = averageWaitingTime;
+            this.maxUtilisation = maxUtilisation;
+            this.backlog = backlog;
+        }
+
+        public double getAverageWaitingTime() {
+            return averageWaitingTime;
+        }
+
+        /**
+         * @return the highest offered load per unit of check-out capacity over all buckets
+         */
+        public double getMaxUtilisation() {
+            return maxUtilisation;
+        }
+
+        public double getBacklog() {
+            return backlog;
+        }
+
+        /**
+         * @return whether the lanes can keep up with the arrivals in every bucket
+         */
+        public boolean isStable() {
+            return maxUtilisation < 1.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "avgWait=%.1f maxUtilisation=%.2f backlog=%.0f",
+                    averageWaitingTime, maxUtilisation, backlog);
+        }
+    }
+
+    public QueueingEstimator(Supermarket supermarket) {
+        this(supermarket, DEFAULT_BUCKET_SECONDS);
+    }
+
+    /**
+     * derives the arrival and check-out time statistics of the customers of the supermarket
+     * @param supermarket
+     * @param bucketSeconds     length of the periods in which arrivals are taken to be stationary
+     */
+    public QueueingEstimator(Supermarket supermarket, int bucketSeconds) {
+        this.bucketSeconds = Math.max(1, bucketSeconds);
+        List<Customer> customers = supermarket.getCustomers();
+        int openTime = supermarket.getOpenTime().toSecondOfDay();
+        int nBuckets = Math.max(1, (supermarket.getClosingTime().toSecondOfDay() - openTime + this.bucketSeconds - 1) / this.bucketSeconds);
+        int max = 0;
+        for (Customer customer : customers) {
+            max = Math.max(max, customer.getNumberOfItems());
+        }
+        this.maxItems = max;
+        this.nCustomers = customers.size();
+        this.count = new int[nBuckets][maxItems + 1];
+        this.sum = new double[nBuckets][maxItems + 1];
+        this.sumOfSquares = new double[nBuckets][maxItems + 1];
+
+        Cashier cashier = new FIFOCashier("estimator");
+        for (Customer customer : customers) {
+            int bucket = Math.min(nBuckets - 1, Math.max(0, (customer.getQueuedAt().toSecondOfDay() - openTime) / this.bucketSeconds));
+            int items = customer.getNumberOfItems();
+            double checkOutTime = cashier.expectedCheckOutTime(items);
+            count[bucket][items]++;
+            sum[bucket][items] += checkOutTime;
+            sumOfSquares[bucket][items] += checkOutTime * checkOutTime;
+        }
+        for (int b = 0; b < nBuckets; b++) {
+            for (int k = 1; k <= maxItems; k++) {
+                count[b][k] += count[b][k - 1];
+                sum[b][k] += sum[b][k - 1];
+                sumOfSquares[b][k] += sumOfSquares[b][k - 1];
+            }
+        }
+    }
+
+    /**
+     * estimates the average waiting time of the lane mix
+     * takes O(buckets * lanes) time, independent of the number of customers
+     * @param laneMix
+     * @return
+     */
+    public Estimate estimate(LaneMix laneMix) {
+        // pool all stations of the mix, and collect the priority lanes with their thresholds
+        int nServers = 0;
+        double capacity = 0.0;              // seconds of regular check-out work per second
+        List<Integer> priorityThresholds = new ArrayList<>();
+        for (LaneMix.Lane lane : laneMix.getLanes()) {
+            nServers += lane.getNumberOfStations();
+            capacity += lane.getCapacity();
+            if (lane.getType() == LaneMix.Lane.Type.PRIO) {
+                priorityThresholds.add(Math.min(maxItems, lane.getMaxNumPriorityItems()));
+            }
+        }
+        if (nServers == 0 || capacity <= 0.0) {
+            return new Estimate(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+
+        double totalWait = 0.0;
+        double maxUtilisation = 0.0;
+        double backlog = 0.0;
+        for (int b = 0; b < count.length; b++) {
+            int n = count[b][maxItems];
+            if (n == 0) {
+                backlog = Math.max(0.0, backlog - capacity * bucketSeconds);
+                continue;
+            }
+            double meanCheckOutTime = sum[b][maxItems] / n;
+            double work = sum[b][maxItems] / bucketSeconds;     // offered check-out work per second
+            double utilisation = work / capacity;
+            maxUtilisation = Math.max(maxUtilisation, utilisation);
+
+            // waiting for the work that has been carried over, which is done at the spare capacity
+            double spare = capacity - work;
+            double backlogWait;
+            double nextBacklog = Math.max(0.0, backlog - spare * bucketSeconds);
+            if (nextBacklog > 0.0 || spare <= 0.0) {
+                backlogWait = (backlog + nextBacklog) / 2 / capacity;
+            } else {
+                double drainTime = backlog / spare;
+                backlogWait = backlog / 2 / capacity * drainTime / bucketSeconds;
+            }
+
+            double queueWait = 0.0;
+            if (utilisation < 1.0) {
+                double variation = sumOfSquares[b][maxItems] / n / (meanCheckOutTime * meanCheckOutTime) - 1.0;
+                double arrivalRate = (double) n / bucketSeconds;
+                double serviceRate = capacity / nServers / meanCheckOutTime;
+                double fcfsWait = erlangC(nServers, arrivalRate / serviceRate) / (nServers * serviceRate - arrivalRate)
+                        * (1.0 + variation) / 2.0;
+                queueWait = fcfsWait;
+                if (!priorityThresholds.isEmpty()) {
+                    queueWait = priorityWait(b, fcfsWait, utilisation, capacity, laneMix.getNumberOfLanes(), priorityThresholds);
+                }
+            }
+            totalWait += n * (queueWait + backlogWait);
+            backlog = nextBacklog;
+        }
+
+        double averageWaitingTime = (nCustomers > 0 ? totalWait / nCustomers : 0.0);
+        return new Estimate(averageWaitingTime, maxUtilisation, backlog);
+    }
+
+    /**
+     * the average wait of a bucket if each priority lane serves its short customers first
+     * with non-preemptive priorities, short customers wait W(1-rho)/(1-rho1) and
+     * the others W/(1-rho1), with rho1 the load of the short customers;
+     * this applies to the share of the customers that is served by priority lanes
+     */
+    private double priorityWait(int bucket, double fcfsWait, double utilisation, double capacity,
+                                int nLanes, List<Integer> priorityThresholds) {
+        int n = count[bucket][maxItems];
+        double share = 1.0 / nLanes;
+        double wait = fcfsWait * (nLanes - priorityThresholds.size()) * share * n;
+        for (int threshold : priorityThresholds) {
+            int nShort = count[bucket][threshold];
+            double shortLoad = sum[bucket][threshold] / bucketSeconds / capacity;
+            double shortWait = fcfsWait * (1.0 - utilisation) / (1.0 - shortLoad);
+            double longWait = fcfsWait / (1.0 - shortLoad);
+            wait += share * (nShort * shortWait + (n - nShort) * longWait);
+        }
+        return wait / n;
+    }
+
+    /**
+     * the probability of waiting in an M/M/c queue, via the recursion of the Erlang B formula
+     * @param nServers
+     * @param offeredLoad   arrival rate / service rate per server, less than nServers
+     * @return
+     */
+    static double erlangC(int nServers, double offeredLoad) {
+        double erlangB = 1.0;
+        for (int k = 1; k <= nServers; k++) {
+            erlangB = offeredLoad * erlangB / (k + offeredLoad * erlangB);
+        }
+        double utilisation = offeredLoad / nServers;
+        return erlangB / (1.0 - utilisation * (1.0 - erlangB));
+    }
+
+    /**
+     * screens a lane mix before simulating it
+     * the estimate is a heuristic, so a mix that is found hopeless is not proven to miss the target;
+     * as the pooled estimate tends to be optimistic for separate lanes, such a mix is unlikely to meet it
+     * @param laneMix
+     * @param maxAverageWaitingTime     the target of the sweep
+     * @param slack                     factor by which the estimate may exceed the target, e.g. 2.0
+     * @return whether the estimate exceeds the target by more than the slack, such that the mix need not be simulated
+     */
+    public boolean isHopeless(LaneMix laneMix, double maxAverageWaitingTime, double slack) {
+        Estimate estimate = estimate(laneMix);
+        return estimate.getAverageWaitingTime() > slack * maxAverageWaitingTime;
+    }
+
+    public int getNumberOfBuckets() {
+        return count.length;
+    }
+
+    public static void main(String[] args) {
+        Supermarket supermarket = Supermarket.importFromXML(args.length > 0 ? args[0] : "jambi250_8.xml", true);
+        QueueingEstimator estimator = new QueueingEstimator(supermarket);
+        for (String mix : (args.length > 1 ? args[1].split("\\s+") : new String[]{"FIFO", "2xFIFO", "3xFIFO", "2xFIFO,PRIO:5", "SHARED:3"})) {
+            LaneMix laneMix = LaneMix.parse(mix);
+            long started = System.nanoTime();
+            Estimate estimate = estimator.estimate(laneMix);
+            long estimated = System.nanoTime() - started;
+            supermarket.getCashiers().clear();
+            supermarket.getCashiers().addAll(laneMix.createCashiers());
+            supermarket.simulateCashiers();
+            System.out.printf(Locale.US, "%-16s estimate %s (%d us), simulated %s%n",
+                    laneMix, estimate, estimated / 1000, supermarket.getSimulationStatistics());
+        }
+    }
+}
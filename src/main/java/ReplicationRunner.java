@@ -0,0 +1,268 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Monte Carlo replication of cashier simulations
+ * every replication generates an independent set of random customers from its own seed
+ * for the products and opening hours of a base supermarket, and simulates all lane mixes on that same set
+ * (common random numbers), such that differences between lane mixes are not blurred by differences
+ * between the customer sets. the replications run in parallel, one task per replication
+ *
+ * run with:  ReplicationRunner dataset nCustomers nReplications seed laneMix...
+ * e.g.       ReplicationRunner jambi250_8.xml 250 30 42 2xFIFO PRIO:5
+ */
+public class ReplicationRunner {
+    public static final double CONFIDENCE_LEVEL = 0.95;
+
+    private final Supermarket base;         // provides the products and the opening hours
+    private final int nCustomers;           // number of customers per replication
+    private final int averageNrItems;       // average number of items per generated customer
+
+    /**
+     * a mean with the half width of its 95% confidence interval
+     */
+    public static class Estimate {
+        private final double mean;
+        private final double halfWidth;
+
+        public Estimate(double mean, double halfWidth) {
+            this.mean = mean;
+            this.halfWidth = halfWidth;
+        }
+
+        /**
+         * estimates the mean of independent samples by a Student t confidence interval
+         * @param samples
+         * @return
+         */
+        public static Estimate of(double[] samples) {
+            int n = samples.length;
+            double mean = Arrays.stream(samples).average().orElse(0.0);
+            if (n < 2) return new Estimate(mean, Double.NaN);
+            double sumOfSquares = 0.0;
+            for (double sample : samples) {
+                sumOfSquares += (sample - mean) * (sample - mean);
+            }
+            double standardError = Math.sqrt(sumOfSquares / (n - 1) / n);
+            return new Estimate(mean, studentT975(n - 1) * standardError);
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getHalfWidth() {
+            return halfWidth;
+        }
+
+        public double getLower() {
+            return mean - halfWidth;
+        }
+
+        public double getUpper() {
+            return mean + halfWidth;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.2f +/- %.2f", mean, halfWidth);
+        }
+    }
+
+    /**
+     * the statistics of all replications of a single lane mix
+     */
+    public static class Result {
+        private final LaneMix laneMix;
+        private final SimulationStatistics[] replications;
+
+        Result(LaneMix laneMix, int nReplications) {
+            this.laneMix = laneMix;
+            this.replications = new SimulationStatistics[nReplications];
+        }
+
+        public LaneMix getLaneMix() {
+            return laneMix;
+        }
+
+        public SimulationStatistics getReplication(int replication) {
+            return replications[replication];
+        }
+
+        public int getNumberOfReplications() {
+            return replications.length;
+        }
+
+        public Estimate estimate(ToDoubleFunction<SimulationStatistics> measure) {
+            return Estimate.of(Arrays.stream(replications).mapToDouble(measure).toArray());
+        }
+
+        public Estimate getAverageWaitingTime() {
+            return estimate(SimulationStatistics::getAverageWaitingTime);
+        }
+
+        public Estimate getP95WaitingTime() {
+            return estimate(s -> s.getWaitingTimePercentile(0.95));
+        }
+
+        public Estimate getIdleTime() {
+            return estimate(SimulationStatistics::getTotalIdleTime);
+        }
+
+        /**
+         * estimates the difference of a measure between this lane mix and another one, paired per replication
+         * with common random numbers this interval is much narrower than that of the separate estimates
+         * @param other
+         * @param measure
+         * @return
+         */
+        public Estimate difference(Result other, ToDoubleFunction<SimulationStatistics> measure) {
+            double[] differences = new double[replications.length];
+            for (int r = 0; r < replications.length; r++) {
+                differences[r] = measure.applyAsDouble(replications[r]) - measure.applyAsDouble(other.replications[r]);
+            }
+            return Estimate.of(differences);
+        }
+    }
+
+    public ReplicationRunner(Supermarket base, int nCustomers, int averageNrItems) {
+        this.base = base;
+        this.nCustomers = nCustomers;
+        this.averageNrItems = averageNrItems;
+    }
+
+    /**
+     * simulates all lane mixes on nReplications independent sets of customers
+     * the outcome only depends on the seed, not on the parallelism
+     * @param laneMixes
+     * @param nReplications
+     * @param seed
+     * @param parallelism   number of replications that run at the same time
+     * @return one result per lane mix, in the order of the lane mixes
+     */
+    public List<Result> run(List<LaneMix> laneMixes, int nReplications, long seed, int parallelism) {
+        List<Result> results = new ArrayList<>(laneMixes.size());
+        for (LaneMix laneMix : laneMixes) {
+            results.add(new Result(laneMix, nReplications));
+        }
+
+        // derive the seeds of all replications up front and in order
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long[] replicationSeeds = new long[nReplications];
+        for (int r = 0; r < nReplications; r++) {
+            replicationSeeds[r] = seeds.split().nextLong();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> replications = new ArrayList<>(nReplications);
+            for (int r = 0; r < nReplications; r++) {
+                final int replication = r;
+                replications.add(executor.submit(() -> runReplication(replication, replicationSeeds[replication], results)));
+            }
+            for (Future<?> replication : replications) {
+                replication.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replications have been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Replication failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * generates the customers of one replication and simulates all lane mixes on them
+     * @param replication
+     * @param seed
+     * @param results
+     */
+    private void runReplication(int replication, long seed, List<Result> results) {
+        Supermarket supermarket = new Supermarket(base.name + "#" + replication, base.getOpenTime(), base.getClosingTime());
+        supermarket.getProducts().addAll(base.getProducts());
+        supermarket.getCustomers().addAll(
+                supermarket.randomCustomerGenerator(averageNrItems, seed).generate(nCustomers, 1));
+
+        for (Result result : results) {
+            supermarket.getCashiers().clear();
+            supermarket.getCashiers().addAll(result.laneMix.createCashiers());
+            supermarket.simulateCashiers();
+            result.replications[replication] = supermarket.getSimulationStatistics();
+        }
+    }
+
+    /**
+     * reports the estimates of all lane mixes, and their differences in average waiting time
+     * with the first lane mix
+     * @param results
+     * @param out
+     */
+    public static void printResults(List<Result> results, PrintStream out) {
+        if (results.isEmpty()) return;
+        out.printf("\nReplication results of %d replications (%.0f%% confidence intervals):\n",
+                results.get(0).getNumberOfReplications(), 100 * CONFIDENCE_LEVEL);
+        out.println("Lane mix:\t\t\tavg-wait-time:\t\tp95-wait-time:\t\tidle-time:\t\t\tavg-wait vs first:");
+        for (Result result : results) {
+            out.printf("\t%-20s\t%-16s\t%-16s\t%-16s\t%s\n",
+                    result.laneMix,
+                    result.getAverageWaitingTime(),
+                    result.getP95WaitingTime(),
+                    result.getIdleTime(),
+                    (result == results.get(0) ? "" :
+                            result.difference(results.get(0), SimulationStatistics::getAverageWaitingTime)));
+        }
+    }
+
+    /**
+     * the 97.5% quantile of the Student t distribution, which bounds a two-sided 95% confidence interval
+     * @param degreesOfFreedom
+     * @return
+     */
+    static double studentT975(int degreesOfFreedom) {
+        final double[] table = {
+                12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042 };
+        if (degreesOfFreedom <= table.length) {
+            return table[Math.max(1, degreesOfFreedom) - 1];
+        }
+        // Cornish-Fisher expansion around the normal quantile
+        final double z = 1.959964;
+        double df = degreesOfFreedom;
+        return z + (z * z * z + z) / (4 * df) + (5 * Math.pow(z, 5) + 16 * z * z * z + 3 * z) / (96 * df * df);
+    }
+
+    public static void main(String[] args) {
+        String dataset = (args.length > 0 ? args[0] : "jambi250_8.xml");
+        int nCustomers = (args.length > 1 ? Integer.parseInt(args[1]) : 250);
+        int nReplications = (args.length > 2 ? Integer.parseInt(args[2]) : 30);
+        long seed = (args.length > 3 ? Long.parseLong(args[3]) : 20191103L);
+        List<LaneMix> laneMixes = new ArrayList<>();
+        for (String mix : (args.length > 4 ? Arrays.copyOfRange(args, 4, args.length) : new String[]{"2xFIFO", "PRIO:5"})) {
+            laneMixes.add(LaneMix.parse(mix));
+        }
+
+        Supermarket supermarket = Supermarket.importFromXML(dataset);
+        int averageNrItems = Math.max(1, Math.round(supermarket.getTotalNumberOfItems() /
+                (float) Math.max(1, supermarket.getCustomers().size())));
+        ReplicationRunner runner = new ReplicationRunner(supermarket, nCustomers, averageNrItems);
+        printResults(runner.run(laneMixes, nReplications, seed, Runtime.getRuntime().availableProcessors()), System.out);
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.SLF4J;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * memoizes the statistics of simulations on disk, such that repeating a simulation of the same inputs
+ * returns its statistics at once. the key of a simulation is a fingerprint of all its inputs:
+ * the opening hours, the products, the customers with their purchases, the cashiers in order
+ * by their name and lane type (e.g. PRIO-1(PRIO:5)), the staffing schedule and the abandonment thresholds
+ * every simulation is stored as a single file in the cache directory, holding its SimulationStatistics.toRecord
+ * the total size of the directory is bounded; the least recently used simulations are evicted first
+ */
+public class ResultCache {
+    private static final String SUFFIX = ".stats";
+    // part of every fingerprint, such that simulations cached with an earlier meaning of the statistics are missed
+    private static final String STATISTICS_VERSION = "2";
+
+    private final Path directory;
+    private final long maxBytes;
+    private long hits, misses;
+
+    /**
+     * @param directory     the directory of the cache, which is created if needed
+     * @param maxBytes      the maximum total size of the cached simulations
+     */
+    public ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * provides the statistics of a simulation of the currently configured cashiers of the supermarket,
+     * from the cache if the same inputs have been simulated before
+     * on a cache hit the supermarket is not simulated: the outcomes of its customers and cashiers remain unchanged.
+     * a supermarket with a simulation listener is always simulated, such that the listener receives the events
+     * @param supermarket
+     * @return
+     */
+    public SimulationStatistics simulate(Supermarket supermarket) {
+        if (supermarket.getSimulationListener() != null) {
+            supermarket.simulateCashiers();
+            return supermarket.getSimulationStatistics();
+        }
+
+        Path entry = directory.resolve(fingerprint(supermarket) + SUFFIX);
+        SimulationStatistics statistics = read(entry);
+        if (statistics != null) {
+            synchronized (this) {
+                hits++;
+            }
+            return statistics;
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        supermarket.simulateCashiers();
+        statistics = supermarket.getSimulationStatistics();
+        write(entry, statistics);
+        evict(entry);
+        return statistics;
+    }
+
+    private SimulationStatistics read(Path entry) {
+        try {
+            String record = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+            // the modification time tracks the last use
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return SimulationStatistics.fromRecord(record);
+        } catch (IOException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            SLF4J.LOGGER.warn("Ignoring corrupt cache entry " + entry);
+            return null;
+        }
+    }
+
+    /**
+     * writes an entry through a temporary file, such that concurrent readers never see a partial entry
+     * @param entry
+     * @param statistics
+     */
+    private void write(Path entry, SimulationStatistics statistics) {
+        try {
+            Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+            Files.write(temporary, statistics.toRecord().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            SLF4J.logException("Cannot store cache entry " + entry, e);
+        }
+    }
+
+    /**
+     * removes the least recently used entries until the cache fits its maximum size,
+     * except the entry that has just been stored
+     * @param stored
+     */
+    private synchronized void evict(Path stored) {
+        List<Path> entries = new ArrayList<>();
+        long totalBytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                entries.add(file);
+                totalBytes += Files.size(file);
+            }
+            if (totalBytes <= maxBytes) return;
+            entries.sort(Comparator.comparing(ResultCache::lastModified));
+            for (Path file : entries) {
+                if (totalBytes <= maxBytes) break;
+                if (file.equals(stored)) continue;
+                totalBytes -= Files.size(file);
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            SLF4J.logException("Cannot evict entries of " + directory, e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * calculates a SHA-256 fingerprint of all inputs of a simulation of the supermarket
+     * purchases are hashed in order of product code, products are identified by their code
+     * @param supermarket
+     * @return the fingerprint in hexadecimal
+     */
+    public static String fingerprint(Supermarket supermarket) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder input = new StringBuilder(256);
+        input.append("statistics-").append(STATISTICS_VERSION).append('\n');
+        input.append(supermarket.getOpenTime()).append('-').append(supermarket.getClosingTime()).append('\n');
+        update(digest, input);
+
+        List<Product> products = new ArrayList<>(supermarket.getProducts());
+        products.sort(null);
+        for (Product product : products) {
+            input.append(product.getCode()).append('\t').append(product.getDescription()).append('\t')
+                    .append(product.getPrice()).append('\n');
+            update(digest, input);
+        }
+
+        // purchases are visited without decoding the customers that have been imported lazily
+        List<Purchase> purchases = new ArrayList<>();
+        for (Customer customer : supermarket.getCustomers()) {
+            input.append(customer.getQueuedAt()).append('\t').append(customer.getZipCode());
+            purchases.clear();
+            customer.forEachPurchase((product, amount) -> purchases.add(new Purchase(product, amount)));
+            purchases.sort(Comparator.comparing(Purchase::getProduct));
+            for (Purchase purchase : purchases) {
+                input.append('\t').append(purchase.getProduct().getCode()).append('x').append(purchase.getAmount());
+            }
+            input.append('\n');
+            update(digest, input);
+        }
+
+        input.append("cashiers");
+        for (Cashier cashier : supermarket.getCashiers()) {
+            input.append('\t').append(cashier);
+        }
+        StaffingSchedule schedule = supermarket.getStaffingSchedule();
+        if (schedule != null) {
+            input.append("\nschedule");
+            for (StaffingSchedule.Shift shift : schedule.getShifts()) {
+                input.append('\t').append(shift).append('(').append(shift.getCashier().getLaneType()).append(')');
+            }
+        }
+        Abandonment abandonment = supermarket.getAbandonment();
+        if (abandonment != null) {
+            input.append("\nabandonment\t").append(abandonment.getBalkingThreshold()).append('\t').append(abandonment.getPatience());
+        }
+        update(digest, input);
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, StringBuilder input) {
+        digest.update(input.toString().getBytes(StandardCharsets.UTF_8));
+        input.setLength(0);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
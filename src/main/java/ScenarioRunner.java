@@ -0,0 +1,225 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import utils.SLF4J;
+import utils.XMLParser;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * runs the what-if scenarios of a scenario file, see scenarios.xsd, e.g.
+ *      <scenarios>
+ *          <dataset file="jambi250_8.xml" customerStatistics="true">
+ *              <scenario name="base" lanes="FIFO"/>
+ *              <scenario name="named lanes"><cashier lane="PRIO:5" name="PRIO"/></scenario>
+ *              <scenario name="lunch shift" schedule="FIFO, FIFO@12:00-14:00" report="summary"/>
+ *              <scenario name="impatient" lanes="2xFIFO" balkingThreshold="300" patience="240"/>
+ *          </dataset>
+ *      </scenarios>
+ * the cashiers of a scenario are given by a lane mix and/or cashier elements with explicit names,
+ * and/or a staffing schedule. the report of a scenario is either the full simulation results,
+ * a summary line with its statistics, or none
+ * every dataset is parsed once, after which all its scenarios are simulated in parallel on copies of it;
+ * the reports are printed in the order of the file
+ *
+ * run with:  ScenarioRunner scenarioFile
+ */
+public class ScenarioRunner {
+
+    /**
+     * a dataset with the scenarios that are simulated on it
+     */
+    public static class Dataset {
+        final String file;
+        final boolean customerStatistics;
+        final List<Scenario> scenarios = new ArrayList<>();
+
+        Dataset(String file, boolean customerStatistics) {
+            this.file = file;
+            this.customerStatistics = customerStatistics;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public List<Scenario> getScenarios() {
+            return scenarios;
+        }
+    }
+
+    /**
+     * a configuration of cashiers with its report option
+     */
+    public static class Scenario {
+        final String name;
+        final String lanes;                     // lane mix, or null
+        final List<String[]> cashiers = new ArrayList<>();  // lane and name of each explicitly named cashier
+        final String schedule;                  // staffing schedule, or null
+        final int balkingThreshold;
+        final int patience;
+        final String report;                    // results, summary or none
+
+        Scenario(String name, String lanes, String schedule, int balkingThreshold, int patience, String report) {
+            this.name = name;
+            this.lanes = lanes;
+            this.schedule = schedule;
+            this.balkingThreshold = balkingThreshold;
+            this.patience = patience;
+            this.report = report;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * configures a fresh set of cashiers for this scenario on the supermarket
+         * @param supermarket
+         */
+        void configure(Supermarket supermarket) {
+            supermarket.getCashiers().clear();
+            if (lanes != null) {
+                supermarket.getCashiers().addAll(LaneMix.parse(lanes).createCashiers());
+            }
+            for (String[] cashier : cashiers) {
+                supermarket.getCashiers().add(LaneMix.createCashier(cashier[0], cashier[1]));
+            }
+            supermarket.setStaffingSchedule(schedule != null ? StaffingSchedule.parse(schedule) : null);
+            supermarket.setAbandonment(balkingThreshold != Abandonment.NEVER || patience != Abandonment.NEVER ?
+                    new Abandonment(balkingThreshold, patience) : null);
+        }
+    }
+
+    /**
+     * reads all datasets and their scenarios from a scenario file
+     * @param resourceName
+     * @return
+     * @throws IllegalArgumentException if the file is not a valid scenario file
+     */
+    public static List<Dataset> importFromXML(String resourceName) {
+        XMLParser xmlParser = new XMLParser(resourceName);
+        try {
+            xmlParser.nextTag();
+            xmlParser.require(XMLStreamConstants.START_ELEMENT, null, "scenarios");
+            xmlParser.nextTag();
+            List<Dataset> datasets = new ArrayList<>();
+            while (xmlParser.nextBeginTag("dataset")) {
+                Dataset dataset = new Dataset(xmlParser.getAttributeValue(null, "file"),
+                        Boolean.parseBoolean(xmlParser.getAttributeValue(null, "customerStatistics")));
+                xmlParser.nextTag();
+                Scenario scenario;
+                while ((scenario = importScenarioFromXML(xmlParser)) != null) {
+                    dataset.scenarios.add(scenario);
+                }
+                xmlParser.findAndAcceptEndTag("dataset");
+                datasets.add(dataset);
+            }
+            return datasets;
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid scenario file '" + resourceName + "': " + e.getMessage(), e);
+        } finally {
+            try {
+                xmlParser.close();
+            } catch (XMLStreamException e) {
+                SLF4J.logException("Cannot close '" + resourceName + "'", e);
+            }
+        }
+    }
+
+    private static Scenario importScenarioFromXML(XMLParser xmlParser) throws XMLStreamException {
+        if (!xmlParser.nextBeginTag("scenario")) {
+            return null;
+        }
+        String name = xmlParser.getAttributeValue(null, "name");
+        String report = xmlParser.getAttributeValue(null, "report");
+        Scenario scenario = new Scenario(name,
+                xmlParser.getAttributeValue(null, "lanes"),
+                xmlParser.getAttributeValue(null, "schedule"),
+                xmlParser.getIntegerAttributeValue(null, "balkingThreshold", Abandonment.NEVER),
+                xmlParser.getIntegerAttributeValue(null, "patience", Abandonment.NEVER),
+                (report != null ? report : "results"));
+        if (!scenario.report.matches("results|summary|none")) {
+            throw new IllegalArgumentException("Unknown report '" + report + "' of scenario '" + name + "'");
+        }
+        xmlParser.nextTag();
+        while (xmlParser.nextBeginTag("cashier")) {
+            scenario.cashiers.add(new String[]{
+                    LaneMix.parse(xmlParser.getAttributeValue(null, "lane")).toString(),
+                    xmlParser.getAttributeValue(null, "name")});
+            xmlParser.findAndAcceptEndTag("cashier");
+        }
+        xmlParser.findAndAcceptEndTag("scenario");
+        if (scenario.lanes == null && scenario.cashiers.isEmpty() && scenario.schedule == null) {
+            throw new IllegalArgumentException("Scenario '" + name + "' has no cashiers");
+        }
+        return scenario;
+    }
+
+    /**
+     * parses every dataset once and simulates its scenarios in parallel, then prints their reports in order
+     * @param datasets
+     * @param parallelism
+     */
+    public static void run(List<Dataset> datasets, int parallelism) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            for (Dataset dataset : datasets) {
+                Supermarket supermarket = Supermarket.importFromXML(dataset.file);
+                if (supermarket == null) {
+                    SLF4J.LOGGER.error("Skipping the scenarios of dataset " + dataset.file);
+                    continue;
+                }
+                if (dataset.customerStatistics) {
+                    supermarket.printCustomerStatistics();
+                }
+
+                List<Future<Supermarket>> simulations = new ArrayList<>(dataset.scenarios.size());
+                for (Scenario scenario : dataset.scenarios) {
+                    simulations.add(executor.submit(() -> {
+                        Supermarket copy = supermarket.copyForSimulation();
+                        scenario.configure(copy);
+                        copy.simulateCashiers();
+                        return copy;
+                    }));
+                }
+                for (int s = 0; s < simulations.size(); s++) {
+                    report(dataset.scenarios.get(s), simulations.get(s).get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Scenarios have been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scenario failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void report(Scenario scenario, Supermarket simulated) {
+        switch (scenario.report) {
+            case "results":
+                simulated.printSimulationResults();
+                break;
+            case "summary":
+                System.out.printf("%s: %s\n", scenario.name, simulated.getSimulationStatistics());
+                break;
+            default:
+                break;
+        }
+    }
+
+    public static void main(String[] args) {
+        run(importFromXML(args.length > 0 ? args[0] : "scenarios.xml"), Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * a sweep of datasets x lane mixes x replications that is too big for a single JVM
+ * the coordinator splits the sweep into shards, and launches a local worker JVM per shard
+ * on the same class path. each worker loads only the datasets of its own shard.
+ * coordinator and workers communicate by files in a work directory:
+ *      shard-i.txt         the lane mixes and the tasks of worker i
+ *      result-i.txt        the statistics of every task and lane mix, encoded by SimulationStatistics.toRecord
+ * a task is a dataset with either its own customers, in a sweep without replications,
+ * or a set of random customers generated from its seed, which all lane mixes share (common random numbers)
+ * the coordinator merges the statistics of all workers per lane mix, including their waiting time histograms
+ *
+ * run with:  ShardedSweep nWorkers nReplications seed datasets laneMix...
+ *            datasets is a directory with xml files or a glob pattern, see BatchRunner
+ * e.g.       ShardedSweep 4 10 42 src/main/resources/jambi*.xml FIFO 2xFIFO PRIO:5
+ * workers run with:  ShardedSweep --worker shardFile resultFile
+ */
+public class ShardedSweep {
+    private static final String WORKER = "--worker";
+
+    private final List<String> datasets;
+    private final List<LaneMix> laneMixes;
+    private final int nReplications;        // 0 to simulate the customers of the datasets themselves
+    private final long seed;
+
+    /**
+     * a dataset with the customers of a single replication
+     */
+    static class Task {
+        final String dataset;
+        final int replication;      // -1 for the customers of the dataset itself
+        final long seed;
+
+        Task(String dataset, int replication, long seed) {
+            this.dataset = dataset;
+            this.replication = replication;
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            return dataset + "\t" + replication + "\t" + seed;
+        }
+
+        static Task parse(String line) {
+            String[] fields = line.split("\t");
+            return new Task(fields[0], Integer.parseInt(fields[1]), Long.parseLong(fields[2]));
+        }
+    }
+
+    /**
+     * the merged statistics of a sweep
+     */
+    public static class Result {
+        private final Map<LaneMix, SimulationStatistics> perLaneMix = new LinkedHashMap<>();
+        private final Map<String, Map<LaneMix, SimulationStatistics>> perDataset = new LinkedHashMap<>();
+        private int nTasks;
+
+        Result(List<String> datasets, List<LaneMix> laneMixes) {
+            for (LaneMix laneMix : laneMixes) {
+                perLaneMix.put(laneMix, new SimulationStatistics());
+            }
+            for (String dataset : datasets) {
+                Map<LaneMix, SimulationStatistics> statistics = new LinkedHashMap<>();
+                for (LaneMix laneMix : laneMixes) {
+                    statistics.put(laneMix, new SimulationStatistics());
+                }
+                perDataset.put(dataset, statistics);
+            }
+        }
+
+        void merge(String dataset, LaneMix laneMix, SimulationStatistics statistics) {
+            perLaneMix.get(laneMix).merge(statistics);
+            perDataset.get(dataset).get(laneMix).merge(statistics);
+        }
+
+        /**
+         * @return the statistics of all datasets and replications of the lane mix
+         */
+        public SimulationStatistics getStatistics(LaneMix laneMix) {
+            return perLaneMix.get(laneMix);
+        }
+
+        /**
+         * @return the statistics of all replications of the lane mix for the dataset
+         */
+        public SimulationStatistics getStatistics(String dataset, LaneMix laneMix) {
+            return perDataset.get(dataset).get(laneMix);
+        }
+
+        public int getNumberOfTasks() {
+            return nTasks;
+        }
+    }
+
+    public ShardedSweep(List<String> datasets, List<LaneMix> laneMixes, int nReplications, long seed) {
+        this.datasets = datasets;
+        this.laneMixes = laneMixes;
+        this.nReplications = nReplications;
+        this.seed = seed;
+    }
+
+    /**
+     * lists all tasks of the sweep in order of dataset, such that each shard covers as few datasets as possible
+     * every replication has the same seed for all datasets
+     * @return
+     */
+    List<Task> tasks() {
+        List<Task> tasks = new ArrayList<>(datasets.size() * Math.max(1, nReplications));
+        if (nReplications == 0) {
+            for (String dataset : datasets) {
+                tasks.add(new Task(dataset, -1, 0L));
+            }
+            return tasks;
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long[] replicationSeeds = new long[nReplications];
+        for (int r = 0; r < nReplications; r++) {
+            replicationSeeds[r] = seeds.split().nextLong();
+        }
+        for (String dataset : datasets) {
+            for (int r = 0; r < nReplications; r++) {
+                tasks.add(new Task(dataset, r, replicationSeeds[r]));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * runs the sweep on nWorkers local worker processes, and waits for all of them to finish
+     * @param nWorkers
+     * @param workDirectory     receives the shard and result files
+     * @return the merged statistics of all workers
+     * @throws IOException
+     * @throws IllegalStateException if a worker fails
+     */
+    public Result run(int nWorkers, Path workDirectory) throws IOException {
+        Files.createDirectories(workDirectory);
+        List<Task> tasks = tasks();
+        int nShards = Math.max(1, Math.min(nWorkers, tasks.size()));
+
+        String javaCommand = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+        Process[] workers = new Process[nShards];
+        Path[] resultFiles = new Path[nShards];
+        Result result = new Result(datasets, laneMixes);
+        try {
+            for (int s = 0; s < nShards; s++) {
+                // contiguous shards of (almost) equal size
+                List<Task> shard = tasks.subList(s * tasks.size() / nShards, (s + 1) * tasks.size() / nShards);
+                Path shardFile = workDirectory.resolve("shard-" + s + ".txt");
+                resultFiles[s] = workDirectory.resolve("result-" + s + ".txt");
+                writeShard(shardFile, shard);
+                workers[s] = new ProcessBuilder(javaCommand, "-cp", classPath, ShardedSweep.class.getName(),
+                        WORKER, shardFile.toString(), resultFiles[s].toString())
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+            }
+            for (int s = 0; s < nShards; s++) {
+                int exitCode = workers[s].waitFor();
+                if (exitCode != 0) {
+                    throw new IllegalStateException("Worker " + s + " failed with exit code " + exitCode);
+                }
+                readResults(resultFiles[s], result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep has been interrupted", e);
+        } finally {
+            for (Process worker : workers) {
+                if (worker != null) worker.destroy();
+            }
+        }
+        return result;
+    }
+
+    private void writeShard(Path shardFile, List<Task> shard) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(shardFile))) {
+            for (LaneMix laneMix : laneMixes) {
+                out.println("mix\t" + laneMix);
+            }
+            for (Task task : shard) {
+                out.println("task\t" + task);
+            }
+        }
+    }
+
+    private void readResults(Path resultFile, Result result) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(resultFile)) {
+            String line;
+            String dataset = null;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields[0].equals("task")) {
+                    dataset = fields[1];
+                    result.nTasks++;
+                } else {
+                    result.merge(dataset, LaneMix.parse(fields[0]), SimulationStatistics.fromRecord(fields[1]));
+                }
+            }
+        }
+    }
+
+    /**
+     * simulates all tasks of a shard file, and writes the statistics of every task and lane mix to the result file
+     * consecutive tasks of the same dataset load it only once
+     * @param shardFile
+     * @param resultFile
+     * @throws IOException
+     */
+    static void runWorker(Path shardFile, Path resultFile) throws IOException {
+        List<LaneMix> laneMixes = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (String line : Files.readAllLines(shardFile)) {
+            int tab = line.indexOf('\t');
+            if (line.startsWith("mix\t")) {
+                laneMixes.add(LaneMix.parse(line.substring(tab + 1)));
+            } else if (line.startsWith("task\t")) {
+                tasks.add(Task.parse(line.substring(tab + 1)));
+            }
+        }
+
+        Supermarket dataset = null;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(resultFile))) {
+            for (Task task : tasks) {
+                if (dataset == null || !dataset.name.equals(task.dataset)) {
+                    dataset = Supermarket.importFromXML(task.dataset, true);
+                    if (dataset == null) {
+                        throw new IOException("Cannot load dataset " + task.dataset);
+                    }
+                }
+                Supermarket supermarket = (task.replication < 0 ? dataset : replicate(dataset, task));
+                out.println("task\t" + task);
+                for (LaneMix laneMix : laneMixes) {
+                    supermarket.getCashiers().clear();
+                    supermarket.getCashiers().addAll(laneMix.createCashiers());
+                    supermarket.simulateCashiers();
+                    out.println(laneMix + "\t" + supermarket.getSimulationStatistics().toRecord());
+                }
+            }
+        }
+    }
+
+    /**
+     * generates random customers for a task from the products and opening hours of its dataset,
+     * as many and with as many items on average as the dataset itself
+     * @param dataset
+     * @param task
+     * @return
+     */
+    private static Supermarket replicate(Supermarket dataset, Task task) {
+        int nCustomers = dataset.getCustomers().size();
+        int averageNrItems = Math.max(1, Math.round(dataset.getTotalNumberOfItems() / (float) Math.max(1, nCustomers)));
+        Supermarket supermarket = new Supermarket(dataset.name + "#" + task.replication,
+                dataset.getOpenTime(), dataset.getClosingTime());
+        supermarket.getProducts().addAll(dataset.getProducts());
+        supermarket.getCustomers().addAll(supermarket.randomCustomerGenerator(averageNrItems, task.seed).generate(nCustomers, 1));
+        return supermarket;
+    }
+
+    /**
+     * reports the merged statistics per lane mix
+     * @param result
+     * @param out
+     */
+    public void printResults(Result result, PrintStream out) {
+        out.printf("\nSweep results of %d task(s) over %d dataset(s):\n", result.getNumberOfTasks(), datasets.size());
+        out.println("Lane mix:\t\t\tstatistics:");
+        for (LaneMix laneMix : laneMixes) {
+            out.printf("\t%-20s\t%s\n", laneMix, result.getStatistics(laneMix));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals(WORKER)) {
+            runWorker(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        int nWorkers = (args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors());
+        int nReplications = (args.length > 1 ? Integer.parseInt(args[1]) : 0);
+        long seed = (args.length > 2 ? Long.parseLong(args[2]) : 20191103L);
+        List<String> datasets = new ArrayList<>();
+        for (Path dataset : BatchRunner.findDatasets(args.length > 3 ? args[3] : "src/main/resources")) {
+            datasets.add(dataset.toString());
+        }
+        List<LaneMix> laneMixes = new ArrayList<>();
+        for (String mix : (args.length > 4 ? Arrays.copyOfRange(args, 4, args.length) : new String[]{"FIFO", "2xFIFO", "PRIO:5"})) {
+            laneMixes.add(LaneMix.parse(mix));
+        }
+
+        ShardedSweep sweep = new ShardedSweep(datasets, laneMixes, nReplications, seed);
+        Path workDirectory = Files.createTempDirectory("sweep");
+        sweep.printResults(sweep.run(nWorkers, workDirectory), System.out);
+        for (File file : workDirectory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(workDirectory);
+    }
+}
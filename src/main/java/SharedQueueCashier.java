@@ -0,0 +1,319 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.UnaryOperator;
+
+/**
+ * a single waiting line that is served by several stations, e.g. a bank of self-service check-outs
+ * the customer at the head of the line goes to the first station that becomes free
+ * because the line is served in order of arrival, the station and start time of a customer are known
+ * as soon as the customer joins the line: the stations are kept in a min-heap of the times at which they
+ * become free, such that adding a customer costs O(log c) for c stations
+ * each station has its own service rate relative to a regular cashier, e.g. 0.5 for a station at which
+ * customers take twice as long to check out
+ * the idle time of the lane is the sum of the idle times of its stations
+ */
+public class SharedQueueCashier extends Cashier {
+
+    protected int checkoutTimePerCustomer = 20;
+    protected int checkoutTimePerItem = 2;
+
+    private final double[] serviceRates;    // per station
+    private int[] stationHeap;              // stations, ordered by the time they become free
+    private int[] freeAt;                   // per station the time it has finished all assigned customers
+    private int nBusy;                      // number of stations that are checking out a customer
+
+    // the check-outs that have been assigned to a station, but have not yet started
+    private ArrayDeque<CheckOut> pending = new ArrayDeque<>();
+    // the check-outs that are in progress, ordered by their end time
+    private PriorityQueue<CheckOut> inService = new PriorityQueue<>(CHECK_OUT_ORDER);
+
+    private static final Comparator<CheckOut> CHECK_OUT_ORDER =
+            Comparator.<CheckOut>comparingInt(c -> c.end).thenComparingInt(c -> c.station);
+
+    /**
+     * the assignment of a customer to a station
+     */
+    private static class CheckOut {
+        final Customer customer;
+        final int station;
+        final int start;
+        final int end;
+
+        CheckOut(Customer customer, int station, int start, int end) {
+            this.customer = customer;
+            this.station = station;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * creates a shared line with nStations stations that all work at the speed of a regular cashier
+     * @param name
+     * @param nStations
+     */
+    public SharedQueueCashier(String name, int nStations) {
+        this(name, uniformRates(nStations));
+    }
+
+    /**
+     * creates a shared line with a station per service rate
+     * @param name
+     * @param serviceRates  relative speed of each station, 1.0 being the speed of a regular cashier
+     */
+    public SharedQueueCashier(String name, double... serviceRates) {
+        super(name);
+        if (serviceRates.length == 0) {
+            throw new IllegalArgumentException("A shared line needs at least one station");
+        }
+        for (double rate : serviceRates) {
+            if (!(rate > 0.0)) throw new IllegalArgumentException("Service rates must be positive: " + rate);
+        }
+        this.serviceRates = serviceRates.clone();
+        this.waitingQueue = new ArrayDeque<>();
+        this.stationHeap = new int[serviceRates.length];
+        this.freeAt = new int[serviceRates.length];
+        resetStations(0);
+    }
+
+    private static double[] uniformRates(int nStations) {
+        double[] rates = new double[nStations];
+        Arrays.fill(rates, 1.0);
+        return rates;
+    }
+
+    private void resetStations(int time) {
+        for (int station = 0; station < stationHeap.length; station++) {
+            stationHeap[station] = station;
+            freeAt[station] = time;
+        }
+        nBusy = 0;
+    }
+
+    @Override
+    public void reStart(int currentTime) {
+        super.reStart(currentTime);
+        this.pending.clear();
+        this.inService.clear();
+        resetStations(currentTime);
+    }
+
+    @Override
+    public SharedQueueCashier copy(UnaryOperator<Customer> customerMapping) {
+        SharedQueueCashier copy = (SharedQueueCashier) super.copy(customerMapping);
+        copy.stationHeap = this.stationHeap.clone();
+        copy.freeAt = this.freeAt.clone();
+        copy.pending = new ArrayDeque<>();
+        for (CheckOut c : this.pending) {
+            copy.pending.add(new CheckOut(customerMapping.apply(c.customer), c.station, c.start, c.end));
+        }
+        copy.inService = new PriorityQueue<>(CHECK_OUT_ORDER);
+        for (CheckOut c : this.inService) {
+            copy.inService.add(new CheckOut(customerMapping.apply(c.customer), c.station, c.start, c.end));
+        }
+        return copy;
+    }
+
+    @Override
+    public void restoreFrom(Cashier snapshot, UnaryOperator<Customer> customerMapping) {
+        super.restoreFrom(snapshot, customerMapping);
+        SharedQueueCashier shared = (SharedQueueCashier) snapshot;
+        System.arraycopy(shared.stationHeap, 0, this.stationHeap, 0, this.stationHeap.length);
+        System.arraycopy(shared.freeAt, 0, this.freeAt, 0, this.freeAt.length);
+        this.nBusy = shared.nBusy;
+        this.pending.clear();
+        for (CheckOut c : shared.pending) {
+            this.pending.add(new CheckOut(customerMapping.apply(c.customer), c.station, c.start, c.end));
+        }
+        this.inService.clear();
+        for (CheckOut c : shared.inService) {
+            this.inService.add(new CheckOut(customerMapping.apply(c.customer), c.station, c.start, c.end));
+        }
+    }
+
+    @Override
+    public String getLaneType() {
+        for (double rate : serviceRates) {
+            if (rate != 1.0) {
+                StringBuilder rates = new StringBuilder();
+                for (double r : serviceRates) {
+                    rates.append(rates.length() > 0 ? ";" : "").append(r);
+                }
+                return "SHARED:" + rates;
+            }
+        }
+        return "SHARED:" + serviceRates.length;
+    }
+
+    /**
+     * the customer is assigned to the station that becomes free first, and starts at that time
+     * or at arrival, whichever comes last
+     * the planned start and end are only recorded with the assignment; the waiting and check-out times
+     * of the customer are set when the check-out actually starts and ends
+     * @param customer
+     */
+    @Override
+    public void add(Customer customer) {
+        if (customer.getNumberOfItems() <= 0) return;
+
+        int arrival = customer.getQueuedAt().toSecondOfDay();
+        int station = stationHeap[0];
+        int start = Math.max(arrival, freeAt[station]);
+        int checkOutTime = stationCheckOutTime(station, customer.getNumberOfItems());
+        freeAt[station] = start + checkOutTime;
+        siftDown(0);
+
+        customer.setCheckOutCashier(this);
+        waitingQueue.add(customer);
+        pending.add(new CheckOut(customer, station, start, start + checkOutTime));
+
+        int currentQueueLength = pending.size() + inService.size();
+        if (currentQueueLength > maxQueueLength) {
+            maxQueueLength = currentQueueLength;
+        }
+        if (listener != null) {
+            listener.onArrival(this, customer, arrival, currentQueueLength);
+        }
+    }
+
+    private int stationCheckOutTime(int station, int numberOfItems) {
+        return (int) Math.round((checkoutTimePerCustomer + numberOfItems * checkoutTimePerItem) / serviceRates[station]);
+    }
+
+    /**
+     * restores the heap order after the free time of the station at the given heap position has increased
+     * @param position
+     */
+    private void siftDown(int position) {
+        int station = stationHeap[position];
+        int n = stationHeap.length;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= n) break;
+            if (child + 1 < n && isBefore(stationHeap[child + 1], stationHeap[child])) child++;
+            if (!isBefore(stationHeap[child], station)) break;
+            stationHeap[position] = stationHeap[child];
+            position = child;
+        }
+        stationHeap[position] = station;
+    }
+
+    private boolean isBefore(int station1, int station2) {
+        return freeAt[station1] < freeAt[station2] || (freeAt[station1] == freeAt[station2] && station1 < station2);
+    }
+
+    /**
+     * a customer in a shared line has been assigned a station on arrival, and does not renege
+     * @param customer
+     * @return false
+     */
+    @Override
+    public boolean renege(Customer customer) {
+        return false;
+    }
+
+    /**
+     * the expected check-out time at the station that will serve the next customer
+     * @param numberOfItems
+     * @return
+     */
+    @Override
+    public int expectedCheckOutTime(int numberOfItems) {
+        if (numberOfItems > 0)
+            return stationCheckOutTime(stationHeap[0], numberOfItems);
+        else
+            return 0;
+    }
+
+    /**
+     * a customer that has not joined the line waits until the first station becomes free
+     * after all customers in the line have been assigned; a customer in the line waits until its planned start time
+     * @param customer
+     * @return
+     */
+    @Override
+    public int expectedWaitingTime(Customer customer) {
+        if (customer.getCheckOutCashier() != this) {
+            return Math.max(0, freeAt[stationHeap[0]] - currentTime);
+        }
+        for (CheckOut checkOut : pending) {
+            if (checkOut.customer == customer) {
+                return Math.max(0, checkOut.start - currentTime);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * proceeds from event to event: check-outs that end and check-outs that start, in order of time
+     * at equal times check-outs end before others start
+     * @param targetTime
+     */
+    @Override
+    public void doTheWorkUntil(int targetTime) {
+        while (true) {
+            CheckOut nextStart = pending.peek();
+            CheckOut nextEnd = inService.peek();
+            boolean ending = nextEnd != null && (nextStart == null || nextEnd.end <= nextStart.start);
+            int eventTime = (ending ? nextEnd.end : nextStart != null ? nextStart.start : Integer.MAX_VALUE);
+            if (eventTime > targetTime) break;
+
+            advanceTo(eventTime);
+            if (ending) {
+                inService.poll();
+                nBusy--;
+                nextEnd.customer.setActualCheckOutTime(nextEnd.end - nextEnd.start);
+                if (listener != null) {
+                    listener.onServiceEnd(this, nextEnd.customer, eventTime);
+                }
+            } else {
+                pending.poll();
+                waitingQueue.poll();
+                inService.add(nextStart);
+                nBusy++;
+                nextStart.customer.setActualWaitingTime(eventTime - nextStart.customer.getQueuedAt().toSecondOfDay());
+                if (listener != null) {
+                    listener.onServiceStart(this, nextStart.customer, eventTime);
+                }
+            }
+        }
+        advanceTo(targetTime);
+    }
+
+    /**
+     * advances the clock, accounting the idle time of all stations that are not busy
+     * idle events are only reported while all stations are idle
+     * @param time
+     */
+    private void advanceTo(int time) {
+        if (time <= currentTime) return;
+        if (!open && staffed && pending.isEmpty() && inService.isEmpty()) {
+            // a closing line leaves as soon as all its customers have been handled
+            staffed = false;
+            closedAt = currentTime;
+        }
+        if (staffed) {
+            totalIdleTime += (serviceRates.length - nBusy) * (time - currentTime);
+            if (nBusy == 0 && listener != null) {
+                listener.onIdle(this, currentTime, time);
+            }
+        }
+        currentTime = time;
+    }
+
+    @Override
+    public void finishWork(int closingTime, int overtime) {
+        int overtimeSecond = closingTime + overtime;
+        doTheWorkUntil(overtimeSecond);
+        int staffedUntil = (this.staffed ? overtimeSecond : Math.min(overtimeSecond, this.closedAt));
+        this.currentTime -= overtime;
+        // all stations are idle after the last customer, and have been so during the overtime
+        this.totalIdleTime -= serviceRates.length * Math.max(0, staffedUntil - closingTime);
+    }
+
+    public int getNumberOfStations() {
+        return serviceRates.length;
+    }
+}
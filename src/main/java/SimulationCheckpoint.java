@@ -0,0 +1,89 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.time.LocalTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a snapshot of a stepwise simulation of a supermarket at a given time:
+ * the state of all cashiers with their queues and customers in service, and the outcome so far
+ * of all customers that have arrived before that time
+ * the snapshot itself is never modified, such that any number of what-if branches can be resumed from it,
+ * either in place with Supermarket.restore or on independent copies with fork.
+ * the state of a simulation listener is not part of the snapshot
+ */
+public class SimulationCheckpoint {
+    final Supermarket supermarket;      // the supermarket that has been simulated
+    final int time;                     // simulation time of the snapshot in seconds of the day
+    final Customer[] shoppingQueue;     // the customers of the supermarket in order of arrival
+    final int nextArrival;              // number of customers that have arrived before the snapshot
+    final int[] actualWaitingTimes;     // per arrived customer
+    final int[] actualCheckOutTimes;    // per arrived customer
+    final int[] checkOutCashiers;       // per arrived customer the index of its cashier, or -1
+    final List<Cashier> lanes;          // the cashiers of the supermarket, into which restore copies their state back
+    final List<Cashier> cashiers;       // copies of the cashiers at the time of the snapshot
+    final int[] scheduledLanes;         // indexes of the cashiers that have been added by the staffing schedule
+    final Supermarket.ScheduledEvents scheduledEvents;  // the scheduled opening and closing of cashiers
+    final int nextEvent;                // index of the next scheduled event
+    private Map<Customer, Integer> arrivalIndex;
+
+    SimulationCheckpoint(Supermarket supermarket, int time, Customer[] shoppingQueue, int nextArrival,
+                         int[] actualWaitingTimes, int[] actualCheckOutTimes, int[] checkOutCashiers,
+                         List<Cashier> lanes, List<Cashier> cashiers, int[] scheduledLanes, Supermarket.ScheduledEvents scheduledEvents, int nextEvent) {
+        this.supermarket = supermarket;
+        this.time = time;
+        this.shoppingQueue = shoppingQueue;
+        this.nextArrival = nextArrival;
+        this.actualWaitingTimes = actualWaitingTimes;
+        this.actualCheckOutTimes = actualCheckOutTimes;
+        this.checkOutCashiers = checkOutCashiers;
+        this.lanes = lanes;
+        this.cashiers = cashiers;
+        this.scheduledLanes = scheduledLanes;
+        this.scheduledEvents = scheduledEvents;
+        this.nextEvent = nextEvent;
+    }
+
+    /**
+     * creates an independent copy of the supermarket that continues the simulation from this snapshot
+     * forks can be simulated in parallel
+     * @return
+     * @throws IllegalStateException if customers of the supermarket may abandon in the meantime
+     */
+    public Supermarket fork() {
+        return supermarket.fork(this);
+    }
+
+    /**
+     * @return the position in order of arrival of a customer that has arrived before the snapshot
+     * @param customer
+     */
+    synchronized int arrivalIndexOf(Customer customer) {
+        if (arrivalIndex == null) {
+            arrivalIndex = new IdentityHashMap<>(2 * nextArrival);
+            for (int i = 0; i < nextArrival; i++) {
+                arrivalIndex.put(shoppingQueue[i], i);
+            }
+        }
+        return arrivalIndex.get(customer);
+    }
+
+    public LocalTime getTime() {
+        return LocalTime.ofSecondOfDay(Math.floorMod(time, Cashier.SECONDS_PER_DAY));
+    }
+
+    public int getSecondOfDay() {
+        return time;
+    }
+
+    /**
+     * @return the number of customers that have arrived before the snapshot
+     */
+    public int getNumberOfArrivals() {
+        return nextArrival;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.util.List;
+
+/**
+ * receives the events of a cashier simulation as they happen
+ * all times are in seconds of the day, and may exceed a day while cashiers are working overtime
+ * a listener that is shared by simulations running in parallel must be thread-safe
+ */
+public interface SimulationListener {
+
+    /**
+     * a simulation starts with the given cashiers at openTime
+     * @param cashiers
+     * @param openTime
+     * @param closingTime
+     */
+    default void onSimulationStart(List<Cashier> cashiers, int openTime, int closingTime) {
+    }
+
+    /**
+     * a customer has joined the queue of a cashier
+     * @param cashier
+     * @param customer
+     * @param time
+     * @param queueLength   the number of customers at the cashier, including the one being served
+     */
+    default void onArrival(Cashier cashier, Customer customer, int time, int queueLength) {
+    }
+
+    /**
+     * a cashier starts the check-out of a customer
+     * @param cashier
+     * @param customer
+     * @param time
+     */
+    default void onServiceStart(Cashier cashier, Customer customer, int time) {
+    }
+
+    /**
+     * a cashier has finished the check-out of a customer
+     * @param cashier
+     * @param customer
+     * @param time
+     */
+    default void onServiceEnd(Cashier cashier, Customer customer, int time) {
+    }
+
+    /**
+     * a customer has left without checking out: either on arrival because the expected wait at the cashier
+     * of its choice was too long (balking), or from the queue of the cashier when its patience ran out (reneging)
+     * a customer that reneges is still assigned to the cashier (Customer.getCheckOutCashier) during this event
+     * @param cashier
+     * @param customer
+     * @param time
+     */
+    default void onAbandon(Cashier cashier, Customer customer, int time) {
+    }
+
+    /**
+     * a cashier has been sitting idle from fromTime until toTime
+     * @param cashier
+     * @param fromTime
+     * @param toTime
+     */
+    default void onIdle(Cashier cashier, int fromTime, int toTime) {
+    }
+
+    /**
+     * all cashiers have finished their work, including any overtime
+     * @param cashiers
+     */
+    default void onSimulationEnd(List<Cashier> cashiers) {
+    }
+}
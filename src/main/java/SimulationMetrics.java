@@ -0,0 +1,191 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * collects metrics of cashier simulations from their events
+ * all counters are striped, such that simulations running in parallel can share one collector
+ * without contending on the same memory
+ */
+public class SimulationMetrics implements SimulationListener {
+
+    /**
+     * the counters of a single lane
+     */
+    public static class LaneMetrics {
+        final LongAdder customers = new LongAdder();
+        final LongAdder arrivals = new LongAdder();
+        final LongAdder waitingSeconds = new LongAdder();
+        final LongAdder busySeconds = new LongAdder();
+        final LongAdder idleSeconds = new LongAdder();
+        final LongAdder queueLengthAtArrival = new LongAdder();
+        final LongAdder abandoned = new LongAdder();
+        final LongAccumulator maxQueueLength = new LongAccumulator(Math::max, 0);
+
+        public long getCustomers() {
+            return customers.sum();
+        }
+
+        public double getAverageWaitingTime() {
+            long n = customers.sum();
+            return (n > 0 ? waitingSeconds.sum() / (double) n : 0.0);
+        }
+
+        /**
+         * @return the fraction of the time that the lane has been checking out customers
+         */
+        public double getUtilization() {
+            long busy = busySeconds.sum();
+            long total = busy + idleSeconds.sum();
+            return (total > 0 ? busy / (double) total : 0.0);
+        }
+
+        /**
+         * @return the number of customers that have joined the queue of the lane
+         */
+        public long getArrivals() {
+            return arrivals.sum();
+        }
+
+        /**
+         * @return the average number of customers at the lane, as seen by an arriving customer
+         */
+        public double getAverageQueueLength() {
+            long n = arrivals.sum();
+            return (n > 0 ? queueLengthAtArrival.sum() / (double) n : 0.0);
+        }
+
+        public long getMaxQueueLength() {
+            return maxQueueLength.get();
+        }
+
+        /**
+         * @return the number of customers that balked at or reneged from the lane
+         */
+        public long getAbandoned() {
+            return abandoned.sum();
+        }
+    }
+
+    private final Map<Cashier, LaneMetrics> lanes = new ConcurrentHashMap<>();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder simulations = new LongAdder();
+    private final LongAdder simulationNanos = new LongAdder();
+    private final ThreadLocal<long[]> simulationStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    private LaneMetrics lane(Cashier cashier) {
+        return lanes.computeIfAbsent(cashier, c -> new LaneMetrics());
+    }
+
+    @Override
+    public void onSimulationStart(List<Cashier> cashiers, int openTime, int closingTime) {
+        for (Cashier cashier : cashiers) {
+            lane(cashier);
+        }
+        simulationStart.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void onArrival(Cashier cashier, Customer customer, int time, int queueLength) {
+        events.increment();
+        LaneMetrics lane = lane(cashier);
+        lane.arrivals.increment();
+        lane.queueLengthAtArrival.add(queueLength);
+        lane.maxQueueLength.accumulate(queueLength);
+    }
+
+    @Override
+    public void onServiceStart(Cashier cashier, Customer customer, int time) {
+        events.increment();
+        LaneMetrics lane = lane(cashier);
+        lane.customers.increment();
+        lane.waitingSeconds.add(customer.getActualWaitingTime());
+    }
+
+    @Override
+    public void onServiceEnd(Cashier cashier, Customer customer, int time) {
+        events.increment();
+        lane(cashier).busySeconds.add(customer.getActualCheckOutTime());
+    }
+
+    @Override
+    public void onIdle(Cashier cashier, int fromTime, int toTime) {
+        events.increment();
+        lane(cashier).idleSeconds.add(toTime - fromTime);
+    }
+
+    @Override
+    public void onAbandon(Cashier cashier, Customer customer, int time) {
+        events.increment();
+        lane(cashier).abandoned.increment();
+    }
+
+    @Override
+    public void onSimulationEnd(List<Cashier> cashiers) {
+        simulations.increment();
+        simulationNanos.add(System.nanoTime() - simulationStart.get()[0]);
+    }
+
+    public LaneMetrics getLaneMetrics(Cashier cashier) {
+        return lanes.get(cashier);
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getSimulations() {
+        return simulations.sum();
+    }
+
+    /**
+     * @return the number of events processed per second of wall time spent in the simulations
+     */
+    public double getEventsPerSecond() {
+        long nanos = simulationNanos.sum();
+        return (nanos > 0 ? events.sum() * 1e9 / nanos : 0.0);
+    }
+
+    /**
+     * clears all collected metrics
+     */
+    public void reset() {
+        lanes.clear();
+        events.reset();
+        simulations.reset();
+        simulationNanos.reset();
+    }
+
+    /**
+     * reports the collected metrics per lane, in order of lane name
+     * idle time includes the idle overtime after closing time
+     * @param out
+     */
+    public void printMetrics(PrintStream out) {
+        out.printf("\nSimulation metrics of %d simulation(s): %d events, %.0f events/s\n",
+                getSimulations(), getEvents(), getEventsPerSecond());
+        out.println("Cashiers:\tn-customers:\tavg-wait-time:\tutilization:\tavg-queue-length:\tmax-queue-length:");
+        List<Map.Entry<Cashier, LaneMetrics>> byName = new ArrayList<>(lanes.entrySet());
+        byName.sort(Comparator.comparing(entry -> entry.getKey().getName()));
+        for (Map.Entry<Cashier, LaneMetrics> entry : byName) {
+            LaneMetrics lane = entry.getValue();
+            out.printf("\t%s\t\t%4d\t\t\t%3.2f\t\t\t%3.2f\t\t\t%3.2f\t\t\t\t%4d\n",
+                    entry.getKey().getName(),
+                    lane.getCustomers(),
+                    lane.getAverageWaitingTime(),
+                    lane.getUtilization(),
+                    lane.getAverageQueueLength(),
+                    lane.getMaxQueueLength());
+        }
+    }
+}
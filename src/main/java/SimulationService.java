@@ -0,0 +1,148 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.SLF4J;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * a long-running simulation service on localhost, which keeps recently used datasets parsed in a DatasetCache
+ * such that what-if questions are answered without JVM startup and parsing:
+ *      GET /simulate?dataset=jambi250_8.xml&lanes=2xFIFO,PRIO:5
+ *                  simulates the lane mix on the dataset and answers its statistics
+ *      GET /cache  lists the cached datasets
+ * answers are plain text lines of name=value
+ *
+ * run with:  SimulationService port maxCachedCustomers
+ * e.g.       SimulationService 8080 1000000
+ */
+public class SimulationService {
+    private final DatasetCache datasets;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * creates a service on the loopback address
+     * @param port                  the port, or 0 for any free port
+     * @param maxCachedCustomers    bounds the cache by the total number of customers of its datasets
+     * @throws IOException
+     */
+    public SimulationService(int port, int maxCachedCustomers) throws IOException {
+        this.datasets = new DatasetCache(maxCachedCustomers);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/simulate", this::handleSimulate);
+        this.server.createContext("/cache", this::handleCache);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * stops accepting requests and waits at most the given delay for the running requests to finish
+     * @param delaySeconds
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public DatasetCache getDatasets() {
+        return datasets;
+    }
+
+    /**
+     * simulates a lane mix on a copy of a cached dataset
+     * @param dataset
+     * @param laneMix
+     * @return
+     */
+    public SimulationStatistics simulate(String dataset, LaneMix laneMix) {
+        Supermarket supermarket = datasets.get(dataset).copyForSimulation();
+        supermarket.getCashiers().addAll(laneMix.createCashiers());
+        supermarket.simulateCashiers();
+        return supermarket.getSimulationStatistics();
+    }
+
+    private void handleSimulate(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        Map<String, String> parameters = parameters(exchange);
+        String dataset = parameters.get("dataset");
+        String lanes = parameters.get("lanes");
+        if (dataset == null || lanes == null) {
+            respond(exchange, 400, "error=parameters dataset and lanes are required\n");
+            return;
+        }
+        try {
+            SimulationStatistics statistics = simulate(dataset, LaneMix.parse(lanes));
+            respond(exchange, 200, String.format(Locale.US,
+                    "dataset=%s\nlanes=%s\nn-customers=%d\navg-wait-time=%.2f\np95-wait-time=%d\nmax-wait-time=%d\n" +
+                            "max-queue-length=%d\nidle-time=%d\nabandoned=%d\nmillis=%.3f\n",
+                    dataset, LaneMix.parse(lanes), statistics.getNumberOfCustomers(), statistics.getAverageWaitingTime(),
+                    statistics.getWaitingTimePercentile(0.95), statistics.getMaxWaitingTime(),
+                    statistics.getMaxQueueLength(), statistics.getTotalIdleTime(), statistics.getNumberOfAbandoned(),
+                    (System.nanoTime() - started) / 1e6));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "error=" + e.getMessage() + "\n");
+        } catch (RuntimeException e) {
+            SLF4J.logException("Simulation of " + lanes + " on " + dataset + " failed", e);
+            respond(exchange, 500, "error=" + e.getMessage() + "\n");
+        }
+    }
+
+    private void handleCache(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, String.format("datasets=%d\ncustomers=%d\nhits=%d\nmisses=%d\n%s",
+                datasets.size(), datasets.getNumberOfCustomers(), datasets.getHits(), datasets.getMisses(), datasets));
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return parameters;
+        for (String parameter : query.split("&")) {
+            int is = parameter.indexOf('=');
+            if (is > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, is), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(is + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        int maxCachedCustomers = (args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+        SimulationService service = new SimulationService(port, maxCachedCustomers);
+        service.start();
+        SLF4J.LOGGER.info("Simulation service listening on http://localhost:" + service.getPort() + "/simulate");
+    }
+}
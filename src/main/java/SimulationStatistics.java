@@ -0,0 +1,245 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * summary statistics of the outcome of one or more cashier simulations
+ * the waiting times are kept in a histogram with a bucket per second, such that percentiles are exact
+ * and statistics of separate simulations can be merged into one without the individual customers
+ */
+public class SimulationStatistics {
+    private long nCustomers;            // number of customers that have been checked out
+    private long totalWaitingTime;      // sum of the waiting times of all customers in seconds
+    private long totalCheckOutTime;     // sum of the check-out times of all customers in seconds
+    private long totalIdleTime;         // sum of the idle times of all cashiers in seconds
+    private long nAbandoned;            // number of customers that left without checking out
+    private long nUnserved;             // number of customers without items or not checked out (yet) at the end
+    private int maxQueueLength;         // longest queue at any of the cashiers
+    private long[] waitingTimeCounts = new long[64];    // number of customers per waiting time in seconds
+    private int maxWaitingTime;         // longest waiting time, also the highest used index of the histogram
+
+    public SimulationStatistics() {
+    }
+
+    /**
+     * collects the statistics of the last simulation of the given customers and cashiers
+     * customers that have not been checked out, because they have no items or the simulation ended
+     * before they have finished, are counted separately and do not add to the waiting times
+     * @param customers
+     * @param cashiers
+     * @return
+     */
+    public static SimulationStatistics of(List<Customer> customers, List<Cashier> cashiers) {
+        SimulationStatistics statistics = new SimulationStatistics();
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            if (customer.isAbandoned()) {
+                statistics.nAbandoned++;
+                continue;
+            }
+            if (customer.getActualCheckOutTime() <= 0) {
+                statistics.nUnserved++;
+                continue;
+            }
+            statistics.addCustomer(customer.getActualWaitingTime(), customer.getActualCheckOutTime());
+        }
+        for (Cashier cashier : cashiers) {
+            statistics.totalIdleTime += cashier.getTotalIdleTime();
+            statistics.maxQueueLength = Math.max(statistics.maxQueueLength, cashier.getMaxQueueLength());
+        }
+        return statistics;
+    }
+
+    /**
+     * accounts a single checked out customer
+     * @param waitingTime
+     * @param checkOutTime
+     */
+    public void addCustomer(int waitingTime, int checkOutTime) {
+        int bucket = Math.max(0, waitingTime);
+        if (bucket >= waitingTimeCounts.length) {
+            waitingTimeCounts = Arrays.copyOf(waitingTimeCounts, Math.max(bucket + 1, 2 * waitingTimeCounts.length));
+        }
+        waitingTimeCounts[bucket]++;
+        maxWaitingTime = Math.max(maxWaitingTime, bucket);
+        nCustomers++;
+        totalWaitingTime += waitingTime;
+        totalCheckOutTime += checkOutTime;
+    }
+
+    /**
+     * accounts a customer that left without checking out
+     */
+    public void addAbandoned() {
+        nAbandoned++;
+    }
+
+    /**
+     * accounts a customer that has not been checked out by the end of the simulation, nor abandoned
+     */
+    public void addUnserved() {
+        nUnserved++;
+    }
+
+    /**
+     * accounts the length of a queue at some moment
+     * @param queueLength
+     */
+    public void addQueueLength(int queueLength) {
+        maxQueueLength = Math.max(maxQueueLength, queueLength);
+    }
+
+    /**
+     * adds all statistics of another simulation into this one
+     * @param other
+     */
+    public void merge(SimulationStatistics other) {
+        if (other.maxWaitingTime >= waitingTimeCounts.length) {
+            waitingTimeCounts = Arrays.copyOf(waitingTimeCounts, other.maxWaitingTime + 1);
+        }
+        for (int w = 0; w <= other.maxWaitingTime; w++) {
+            waitingTimeCounts[w] += other.waitingTimeCounts[w];
+        }
+        maxWaitingTime = Math.max(maxWaitingTime, other.maxWaitingTime);
+        nCustomers += other.nCustomers;
+        totalWaitingTime += other.totalWaitingTime;
+        totalCheckOutTime += other.totalCheckOutTime;
+        totalIdleTime += other.totalIdleTime;
+        nAbandoned += other.nAbandoned;
+        nUnserved += other.nUnserved;
+        maxQueueLength = Math.max(maxQueueLength, other.maxQueueLength);
+    }
+
+    public long getNumberOfCustomers() {
+        return nCustomers;
+    }
+
+    /**
+     * @return the number of customers that balked or reneged
+     */
+    public long getNumberOfAbandoned() {
+        return nAbandoned;
+    }
+
+    /**
+     * @return the number of customers without items or that had not finished when the simulation ended
+     */
+    public long getNumberOfUnserved() {
+        return nUnserved;
+    }
+
+    public double getAverageWaitingTime() {
+        return (nCustomers > 0 ? totalWaitingTime / (double) nCustomers : 0.0);
+    }
+
+    public double getAverageCheckOutTime() {
+        return (nCustomers > 0 ? totalCheckOutTime / (double) nCustomers : 0.0);
+    }
+
+    public int getMaxWaitingTime() {
+        return maxWaitingTime;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public long getTotalIdleTime() {
+        return totalIdleTime;
+    }
+
+    /**
+     * calculates the waiting time that is not exceeded by the given fraction of the customers
+     * (nearest rank method)
+     * @param fraction  a fraction between 0.0 and 1.0, e.g. 0.95 for the 95th percentile
+     * @return the percentile in seconds, or 0 if no customers have been accounted
+     */
+    public int getWaitingTimePercentile(double fraction) {
+        if (nCustomers == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * nCustomers));
+        long count = 0;
+        for (int w = 0; w <= maxWaitingTime; w++) {
+            count += waitingTimeCounts[w];
+            if (count >= rank) return w;
+        }
+        return maxWaitingTime;
+    }
+
+    /**
+     * @return the number of customers per waiting time in seconds, up to and including the max waiting time
+     */
+    public long[] getWaitingTimeHistogram() {
+        return Arrays.copyOf(waitingTimeCounts, maxWaitingTime + 1);
+    }
+
+    /**
+     * encodes all statistics as a single line of text, such that they can be passed between processes
+     * the number of unserved customers follows the number of abandoned ones,
+     * and the histogram is written sparsely as waitingTime:count pairs
+     * @return
+     */
+    public String toRecord() {
+        StringBuilder record = new StringBuilder();
+        record.append(nCustomers).append(' ').append(totalWaitingTime).append(' ').append(totalCheckOutTime)
+                .append(' ').append(totalIdleTime).append(' ').append(maxQueueLength).append(' ').append(nAbandoned)
+                .append(' ').append(nUnserved);
+        for (int w = 0; w <= maxWaitingTime; w++) {
+            if (waitingTimeCounts[w] != 0) {
+                record.append(' ').append(w).append(':').append(waitingTimeCounts[w]);
+            }
+        }
+        return record.toString();
+    }
+
+    /**
+     * decodes statistics that have been encoded by toRecord
+     * @param record
+     * @return
+     * @throws IllegalArgumentException if the record is not valid
+     */
+    public static SimulationStatistics fromRecord(String record) {
+        String[] fields = record.trim().split(" ");
+        if (fields.length < 6) {
+            throw new IllegalArgumentException("Invalid statistics record '" + record + "'");
+        }
+        try {
+            SimulationStatistics statistics = new SimulationStatistics();
+            statistics.nCustomers = Long.parseLong(fields[0]);
+            statistics.totalWaitingTime = Long.parseLong(fields[1]);
+            statistics.totalCheckOutTime = Long.parseLong(fields[2]);
+            statistics.totalIdleTime = Long.parseLong(fields[3]);
+            statistics.maxQueueLength = Integer.parseInt(fields[4]);
+            statistics.nAbandoned = Long.parseLong(fields[5]);
+            int f = 6;
+            // records of earlier versions have no number of unserved customers
+            if (f < fields.length && fields[f].indexOf(':') < 0) {
+                statistics.nUnserved = Long.parseLong(fields[f++]);
+            }
+            for (; f < fields.length; f++) {
+                int colon = fields[f].indexOf(':');
+                int w = Integer.parseInt(fields[f].substring(0, colon));
+                if (w >= statistics.waitingTimeCounts.length) {
+                    statistics.waitingTimeCounts = Arrays.copyOf(statistics.waitingTimeCounts,
+                            Math.max(w + 1, 2 * statistics.waitingTimeCounts.length));
+                }
+                statistics.waitingTimeCounts[w] = Long.parseLong(fields[f].substring(colon + 1));
+                statistics.maxWaitingTime = Math.max(statistics.maxWaitingTime, w);
+            }
+            return statistics;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid statistics record '" + record + "'", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("n=%d avg-wait=%.2f p95-wait=%d max-wait=%d idle=%d",
+                nCustomers, getAverageWaitingTime(), getWaitingTimePercentile(0.95), maxWaitingTime, totalIdleTime);
+        if (nAbandoned > 0) summary += " abandoned=" + nAbandoned;
+        return (nUnserved > 0 ? summary + " unserved=" + nUnserved : summary);
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * searches the smallest lane mix of FIFO and priority cashiers that meets a waiting time target,
+ * e.g. 90% of the customers waiting at most 3 minutes
+ * the search looks for the smallest number of lanes that has a feasible mix; all mixes of the same number
+ * of lanes are simulated in parallel, each thread on its own copy of the supermarket. candidates are pruned by
+ *  a) a lower bound on the number of lanes, from the total check-out work and the opening hours
+ *  b) monotonicity in the number of lanes: if a number of lanes is feasible, so is any larger number,
+ *     as it can have the same mix plus another lane. the search gallops up from the lower bound
+ *     in doubling steps (+1, +2, +4, ...) until it finds a feasible number of lanes, and bisects the last step,
+ *     such that only O(log lanes) numbers of lanes are simulated
+ *  c) stopping a simulation as soon as too many customers have exceeded the target waiting time
+ *
+ * run with:  StaffingOptimizer dataset percentile maxWaitingSeconds [maxLanes]
+ * e.g.       StaffingOptimizer jambi250_8.xml 0.90 180
+ */
+public class StaffingOptimizer {
+    static final int DEFAULT_MAX_LANES = 16;
+    static final int[] DEFAULT_PRIORITY_THRESHOLDS = {3, 5, 8, 12};
+
+    private final Supermarket supermarket;
+    private final double percentile;        // fraction of the customers that must meet the target
+    private final int maxWaitingTime;       // target waiting time in seconds
+    private int maxLanes = DEFAULT_MAX_LANES;
+    private int[] priorityThresholds = DEFAULT_PRIORITY_THRESHOLDS;
+
+    private final AtomicInteger nSimulated = new AtomicInteger();
+    private final AtomicInteger nAbandoned = new AtomicInteger();
+
+    /**
+     * a lane mix that has been considered by the search
+     */
+    public static class Candidate {
+        private final LaneMix laneMix;
+        private final int nPriority;
+        private SimulationStatistics statistics;    // null if the simulation has been stopped
+        private boolean feasible;
+
+        Candidate(LaneMix laneMix, int nPriority) {
+            this.laneMix = laneMix;
+            this.nPriority = nPriority;
+        }
+
+        public LaneMix getLaneMix() {
+            return laneMix;
+        }
+
+        public SimulationStatistics getStatistics() {
+            return statistics;
+        }
+
+        public boolean isFeasible() {
+            return feasible;
+        }
+
+        @Override
+        public String toString() {
+            return laneMix + (statistics != null ? " " + statistics : " (stopped)");
+        }
+    }
+
+    /**
+     * counts the customers that wait longer than the target while the simulation runs,
+     * and stops the simulation as soon as it cannot meet the target anymore
+     */
+    private class TargetMonitor implements SimulationListener {
+        private final Supermarket supermarket;
+        private final int maxViolations;
+        private int nViolations;
+
+        TargetMonitor(Supermarket supermarket) {
+            int nCustomers = supermarket.getCustomers().size();
+            this.supermarket = supermarket;
+            this.maxViolations = nCustomers - (int) Math.max(1, Math.ceil(percentile * nCustomers));
+        }
+
+        @Override
+        public void onServiceStart(Cashier cashier, Customer customer, int time) {
+            if (customer.getActualWaitingTime() > maxWaitingTime && ++nViolations > maxViolations) {
+                supermarket.stopSimulation();
+            }
+        }
+    }
+
+    public StaffingOptimizer(Supermarket supermarket, double percentile, int maxWaitingTime) {
+        this.supermarket = supermarket;
+        this.percentile = percentile;
+        this.maxWaitingTime = maxWaitingTime;
+    }
+
+    /**
+     * finds the lane mix with the least number of lanes that meets the target
+     * among feasible mixes of the same size, the one with the lowest waiting time percentile is chosen,
+     * preferring fewer priority lanes on equal percentiles
+     * @param parallelism   number of candidates that are simulated at the same time
+     * @return the best candidate, or null if no mix of at most maxLanes lanes meets the target
+     */
+    public Candidate optimize(int parallelism) {
+        nSimulated.set(0);
+        nAbandoned.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        ThreadLocal<Supermarket> copies = ThreadLocal.withInitial(supermarket::copyForSimulation);
+        try {
+            int low = getMinimumNumberOfLanes();    // all smaller numbers of lanes are infeasible
+            int high = maxLanes + 1;                // the smallest number of lanes that is known to be feasible
+            Candidate best = null;
+            for (int nLanes = low, step = 1; low < high; nLanes = Math.min(nLanes + step, maxLanes), step *= 2) {
+                Candidate candidate = bestOf(nLanes, executor, copies);
+                if (candidate != null) {
+                    best = candidate;
+                    high = nLanes;
+                    break;
+                }
+                low = nLanes + 1;
+            }
+            while (low < high) {
+                int nLanes = (low + high) >>> 1;
+                Candidate candidate = bestOf(nLanes, executor, copies);
+                if (candidate != null) {
+                    best = candidate;
+                    high = nLanes;
+                } else {
+                    low = nLanes + 1;
+                }
+            }
+            return best;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Optimization has been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation of a candidate failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * simulates all mixes of the given number of lanes in parallel
+     * @param nLanes
+     * @param executor
+     * @param copies
+     * @return the best feasible mix, or null if none meets the target
+     */
+    private Candidate bestOf(int nLanes, ExecutorService executor, ThreadLocal<Supermarket> copies)
+            throws InterruptedException, ExecutionException {
+        List<Candidate> candidates = candidates(nLanes);
+        List<Future<Candidate>> evaluations = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            evaluations.add(executor.submit((Callable<Candidate>) () -> evaluate(copies.get(), candidate)));
+        }
+
+        Candidate best = null;
+        for (Future<Candidate> evaluation : evaluations) {
+            Candidate candidate = evaluation.get();
+            if (candidate.feasible && (best == null || isBetter(candidate, best))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private boolean isBetter(Candidate candidate, Candidate best) {
+        int percentile1 = candidate.statistics.getWaitingTimePercentile(percentile);
+        int percentile2 = best.statistics.getWaitingTimePercentile(percentile);
+        return percentile1 < percentile2 || (percentile1 == percentile2 && candidate.nPriority < best.nPriority);
+    }
+
+    /**
+     * all lane mixes of the given number of lanes
+     * @param nLanes
+     * @return
+     */
+    private List<Candidate> candidates(int nLanes) {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate(LaneMix.of(nLanes, 0, 0), 0));
+        for (int nPriority = 1; nPriority <= nLanes; nPriority++) {
+            for (int threshold : priorityThresholds) {
+                candidates.add(new Candidate(LaneMix.of(nLanes - nPriority, nPriority, threshold), nPriority));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * simulates the candidate on a copy of the supermarket, unless the target is missed along the way
+     * @param copy
+     * @param candidate
+     * @return
+     */
+    private Candidate evaluate(Supermarket copy, Candidate candidate) {
+        copy.getCashiers().clear();
+        copy.getCashiers().addAll(candidate.laneMix.createCashiers());
+        copy.setSimulationListener(new TargetMonitor(copy));
+        nSimulated.incrementAndGet();
+        copy.simulateCashiers();
+        if (copy.isStopped()) {
+            nAbandoned.incrementAndGet();
+            return candidate;
+        }
+        candidate.statistics = copy.getSimulationStatistics();
+        candidate.feasible = candidate.statistics.getWaitingTimePercentile(percentile) <= maxWaitingTime;
+        return candidate;
+    }
+
+    /**
+     * a lower bound on the number of lanes: all check-out work must fit within the opening hours
+     * plus the overtime of the cashiers
+     * @return
+     */
+    public int getMinimumNumberOfLanes() {
+        Cashier cashier = new FIFOCashier("bound");
+        long totalWork = 0;
+        for (Customer customer : supermarket.getCustomers()) {
+            totalWork += cashier.expectedCheckOutTime(customer.getNumberOfItems());
+        }
+        long available = supermarket.getClosingTime().toSecondOfDay() - supermarket.getOpenTime().toSecondOfDay() + 15 * 60;
+        return (int) Math.max(1, (totalWork + available - 1) / Math.max(1, available));
+    }
+
+    public void setMaxLanes(int maxLanes) {
+        this.maxLanes = maxLanes;
+    }
+
+    public void setPriorityThresholds(int... priorityThresholds) {
+        this.priorityThresholds = priorityThresholds;
+    }
+
+    /**
+     * @return the number of candidates that have been simulated by the last optimization
+     */
+    public int getNumberOfSimulations() {
+        return nSimulated.get();
+    }
+
+    /**
+     * @return the number of simulations that have been stopped because they could not meet the target
+     */
+    public int getNumberOfAbandonedSimulations() {
+        return nAbandoned.get();
+    }
+
+    public static void main(String[] args) {
+        String dataset = (args.length > 0 ? args[0] : "jambi250_8.xml");
+        double percentile = (args.length > 1 ? Double.parseDouble(args[1]) : 0.90);
+        int maxWaitingTime = (args.length > 2 ? Integer.parseInt(args[2]) : 180);
+
+        Supermarket supermarket = Supermarket.importFromXML(dataset);
+        StaffingOptimizer optimizer = new StaffingOptimizer(supermarket, percentile, maxWaitingTime);
+        if (args.length > 3) optimizer.setMaxLanes(Integer.parseInt(args[3]));
+
+        long start = System.nanoTime();
+        Candidate best = optimizer.optimize(Runtime.getRuntime().availableProcessors());
+        System.out.printf(Locale.US, "\nTarget: %.0f%% of the customers wait at most %d seconds\n",
+                100 * percentile, maxWaitingTime);
+        System.out.printf(Locale.US, "Searched from %d lanes, %d simulations of which %d stopped, in %.1f ms\n",
+                optimizer.getMinimumNumberOfLanes(), optimizer.getNumberOfSimulations(),
+                optimizer.getNumberOfAbandonedSimulations(), (System.nanoTime() - start) / 1e6);
+        System.out.println(best != null ? "Best lane mix: " + best :
+                "No lane mix of at most " + optimizer.maxLanes + " lanes meets the target; thresholds tried: " +
+                        Arrays.toString(optimizer.priorityThresholds));
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a plan of the shifts in which cashiers are opened and closed during the day
+ * a closed cashier does not accept new customers, but finishes its queue before it leaves;
+ * idle time is only accounted while a cashier is staffed
+ * cashiers without shifts in the schedule remain open during the whole simulation
+ *
+ * a schedule can be written as a lane mix with optional shifts, e.g.
+ *      "FIFO, FIFO@12:00-14:00, PRIO:5@16:30-"
+ * a lane with several shifts is written once per shift with the same tag, e.g. "FIFO#a@09:00-11:00, FIFO#a@16:00-"
+ */
+public class StaffingSchedule {
+
+    /**
+     * a period in which a cashier is open
+     */
+    public static class Shift {
+        final Cashier cashier;
+        final int openAt;       // in seconds of the day
+        final int closeAt;      // in seconds of the day, Integer.MAX_VALUE if the cashier remains open
+
+        Shift(Cashier cashier, int openAt, int closeAt) {
+            this.cashier = cashier;
+            this.openAt = openAt;
+            this.closeAt = closeAt;
+        }
+
+        public Cashier getCashier() {
+            return cashier;
+        }
+
+        @Override
+        public String toString() {
+            return cashier.getName() + "@" + LocalTime.ofSecondOfDay(openAt) + "-" +
+                    (closeAt == Integer.MAX_VALUE ? "" : LocalTime.ofSecondOfDay(closeAt).toString());
+        }
+    }
+
+    private final List<Shift> shifts = new ArrayList<>();
+    private final List<Cashier> cashiers = new ArrayList<>();
+
+    /**
+     * adds a shift of a cashier to the schedule
+     * @param cashier
+     * @param openAt    the time the cashier opens, or null to open from the start of the simulation
+     * @param closeAt   the time the cashier closes, or null to remain open until the end of the simulation
+     * @return this schedule
+     */
+    public StaffingSchedule add(Cashier cashier, LocalTime openAt, LocalTime closeAt) {
+        int open = (openAt != null ? openAt.toSecondOfDay() : 0);
+        int close = (closeAt != null ? closeAt.toSecondOfDay() : Integer.MAX_VALUE);
+        if (close <= open) {
+            throw new IllegalArgumentException("Shift of " + cashier.getName() + " closes before it opens");
+        }
+        shifts.add(new Shift(cashier, open, close));
+        if (!cashiers.contains(cashier)) {
+            cashiers.add(cashier);
+        }
+        return this;
+    }
+
+    /**
+     * parses a schedule of lanes with optional shifts
+     * cashiers are named by their type and sequence number, like in a LaneMix
+     * @param description
+     * @return
+     * @throws IllegalArgumentException if the description contains an unknown lane type or an invalid shift
+     */
+    public static StaffingSchedule parse(String description) {
+        StaffingSchedule schedule = new StaffingSchedule();
+        Map<String, Cashier> namedLanes = new HashMap<>();
+        Map<String, Integer> sequenceNumbers = new HashMap<>();
+        for (String part : description.split(",")) {
+            String lane = part.trim().toUpperCase();
+            String shift = "";
+            int at = lane.indexOf('@');
+            if (at >= 0) {
+                shift = lane.substring(at + 1).trim();
+                lane = lane.substring(0, at).trim();
+            }
+            int hash = lane.indexOf('#');
+            String type = (hash >= 0 ? lane.substring(0, hash) : lane);
+
+            Cashier cashier = (hash >= 0 ? namedLanes.get(lane) : null);
+            if (cashier == null) {
+                LaneMix laneMix = LaneMix.parse(type);
+                if (laneMix.getNumberOfLanes() != 1) {
+                    throw new IllegalArgumentException("Invalid lane '" + part + "' in schedule '" + description + "'");
+                }
+                cashier = LaneMix.createCashier(laneMix.toString(), sequenceNumbers);
+                if (hash >= 0) namedLanes.put(lane, cashier);
+            }
+
+            LocalTime openAt = null, closeAt = null;
+            if (!shift.isEmpty()) {
+                int dash = shift.indexOf('-');
+                if (dash < 0) {
+                    throw new IllegalArgumentException("Invalid shift '" + shift + "' in schedule '" + description + "'");
+                }
+                openAt = (dash > 0 ? LocalTime.parse(shift.substring(0, dash).trim()) : null);
+                closeAt = (dash < shift.length() - 1 ? LocalTime.parse(shift.substring(dash + 1).trim()) : null);
+            }
+            schedule.add(cashier, openAt, closeAt);
+        }
+        return schedule;
+    }
+
+    /**
+     * @return all shifts in the order they have been added
+     */
+    public List<Shift> getShifts() {
+        return Collections.unmodifiableList(shifts);
+    }
+
+    /**
+     * @return all scheduled cashiers in the order of their first shift
+     */
+    public List<Cashier> getCashiers() {
+        return Collections.unmodifiableList(cashiers);
+    }
+
+    @Override
+    public String toString() {
+        return shifts.toString();
+    }
+}
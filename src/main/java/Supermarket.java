@@ -5,6 +5,7 @@
  */
 
 import utils.SLF4J;
+import utils.SpaceSaving;
 import utils.XMLParser;
 import utils.XMLWriter;
 
@@ -13,25 +14,61 @@ import java.time.LocalTime;
 import java.util.*;
 import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
+import java.util.function.UnaryOperator;
 
 public class Supermarket {
 	public String name;                 // name of the case for reporting purposes
 	private Set<Product> products;      // a set of products that is being sold in the supermarket
-	private List<Customer> customers;   // a list of customers that have visited the supermarket
+	private CustomerList customers;     // a list of customers that have visited the supermarket
+	private Customer[] arrivalOrder;    // cached copy of the customers, sorted by their arrival time
+	private int arrivalOrderVersion;    // version of the customers list when arrivalOrder was cached
+	private CustomerIndex customerIndex; // cached index of time-range aggregates of the customers
+	private int customerIndexVersion;   // version of the customers list when customerIndex was built
 	private List<Cashier> cashiers;     // the cashiers which have been configured to handle the customers
 
 	private LocalTime openTime;         // start time of the simulation
 	private LocalTime closingTime;      // end time of the simulation
+	private SimulationListener simulationListener;  // receives the events of the simulation, if any
+	private StaffingSchedule staffingSchedule;      // opens and closes cashiers during the day, if any
+	private final List<Cashier> scheduledCashiers = new ArrayList<>();  // cashiers added by the staffing schedule
+	private Abandonment abandonment;                // lets customers leave without checking out, if any
+
+	// state of a running simulation
+	private Customer[] shoppingQueue;   // the customers in order of arrival
+	private int nextArrival;            // index in the shoppingQueue of the next customer to arrive
+	private int simulationTime;         // simulation time up to which all cashiers have been working
+	private ScheduledEvents scheduledEvents;    // the opening and closing of cashiers, in order of time
+	private int nextEvent;              // index of the next scheduled event
+	private volatile boolean stopped;   // the simulation has been stopped before all customers were handled
 
 	public Supermarket(String name, LocalTime openTime, LocalTime closingTime) {
 		this.name = name;
 		this.setOpenTime(openTime);
 		this.setClosingTime(closingTime);
 		this.cashiers = new ArrayList<>();
-		this.customers = new ArrayList<>();
+		this.customers = new CustomerList();
 		this.products = new HashSet<>();
 	}
 
+	/**
+	 * creates a copy of the supermarket that can be simulated independently of this one,
+	 * e.g. on another thread. products and purchases are shared, the customers are copied
+	 * such that each copy keeps its own simulation results. no cashiers are configured
+	 * @return
+	 */
+	public Supermarket copyForSimulation() {
+		Supermarket copy = new Supermarket(this.name, this.openTime, this.closingTime);
+		if (this.abandonment != null) {
+			copy.abandonment = new Abandonment(this.abandonment.getBalkingThreshold(), this.abandonment.getPatience());
+		}
+		copy.products.addAll(this.products);
+		copy.customers.ensureCapacity(this.customers.size());
+		for (Customer c : this.customers) {
+			copy.customers.add(new Customer(c));
+		}
+		return copy;
+	}
+
 	public int getTotalNumberOfItems() {
 		int totalItems = 0;
 
@@ -46,6 +83,13 @@ public class Supermarket {
 	 * report statistics of the input data and results of the simulation
 	 */
 	public void printCustomerStatistics() {
+		SupermarketEvents.Report event = new SupermarketEvents.Report();
+		event.begin();
+		printCustomerStatisticsReport();
+		commitReportEvent(event, "customer statistics");
+	}
+
+	private void printCustomerStatisticsReport() {
 		System.out.printf("\nCustomer Statistics of '%s' between %s and %s\n",
 			this.name, this.openTime, this.closingTime);
 		if (this.customers == null || this.products == null ||
@@ -84,6 +128,24 @@ public class Supermarket {
 	 * reports results of the cashier simulation
 	 */
 	public void printSimulationResults() {
+		SupermarketEvents.Report event = new SupermarketEvents.Report();
+		event.begin();
+		printSimulationResultsReport();
+		commitReportEvent(event, "simulation results");
+	}
+
+	private void commitReportEvent(SupermarketEvents.Report event, String report) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.dataset = this.name;
+			event.report = report;
+			event.customers = this.customers.size();
+			event.lanes = this.cashiers.toString();
+			event.commit();
+		}
+	}
+
+	private void printSimulationResultsReport() {
 
 		System.out.println("\nSimulation scenario results:");
 		System.out.println("Cashiers:\tn-customers:\tavg-wait-time:\tmax-wait-time:\tmax-queue-length:\tavg-check-out-time:\tidle-time:");
@@ -103,17 +165,23 @@ public class Supermarket {
 			System.out.println();
 		}
 
+		// customers that left without checking out are reported separately
+		Customer[] checkedOut = this.customers.stream().filter(c -> !c.isAbandoned()).toArray(Customer[]::new);
 		System.out.printf(
 			"\t%s\t\t%4d\t\t\t%3.2f\t\t\t%4d\t\t\t%4d\t\t\t\t%3.2f\t\t\t\t%4d",
 			"overall",
-			customers.size(),
-			this.customers.stream().mapToInt(Customer::getActualWaitingTime).sum() / (double) this.customers.size(),
-			this.customers.stream().mapToInt(Customer::getActualWaitingTime).max().orElse(0),
+			checkedOut.length,
+			Arrays.stream(checkedOut).mapToInt(Customer::getActualWaitingTime).sum() / (double) checkedOut.length,
+			Arrays.stream(checkedOut).mapToInt(Customer::getActualWaitingTime).max().orElse(0),
 			this.cashiers.stream().mapToInt(Cashier::getMaxQueueLength).max().orElse(0),
-			this.customers.stream().mapToInt(Customer::getActualCheckOutTime).sum() / (double) this.customers.size(),
+			Arrays.stream(checkedOut).mapToInt(Customer::getActualCheckOutTime).sum() / (double) checkedOut.length,
 			this.cashiers.stream().mapToInt(Cashier::getTotalIdleTime).sum()
 		);
 		System.out.println();
+
+		if (this.abandonment != null) {
+			this.abandonment.printLostCustomers(this.cashiers, System.out);
+		}
 	}
 
 	/**
@@ -172,47 +240,494 @@ public class Supermarket {
 		return mostBought;
 	}
 
+	/**
+	 * approximates the k most bought products per zip code in bounded memory, see ProductSketches
+	 * the customers are sketched in parallel, and the sketches of the threads are merged
+	 * @param k
+	 * @param epsilon	maximum overestimation of an amount as a fraction of the amount bought in the zip code
+	 * @return per zip code the products, most bought first, ordered by zip code
+	 */
+	public Map<String, List<Product>> mostBoughtProductsByZipCode(int k, double epsilon) {
+		ProductSketches sketches = this.customers.parallelStream().collect(
+			() -> ProductSketches.of(k, epsilon), ProductSketches::add, ProductSketches::merge);
+
+		Map<String, Product> productsByCode = new HashMap<>();
+		for (Product product : this.products) {
+			productsByCode.put(product.getCode(), product);
+		}
+		Map<String, List<Product>> mostBought = new TreeMap<>();
+		for (Map.Entry<String, List<SpaceSaving.Counter<String>>> zip : sketches.top(k).entrySet()) {
+			List<Product> top = new ArrayList<>(zip.getValue().size());
+			for (SpaceSaving.Counter<String> counter : zip.getValue()) {
+				top.add(productsByCode.get(counter.getItem()));
+			}
+			mostBought.put(zip.getKey(), top);
+		}
+		return mostBought;
+	}
+
 	/**
 	 * simulate the cashiers while handling all customers that enter their queues
+	 * the simulation clock runs on primitive seconds of the day;
+	 * LocalTime is only used for the configured open and closing times
 	 */
 	public void simulateCashiers() {
-		Queue<Customer> shoppingQueue = new PriorityQueue<>(Comparator.comparing(Customer::getQueuedAt));
+		SupermarketEvents.Simulation event = new SupermarketEvents.Simulation();
+		event.begin();
+
+		startSimulation();
+		finishSimulation();
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.dataset = this.name;
+			event.customers = this.customers.size();
+			event.lanes = this.cashiers.toString();
+			event.commit();
+		}
+	}
+
+	/**
+	 * starts a stepwise simulation of the cashiers at open time
+	 * continue with simulateUntil and/or finishSimulation
+	 */
+	public void startSimulation() {
+		this.shoppingQueue = getArrivalOrder();
+		this.customerIndex = null;
 
-		shoppingQueue.addAll(customers);
+		// clear the outcome of any previous simulation
+		for (Customer c : this.customers) {
+			c.setCheckOutCashier(null);
+			c.setActualWaitingTime(0);
+			c.setActualCheckOutTime(0);
+			c.setAbandoned(false);
+		}
+
+		// scheduled cashiers join the configured cashiers for this run only
+		removeScheduledCashiers();
+		if (this.staffingSchedule != null) {
+			for (Cashier c : this.staffingSchedule.getCashiers()) {
+				if (!this.cashiers.contains(c)) {
+					this.cashiers.add(c);
+					this.scheduledCashiers.add(c);
+				}
+			}
+		}
 
 		// all cashiers restart at open time
+		this.simulationTime = this.openTime.toSecondOfDay();
+		this.nextArrival = 0;
+		this.stopped = false;
 		for (Cashier c : this.cashiers) {
-			c.reStart(this.openTime);
+			c.reStart(this.simulationTime);
+			c.setSimulationListener(cashierListener());
 		}
+		if (this.abandonment != null) {
+			this.abandonment.start(this.cashiers, this.simulationListener, this.simulationTime);
+		}
+		this.scheduledEvents = (this.staffingSchedule != null ?
+			new ScheduledEvents(this.staffingSchedule, this.cashiers, this.simulationTime) : ScheduledEvents.NONE);
+		this.nextEvent = 0;
+		for (int lane : this.scheduledEvents.closedAtStart) {
+			this.cashiers.get(lane).close();
+		}
+		if (this.simulationListener != null) {
+			this.simulationListener.onSimulationStart(this.cashiers, this.simulationTime, this.closingTime.toSecondOfDay());
+		}
+	}
 
-		// poll the customers from the queue one by one
-		// and redirect them to the cashier of their choice
+	/**
+	 * removes the cashiers that have been added by the staffing schedule of the last simulation
+	 */
+	private void removeScheduledCashiers() {
+		for (Cashier c : this.scheduledCashiers) {
+			this.cashiers.remove(c);
+		}
+		this.scheduledCashiers.clear();
+	}
 
-		Customer nextCustomer = shoppingQueue.poll();
+	/**
+	 * continues the simulation with all customers that arrive before the given time,
+	 * and lets all cashiers work until that time
+	 * customers arriving at the given time itself are handled by the next step,
+	 * such that they can choose from cashiers that are opened at that time
+	 * @param time
+	 */
+	public void simulateUntil(LocalTime time) {
+		simulateUntil(time.toSecondOfDay());
+	}
 
-		while (nextCustomer != null) {
+	/**
+	 * continues the simulation until the given time in seconds of the day
+	 * @param time
+	 */
+	public void simulateUntil(int time) {
+		handleArrivalsBefore(time);
+		if (this.stopped) return;
+		handleScheduledEventsBefore(time);
+		if (this.abandonment != null) {
+			this.abandonment.expireUntil(time - 1);
+		}
+		for (int i = 0; i < this.cashiers.size(); i++) {
+			this.cashiers.get(i).doTheWorkUntil(time);
+		}
+		this.simulationTime = Math.max(this.simulationTime, time);
+	}
 
-			// let all cashiers finish up their work before the given arrival time of the customer
-			for (Cashier c : this.cashiers) {
-				c.doTheWorkUntil(nextCustomer.getQueuedAt());
+	/**
+	 * handles all remaining customers and completes the simulation
+	 * a simulation that has been stopped is completed without any further work
+	 */
+	public void finishSimulation() {
+		handleArrivalsBefore(Integer.MAX_VALUE);
+		if (this.stopped) {
+			this.customerIndex = null;
+			if (this.simulationListener != null) {
+				this.simulationListener.onSimulationEnd(this.cashiers);
 			}
-			// ask the customer about his preferred cashier for the check-out
-			Cashier selectedCashier = nextCustomer.selectCashier(this.cashiers);
-			// redirect the customer to the selected cashier
-			selectedCashier.add(nextCustomer);
-
-			nextCustomer = shoppingQueue.poll();
+			return;
 		}
 
 		// all customers have been handled;
 		// cashiers finish their work until closing time + some overtime
+		// after which the overtime is removed from their clocks and idle times
 		final int overtime = 15 * 60;
+		final int overtimeSecond = this.closingTime.toSecondOfDay() + overtime;
+		handleScheduledEventsBefore(overtimeSecond);
+		if (this.abandonment != null) {
+			this.abandonment.expireUntil(overtimeSecond - 1);
+		}
 		for (Cashier c : this.cashiers) {
-			c.doTheWorkUntil(this.closingTime.plusSeconds(overtime));
-			// remove the overtime from the current time and the idle time of the cashier
-			c.setCurrentTime(c.getCurrentTime().minusSeconds(overtime));
-			c.setTotalIdleTime(c.getTotalIdleTime() - overtime);
+			c.finishWork(this.closingTime.toSecondOfDay(), overtime);
+		}
+		this.simulationTime = Math.max(this.simulationTime, overtimeSecond);
+		this.customerIndex = null;
+		if (this.simulationListener != null) {
+			this.simulationListener.onSimulationEnd(this.cashiers);
+		}
+	}
+
+	/**
+	 * stops the running simulation before the next customer arrives, e.g. by a listener that has seen enough
+	 * a stopped simulation does not handle any more customers; finishSimulation still notifies the end of
+	 * the simulation to the listener. the outcome of the customers that have not finished is incomplete
+	 */
+	public void stopSimulation() {
+		this.stopped = true;
+	}
+
+	/**
+	 * @return whether the last simulation has been stopped before all customers were handled
+	 */
+	public boolean isStopped() {
+		return this.stopped;
+	}
+
+	/**
+	 * @return the listener of the cashiers, which passes through the abandonment if customers may leave
+	 */
+	private SimulationListener cashierListener() {
+		return (this.abandonment != null ? this.abandonment : this.simulationListener);
+	}
+
+	/**
+	 * takes the customers that arrive before the given time in order of arrival one by one
+	 * and redirects them to the cashier of their choice
+	 * @param time
+	 */
+	private void handleArrivalsBefore(int time) {
+		final Customer[] shoppingQueue = this.shoppingQueue;
+		while (this.nextArrival < shoppingQueue.length && !this.stopped) {
+			Customer nextCustomer = shoppingQueue[this.nextArrival];
+			final int arrivalSecond = nextCustomer.getQueuedAt().toSecondOfDay();
+			if (arrivalSecond >= time) break;
+
+			this.nextArrival++;
+			handleArrival(nextCustomer, arrivalSecond);
+		}
+	}
+
+	/**
+	 * lets a single customer choose a cashier at its arrival time and join its queue
+	 * @param customer
+	 * @param arrivalSecond
+	 */
+	private void handleArrival(Customer customer, int arrivalSecond) {
+		handleScheduledEventsBefore(arrivalSecond + 1);
+		if (this.abandonment != null) {
+			// customers whose patience has run out leave before the next customer chooses a cashier
+			this.abandonment.expireUntil(arrivalSecond);
+		}
+		// let all cashiers finish up their work before the given arrival time of the customer
+		for (int i = 0; i < this.cashiers.size(); i++) {
+			this.cashiers.get(i).doTheWorkUntil(arrivalSecond);
+		}
+		// ask the customer about his preferred cashier for the check-out
+		Cashier selectedCashier = customer.selectCashier(this.cashiers);
+		if (this.abandonment != null && this.abandonment.balks(customer, selectedCashier, arrivalSecond)) {
+			return;
+		}
+		if (!selectedCashier.isStaffed()) {
+			// all lanes are closed and the chosen one has left: it is called back until its queue has been handled
+			selectedCashier.recall();
+		}
+		// redirect the customer to the selected cashier
+		selectedCashier.add(customer);
+		if (this.abandonment != null) {
+			this.abandonment.joined(customer, arrivalSecond);
+		}
+	}
+
+	/**
+	 * pushes a customer that is not part of the customers of the supermarket into a running stepwise simulation,
+	 * e.g. from a live stream of arrivals. the customer is only referenced until its check-out,
+	 * its outcome is available to the simulation listener
+	 * @param customer	arrives at or after the current simulation time
+	 * @throws IllegalArgumentException if the customer arrives before the current simulation time
+	 */
+	public void arrive(Customer customer) {
+		final int arrivalSecond = customer.getQueuedAt().toSecondOfDay();
+		if (arrivalSecond < this.simulationTime) {
+			throw new IllegalArgumentException("Customer arrives at " + customer.getQueuedAt() +
+				", before the simulation time " + LocalTime.ofSecondOfDay(this.simulationTime % (24 * 60 * 60)));
+		}
+		handleArrivalsBefore(arrivalSecond);
+		handleArrival(customer, arrivalSecond);
+		this.simulationTime = arrivalSecond;
+	}
+
+	/**
+	 * @return the time in seconds of the day up to which all cashiers have been working
+	 */
+	public int getSimulationTime() {
+		return this.simulationTime;
+	}
+
+	/**
+	 * opens and closes the scheduled cashiers up to the given time
+	 * @param time
+	 */
+	private void handleScheduledEventsBefore(int time) {
+		final ScheduledEvents events = this.scheduledEvents;
+		while (this.nextEvent < events.times.length && events.times[this.nextEvent] < time) {
+			Cashier cashier = this.cashiers.get(events.lanes[this.nextEvent]);
+			cashier.doTheWorkUntil(events.times[this.nextEvent]);
+			if (events.opens[this.nextEvent]) {
+				cashier.open();
+			} else {
+				cashier.close();
+			}
+			this.nextEvent++;
+		}
+	}
+
+	/**
+	 * opens an additional cashier during a stepwise simulation, starting at the current simulation time
+	 * customers may also abandon the queue of the new cashier
+	 * @param cashier
+	 */
+	public void openCashier(Cashier cashier) {
+		cashier.reStart(this.simulationTime);
+		cashier.setSimulationListener(cashierListener());
+		this.cashiers.add(cashier);
+		if (this.abandonment != null) {
+			this.abandonment.opened(cashier);
+		}
+	}
+
+	/**
+	 * takes a snapshot of a stepwise simulation at the current simulation time,
+	 * from which what-if branches can be resumed
+	 * @return
+	 * @throws IllegalStateException if no simulation has been started, or if customers may abandon,
+	 *          as a snapshot does not capture the patience of the waiting customers
+	 */
+	public SimulationCheckpoint checkpoint() {
+		if (this.shoppingQueue == null) {
+			throw new IllegalStateException("No simulation has been started for " + this.name);
+		}
+		requireNoAbandonment();
+		int nArrived = this.nextArrival;
+		int[] waitingTimes = new int[nArrived];
+		int[] checkOutTimes = new int[nArrived];
+		int[] checkOutCashiers = new int[nArrived];
+		Map<Cashier, Integer> cashierIndex = new IdentityHashMap<>();
+		List<Cashier> cashierCopies = new ArrayList<>(this.cashiers.size());
+		for (Cashier c : this.cashiers) {
+			cashierIndex.put(c, cashierIndex.size());
+			cashierCopies.add(c.copy(customer -> customer));
+		}
+		int[] scheduledLanes = new int[this.scheduledCashiers.size()];
+		for (int i = 0; i < scheduledLanes.length; i++) {
+			scheduledLanes[i] = cashierIndex.get(this.scheduledCashiers.get(i));
+		}
+		for (int i = 0; i < nArrived; i++) {
+			Customer c = this.shoppingQueue[i];
+			waitingTimes[i] = c.getActualWaitingTime();
+			checkOutTimes[i] = c.getActualCheckOutTime();
+			checkOutCashiers[i] = cashierIndex.getOrDefault(c.getCheckOutCashier(), -1);
+		}
+		return new SimulationCheckpoint(this, this.simulationTime, this.shoppingQueue, nArrived,
+			waitingTimes, checkOutTimes, checkOutCashiers, new ArrayList<>(this.cashiers), cashierCopies, scheduledLanes,
+			this.scheduledEvents, this.nextEvent);
+	}
+
+	private void requireNoAbandonment() {
+		if (this.abandonment != null) {
+			throw new IllegalStateException("A checkpoint does not capture the patience of waiting customers");
+		}
+	}
+
+	/**
+	 * resets this supermarket to a snapshot of its own simulation, such that the simulation can be continued
+	 * from that time, e.g. after changing the cashiers
+	 * the cashiers of the snapshot are the same instances as before, with their state at the time of the snapshot;
+	 * cashiers that have been opened after the snapshot are removed
+	 * @param checkpoint
+	 * @throws IllegalStateException if customers may abandon, as the snapshot does not capture their patience
+	 */
+	public void restore(SimulationCheckpoint checkpoint) {
+		if (checkpoint.supermarket != this || checkpoint.shoppingQueue != getArrivalOrder()) {
+			throw new IllegalArgumentException("The checkpoint does not match the customers of " + this.name);
+		}
+		requireNoAbandonment();
+		for (int i = 0; i < checkpoint.lanes.size(); i++) {
+			checkpoint.lanes.get(i).restoreFrom(checkpoint.cashiers.get(i), customer -> customer);
+		}
+		resume(checkpoint, checkpoint.lanes);
+	}
+
+	/**
+	 * creates an independent copy of this supermarket that continues the simulation from a snapshot
+	 * @param checkpoint
+	 * @return
+	 * @throws IllegalStateException if customers may abandon, as the snapshot does not capture their patience
+	 */
+	Supermarket fork(SimulationCheckpoint checkpoint) {
+		requireNoAbandonment();
+		Supermarket copy = copyForSimulation();
+		Customer[] copyOrder = copy.getArrivalOrder();
+		List<Cashier> lanes = new ArrayList<>(checkpoint.cashiers.size());
+		for (Cashier c : checkpoint.cashiers) {
+			lanes.add(c.copy(customer -> copyOrder[checkpoint.arrivalIndexOf(customer)]));
+		}
+		copy.resume(checkpoint, lanes);
+		return copy;
+	}
+
+	/**
+	 * sets the state of the simulation to the snapshot
+	 * @param checkpoint
+	 * @param lanes		the cashiers in the state of the snapshot, in the order of the snapshot
+	 */
+	private void resume(SimulationCheckpoint checkpoint, List<Cashier> lanes) {
+		this.shoppingQueue = getArrivalOrder();
+		this.nextArrival = checkpoint.nextArrival;
+		this.simulationTime = checkpoint.time;
+		this.stopped = false;
+		this.customerIndex = null;
+		this.scheduledEvents = checkpoint.scheduledEvents;
+		this.nextEvent = checkpoint.nextEvent;
+
+		this.cashiers.clear();
+		for (Cashier c : lanes) {
+			c.setSimulationListener(this.simulationListener);
+			this.cashiers.add(c);
+		}
+		// the resumed copies of the scheduled cashiers are removed again by the next simulation
+		this.scheduledCashiers.clear();
+		for (int lane : checkpoint.scheduledLanes) {
+			this.scheduledCashiers.add(this.cashiers.get(lane));
+		}
+
+		for (int i = 0; i < this.shoppingQueue.length; i++) {
+			Customer c = this.shoppingQueue[i];
+			boolean arrived = i < checkpoint.nextArrival;
+			int cashier = (arrived ? checkpoint.checkOutCashiers[i] : -1);
+			c.setCheckOutCashier(cashier >= 0 ? this.cashiers.get(cashier) : null);
+			c.setActualWaitingTime(arrived ? checkpoint.actualWaitingTimes[i] : 0);
+			c.setActualCheckOutTime(arrived ? checkpoint.actualCheckOutTimes[i] : 0);
+		}
+	}
+
+	/**
+	 * collects the statistics of the last simulation of the cashiers
+	 * @return
+	 */
+	public SimulationStatistics getSimulationStatistics() {
+		return SimulationStatistics.of(this.customers, this.cashiers);
+	}
+
+	/**
+	 * provides the customers in order of their arrival time, customers arriving at the same time
+	 * remain in the order of the customers list
+	 * the ordering is cached until the customers list is modified, such that repeated simulations
+	 * of different scenarios on the same dataset reuse it
+	 * @return
+	 */
+	public List<Customer> getCustomersInArrivalOrder() {
+		return Collections.unmodifiableList(Arrays.asList(getArrivalOrder()));
+	}
+
+	/**
+	 * provides the index of time-range aggregates over the customers, e.g. revenue between 12:00 and 12:15
+	 * the index is cached until the customers list is modified or the customers are simulated again,
+	 * such that it includes the waiting times of the last simulation
+	 * @return
+	 */
+	public CustomerIndex getCustomerIndex() {
+		if (this.customerIndex == null || this.customerIndexVersion != this.customers.version()) {
+			this.customerIndex = new CustomerIndex(this);
+			this.customerIndexVersion = this.customers.version();
+		}
+		return this.customerIndex;
+	}
+
+	private Customer[] getArrivalOrder() {
+		if (this.arrivalOrder == null || this.arrivalOrderVersion != this.customers.version()) {
+			this.arrivalOrder = sortByArrival(this.customers);
+			this.arrivalOrderVersion = this.customers.version();
+		}
+		return this.arrivalOrder;
+	}
+
+	/**
+	 * stable counting sort of customers on their arrival second of the day
+	 * a list that already is in order of arrival is just copied
+	 * @param customers
+	 * @return
+	 */
+	private static Customer[] sortByArrival(List<Customer> customers) {
+		Customer[] unsorted = customers.toArray(new Customer[0]);
+
+		// find the range of arrival keys and check whether sorting is needed at all
+		int minKey = Integer.MAX_VALUE, maxKey = Integer.MIN_VALUE, previousKey = Integer.MIN_VALUE;
+		boolean inOrder = true;
+		for (Customer c : unsorted) {
+			int key = c.getQueuedAt().toSecondOfDay();
+			inOrder &= (key >= previousKey);
+			previousKey = key;
+			minKey = Math.min(minKey, key);
+			maxKey = Math.max(maxKey, key);
+		}
+		if (inOrder) {
+			return unsorted;
 		}
+
+		// count the customers per arrival second and convert to start positions
+		int[] positions = new int[maxKey - minKey + 2];
+		for (Customer c : unsorted) {
+			positions[c.getQueuedAt().toSecondOfDay() - minKey + 1]++;
+		}
+		for (int k = 1; k < positions.length; k++) {
+			positions[k] += positions[k - 1];
+		}
+
+		Customer[] sorted = new Customer[unsorted.length];
+		for (Customer c : unsorted) {
+			sorted[positions[c.getQueuedAt().toSecondOfDay() - minKey]++] = c;
+		}
+		return sorted;
 	}
 
 	public List<Cashier> getCashiers() {
@@ -227,6 +742,47 @@ public class Supermarket {
 		return customers;
 	}
 
+	public StaffingSchedule getStaffingSchedule() {
+		return staffingSchedule;
+	}
+
+	/**
+	 * configures a schedule that opens and closes cashiers during the simulation
+	 * the scheduled cashiers are added to the cashiers of the supermarket when the simulation starts,
+	 * and remain there until the next simulation starts or another schedule is configured
+	 * @param staffingSchedule  the schedule, or null to keep all cashiers open during the whole simulation
+	 */
+	public void setStaffingSchedule(StaffingSchedule staffingSchedule) {
+		removeScheduledCashiers();
+		this.staffingSchedule = staffingSchedule;
+	}
+
+	public Abandonment getAbandonment() {
+		return abandonment;
+	}
+
+	/**
+	 * lets customers of subsequent simulations balk on arrival and renege from their queue
+	 * simulations with abandonment cannot be checkpointed
+	 * @param abandonment   the thresholds of the customers, or null to let all customers wait for their check-out
+	 */
+	public void setAbandonment(Abandonment abandonment) {
+		this.abandonment = abandonment;
+	}
+
+	public SimulationListener getSimulationListener() {
+		return simulationListener;
+	}
+
+	/**
+	 * registers a listener that receives the events of subsequent simulations
+	 * without a listener the simulation does not spend any effort on reporting events
+	 * @param simulationListener	the listener, or null to remove the current listener
+	 */
+	public void setSimulationListener(SimulationListener simulationListener) {
+		this.simulationListener = simulationListener;
+	}
+
 	public LocalTime getOpenTime() {
 		return openTime;
 	}
@@ -245,10 +801,23 @@ public class Supermarket {
 
 	/**
 	 * Loads a complete supermarket configuration from an XML file
-	 * @param resourceName  the XML file name to be found in the resources folder
+	 * @param resourceName  the XML file name to be found in the resources folder,
+	 *                      or else the path of the XML file in the file system
 	 * @return
 	 */
 	public static Supermarket importFromXML(String resourceName) {
+		return importFromXML(resourceName, false);
+	}
+
+	/**
+	 * Loads a complete supermarket configuration from an XML file
+	 * @param resourceName  the XML file name to be found in the resources folder,
+	 *                      or else the path of the XML file in the file system
+	 * @param lazy          only record the number of items of the customers, and decode their purchases
+	 *                      when they are asked for, e.g. by the customer statistics. simulations only need the items
+	 * @return
+	 */
+	public static Supermarket importFromXML(String resourceName, boolean lazy) {
 		XMLParser xmlParser = new XMLParser(resourceName);
 
 		try {
@@ -260,25 +829,63 @@ public class Supermarket {
 
 			Supermarket supermarket = new Supermarket(resourceName, openTime, closingTime);
 
+			SupermarketEvents.Import productsEvent = new SupermarketEvents.Import();
+			productsEvent.begin();
 			Product.importProductsFromXML(xmlParser, supermarket.products);
-			Customer.importCustomersFromXML(xmlParser, supermarket.customers, supermarket.products);
+			commitImportEvent(productsEvent, resourceName, "products", supermarket.products.size());
+
+			SupermarketEvents.Import customersEvent = new SupermarketEvents.Import();
+			customersEvent.begin();
+			Customer.importCustomersFromXML(xmlParser, supermarket.customers, supermarket.products, lazy);
+			commitImportEvent(customersEvent, resourceName, "customers", supermarket.customers.size());
 
 			return supermarket;
 
 		} catch (Exception ex) {
 			SLF4J.logException("XML error in '" + resourceName + "'", ex);
+		} finally {
+			try {
+				xmlParser.close();
+			} catch (Exception ex) {
+				SLF4J.logException("Cannot close '" + resourceName + "'", ex);
+			}
 		}
 
 		return null;
 	}
 
+	private static void commitImportEvent(SupermarketEvents.Import event, String dataset, String phase, int count) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.dataset = dataset;
+			event.phase = phase;
+			event.count = count;
+			event.commit();
+		}
+	}
+
 	/**
 	 * Exports the supermarket configuration to an xml configuration file
 	 * that can be shared and read in by a main
 	 * @param resourceName
+	 * @return whether the file has been written completely; errors are logged
 	 */
-	public void exportXML(String resourceName) {
+	public boolean exportXML(String resourceName) {
+		return exportXML(resourceName, this.customers.iterator());
+	}
+
+	/**
+	 * Exports the products and opening hours of the supermarket together with the given customers
+	 * to an xml configuration file
+	 * the customers are written one by one as they are provided by the iterator,
+	 * such that they need not be held in memory together
+	 * @param resourceName
+	 * @param customers
+	 * @return whether the file has been written completely; errors are logged
+	 */
+	public boolean exportXML(String resourceName, Iterator<Customer> customers) {
 		XMLWriter xmlWriter = new XMLWriter(resourceName);
+		boolean written = false;
 
 		try {
 			xmlWriter.writeStartDocument();
@@ -294,20 +901,29 @@ public class Supermarket {
 				}
 				xmlWriter.writeEndElement();
 			}
-			if (this.products instanceof Collection && this.customers.size() > 0) {
+			if (this.products instanceof Collection && customers.hasNext()) {
 				xmlWriter.writeStartElement("customers");
-				for (Customer c : this.customers) {
-					c.exportToXML(xmlWriter);
+				while (customers.hasNext()) {
+					customers.next().exportToXML(xmlWriter);
 				}
 				xmlWriter.writeEndElement();
 			}
 			xmlWriter.writeEndDocument();
+			written = true;
 		} catch (Exception ex) {
 			SLF4J.logException("XML writing error in '" + resourceName + "'", ex);
+		} finally {
+			try {
+				xmlWriter.close();
+			} catch (Exception ex) {
+				SLF4J.logException("Cannot close '" + resourceName + "'", ex);
+				written = false;
+			}
 		}
 
 		// update the name of the supermarket
 		this.name = resourceName;
+		return written;
 	}
 
 	/**
@@ -321,59 +937,164 @@ public class Supermarket {
 	 * @param averageNrItems
 	 */
 	public void addRandomCustomers(int nCustomers, int averageNrItems) {
+		addRandomCustomers(nCustomers, averageNrItems, randomizer.nextLong());
+	}
+
+	/**
+	 * adds a reproducible collection of random customers to the configuration
+	 * the same seed always yields the same customers, regardless of the number of processors being used
+	 * @param nCustomers
+	 * @param averageNrItems
+	 * @param seed
+	 */
+	public void addRandomCustomers(int nCustomers, int averageNrItems, long seed) {
 		if (!(this.products instanceof Collection) ||
 			!(this.customers instanceof Collection)
 		) return;
 
-		// copy the product to an array for easy random selection
-		Product[] prods = new Product[this.products.size()];
-		prods = this.products.toArray(prods);
-
-		// compute an arrival interval range of at least 60 seconds that ends one minute before closing time if possible
-		int maxArrivalSeconds = Math.max(60, closingTime.toSecondOfDay() - openTime.toSecondOfDay() - 60);
-
-		for (int i = 0; i < nCustomers; i++) {
-			// create a random customer with random arrival time and zip code
-			Customer c = new Customer(
-				this.openTime.plusSeconds(randomizer.nextInt(maxArrivalSeconds)),
-				generateRandomZIPCode());
-
-			// select a random number of bought items
-			int remainingNumberOfItems = selectRandomNrItems(averageNrItems);
-
-			// build a random distribution of these items across available products
-			int upper = prods.length;
-			while (remainingNumberOfItems > 0) {
-				int count = 1 + randomizer.nextInt(remainingNumberOfItems);
-				// pick a random product that has not been used yet by this customer
-				int pIdx = randomizer.nextInt(upper);
-				Purchase pu = new Purchase(prods[pIdx], count);
-				c.getItems().add(pu);
-				// System.out.println(c.toString() + pu.toString());
-				remainingNumberOfItems -= count;
-				// move the product out of the range of available products for this customer
-				upper--;
-				Product pt = prods[upper];
-				prods[upper] = prods[pIdx];
-				prods[pIdx] = pt;
-			}
+		this.customers.addAll(randomCustomerGenerator(averageNrItems, seed)
+			.generate(nCustomers, Runtime.getRuntime().availableProcessors()));
+	}
 
-			this.customers.add(c);
-		}
+	/**
+	 * creates a generator of random customers for the products and opening hours of this supermarket
+	 * @param averageNrItems
+	 * @param seed
+	 * @return
+	 */
+	public CustomerGenerator randomCustomerGenerator(int averageNrItems, long seed) {
+		return new CustomerGenerator(this.products, this.openTime, this.closingTime, averageNrItems, seed);
 	}
 
 	private static Random randomizer = new Random();
 
-	private static int selectRandomNrItems(int averageNrItems) {
-		return 1 + (int) ((4 * averageNrItems - 1) * randomizer.nextDouble() * randomizer.nextDouble());
+	/**
+	 * the opening and closing events of a staffing schedule in order of time,
+	 * with the cashiers identified by their index in the list of cashiers of the simulation
+	 * at equal times closing events precede opening events, such that consecutive shifts connect
+	 */
+	static class ScheduledEvents {
+		static final ScheduledEvents NONE = new ScheduledEvents();
+
+		final int[] times;
+		final int[] lanes;
+		final boolean[] opens;
+		final int[] closedAtStart;  // the lanes that remain closed until their first shift
+
+		private ScheduledEvents() {
+			this.times = this.lanes = this.closedAtStart = new int[0];
+			this.opens = new boolean[0];
+		}
+
+		/**
+		 * compiles the events of the schedule
+		 * @param schedule
+		 * @param cashiers
+		 * @param startTime
+		 */
+		ScheduledEvents(StaffingSchedule schedule, List<Cashier> cashiers, int startTime) {
+			Map<Cashier, Integer> laneIndex = new IdentityHashMap<>();
+			for (Cashier c : cashiers) {
+				laneIndex.put(c, laneIndex.size());
+			}
+			Set<Cashier> openAtStart = Collections.newSetFromMap(new IdentityHashMap<>());
+			List<long[]> events = new ArrayList<>();
+			for (StaffingSchedule.Shift shift : schedule.getShifts()) {
+				int lane = laneIndex.get(shift.cashier);
+				if (shift.openAt <= startTime) {
+					if (shift.closeAt > startTime) openAtStart.add(shift.cashier);
+				} else {
+					events.add(new long[]{shift.openAt, 1, lane});
+				}
+				if (shift.closeAt > startTime && shift.closeAt != Integer.MAX_VALUE) {
+					events.add(new long[]{shift.closeAt, 0, lane});
+				}
+			}
+			this.closedAtStart = schedule.getCashiers().stream()
+				.filter(c -> !openAtStart.contains(c)).mapToInt(laneIndex::get).toArray();
+			events.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+
+			this.times = new int[events.size()];
+			this.lanes = new int[events.size()];
+			this.opens = new boolean[events.size()];
+			for (int i = 0; i < events.size(); i++) {
+				this.times[i] = (int) events.get(i)[0];
+				this.opens[i] = events.get(i)[1] == 1;
+				this.lanes[i] = (int) events.get(i)[2];
+			}
+		}
 	}
 
-	private static String generateRandomZIPCode() {
-		int randomDigit = randomizer.nextInt(5);
-		int randomChar1 = randomizer.nextInt(2);
-		int randomChar2 = randomizer.nextInt(2);
-		return String.valueOf(1013 + randomDigit) +
-			(char) (randomDigit + 9 * randomChar1 + randomChar2 + 'A') +
-			(char) (randomDigit + 3 * randomChar1 + 7 * randomChar2 + 'D');
+	/**
+	 * the customers of the supermarket, with a version that changes on every modification
+	 * ArrayList's modCount only covers structural changes, so replacements are counted separately
+	 */
+	private static class CustomerList extends ArrayList<Customer> {
+		private static final long serialVersionUID = 1L;
+		private int replacements;       // number of set, replaceAll and sort calls
+
+		int version() {
+			return this.modCount + this.replacements;
+		}
+
+		@Override
+		public Customer set(int index, Customer customer) {
+			this.replacements++;
+			return super.set(index, customer);
+		}
+
+		@Override
+		public void replaceAll(UnaryOperator<Customer> operator) {
+			this.replacements++;
+			super.replaceAll(operator);
+		}
+
+		@Override
+		public void sort(Comparator<? super Customer> comparator) {
+			this.replacements++;
+			super.sort(comparator);
+		}
+
+		@Override
+		public List<Customer> subList(int fromIndex, int toIndex) {
+			return new SubList(super.subList(fromIndex, toIndex));
+		}
+
+		/**
+		 * a view on a range of the customers that also counts its replacements
+		 */
+		private class SubList extends AbstractList<Customer> {
+			private final List<Customer> range;
+
+			SubList(List<Customer> range) {
+				this.range = range;
+			}
+
+			@Override
+			public Customer get(int index) {
+				return this.range.get(index);
+			}
+
+			@Override
+			public int size() {
+				return this.range.size();
+			}
+
+			@Override
+			public Customer set(int index, Customer customer) {
+				replacements++;
+				return this.range.set(index, customer);
+			}
+
+			@Override
+			public void add(int index, Customer customer) {
+				this.range.add(index, customer);
+			}
+
+			@Override
+			public Customer remove(int index) {
+				return this.range.remove(index);
+			}
+		}
 	}
 }
@@ -0,0 +1,74 @@
+/**
+ * Supermarket Customer check-out and Cashier simulation
+ * @author  hbo-ict@hva.nl
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the import, simulation and reporting phases
+ * the events are only recorded while a flight recording is running, e.g. with
+ *      -XX:StartFlightRecording=filename=supermarket.jfr
+ * and otherwise cost next to nothing
+ */
+public class SupermarketEvents {
+
+    @Name("supermarket.Import")
+    @Label("Dataset Import")
+    @Category("Supermarket")
+    @Description("Loading part of a supermarket dataset from XML")
+    @StackTrace(false)
+    public static class Import extends Event {
+        @Label("Dataset")
+        String dataset;
+
+        @Label("Phase")
+        @Description("products or customers")
+        String phase;
+
+        @Label("Count")
+        @Description("Number of products or customers that have been loaded")
+        int count;
+    }
+
+    @Name("supermarket.Simulation")
+    @Label("Scenario Simulation")
+    @Category("Supermarket")
+    @Description("Simulation of all customers of a dataset with one configuration of cashiers")
+    @StackTrace(false)
+    public static class Simulation extends Event {
+        @Label("Dataset")
+        String dataset;
+
+        @Label("Customers")
+        int customers;
+
+        @Label("Lanes")
+        @Description("The configured cashiers and their types")
+        String lanes;
+    }
+
+    @Name("supermarket.Report")
+    @Label("Report")
+    @Category("Supermarket")
+    @Description("Calculation and printing of a report on the customers or on the simulation results")
+    @StackTrace(false)
+    public static class Report extends Event {
+        @Label("Dataset")
+        String dataset;
+
+        @Label("Report")
+        String report;
+
+        @Label("Customers")
+        int customers;
+
+        @Label("Lanes")
+        String lanes;
+    }
+}
@@ -1,4 +1,7 @@
+import utils.SLF4J;
+
 import java.time.LocalTime;
+import java.util.SplittableRandom;
 
 public class SupermarketGenerate {
     public static void main(String[] args) {
@@ -7,6 +10,14 @@ public class SupermarketGenerate {
         Supermarket supermarket =
                 Supermarket.importFromXML("supermarket25.xml");
 
+        if (args.length >= 3) {
+            // stream a multi-day stress dataset straight to disk
+            if (!generateStressDatasets(supermarket, args)) {
+                System.exit(1);
+            }
+            return;
+        }
+
         // set the time window for the simulation dataset
         supermarket.setOpenTime(LocalTime.NOON);
         supermarket.setClosingTime(LocalTime.NOON.plusMinutes(30));
@@ -20,4 +31,41 @@ public class SupermarketGenerate {
         // print customer purchase statistics
         supermarket.printCustomerStatistics();
     }
+
+    /**
+     * generates one dataset file per day with the products and opening hours of the base configuration
+     * customers are produced in order of arrival and written as they are generated,
+     * so the size of the datasets is not limited by the available memory
+     * arguments: nCustomersPerDay nDays seed [outputPrefix [averageNrItems]]
+     * @param supermarket
+     * @param args
+     * @return false if a dataset could not be written completely, after which no further days are generated
+     */
+    private static boolean generateStressDatasets(Supermarket supermarket, String[] args) {
+        int nCustomers = Integer.parseInt(args[0]);
+        int nDays = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        String outputPrefix = (args.length > 3 ? args[3] : "target/stress");
+        int averageNrItems = (args.length > 4 ? Integer.parseInt(args[4]) : 8);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        // every day draws its own seed from the given seed
+        SplittableRandom daySeeds = new SplittableRandom(seed);
+        for (int day = 1; day <= nDays; day++) {
+            String fileName = String.format("%s-day%d.xml", outputPrefix, day);
+            long startTime = System.currentTimeMillis();
+
+            boolean written = supermarket.exportXML(fileName,
+                    supermarket.randomCustomerGenerator(averageNrItems, daySeeds.nextLong())
+                            .arrivalOrderedIterator(nCustomers, parallelism));
+            if (!written) {
+                SLF4J.LOGGER.error("Failed to generate '" + fileName + "', stopping after " + (day - 1) + " day(s)");
+                return false;
+            }
+
+            System.out.printf("Generated %d customers into '%s' in %d ms\n",
+                    nCustomers, fileName, System.currentTimeMillis() - startTime);
+        }
+        return true;
+    }
 }
@@ -1,35 +1,13 @@
 public class SupermarketMain {
     public static void main(String[] args) {
 
-        // load the simulation configuration with open and closing times
-        // and products and customers
-        Supermarket supermarket =
-                Supermarket.importFromXML("jambi250_8.xml");
-        supermarket.printCustomerStatistics();
-
-        // configure the cashiers for the base scenario
-        supermarket.getCashiers().clear();
-        supermarket.getCashiers().add(new FIFOCashier("FIFO"));
-
-        // simulate the configuration and print the result
-        supermarket.simulateCashiers();
-        supermarket.printSimulationResults();
-
-        // configure the cashiers for the priority scenario
-        supermarket.getCashiers().clear();
-        supermarket.getCashiers().add(new PriorityCashier("PRIO",5));
-
-        // simulate the configuration and print the result
-        supermarket.simulateCashiers();
-        supermarket.printSimulationResults();
-
-        // configure the cashiers for the self-service scenario
-        supermarket.getCashiers().clear();
-        supermarket.getCashiers().add(new FIFOCashier("FIFO"));
-        supermarket.getCashiers().add(new FIFOCashier("PRIO"));
-
-        // simulate the configuration and print the result
-        supermarket.simulateCashiers();
-        supermarket.printSimulationResults();
+        // load the scenarios: the datasets with their open and closing times, products and customers,
+        // and the configurations of cashiers that are simulated on each of them
+        // see scenarios.xml for the base, priority and self-service scenarios,
+        // and scenarios-shared.xml for a single line to two self-service stations
+        String scenarioFile = (args.length > 0 ? args[0] : "scenarios.xml");
+
+        // simulate all scenarios and print their results
+        ScenarioRunner.run(ScenarioRunner.importFromXML(scenarioFile), Runtime.getRuntime().availableProcessors());
     }
 }
@@ -0,0 +1,231 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * a Space-Saving sketch of the most frequent items of a weighted stream, in a fixed number of counters
+ * an item without a counter takes over the counter of the least frequent item, inheriting its count as error,
+ * so every count is an overestimate by at most its error, and every error is at most total / capacity
+ * any item with a true count above total / capacity is guaranteed to have a counter
+ * updates take O(log capacity) time; sketches of separate parts of a stream can be merged,
+ * e.g. of separate threads or processes, with the same error guarantee
+ * @param <T>   the items, with proper equals and hashCode
+ */
+public class SpaceSaving<T> {
+
+    /**
+     * the estimated count of an item
+     * @param <T>
+     */
+    public static final class Counter<T> {
+        private final T item;
+        private long count;         // upper bound of the true count
+        private long error;         // count - error is a lower bound of the true count
+        private long order;         // tie breaker among equal counts, in order of creation
+
+        /**
+         * a counter as encoded by another sketch, e.g. in another process
+         * @param item
+         * @param count
+         * @param error
+         */
+        public Counter(T item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return item + "=" + count + (error > 0 ? " (error " + error + ")" : "");
+        }
+    }
+
+    private static final Comparator<Counter<?>> BY_COUNT =
+            Comparator.<Counter<?>>comparingLong(c -> c.count).thenComparingLong(c -> c.order);
+
+    private final int capacity;
+    private final Map<T, Counter<T>> counters = new HashMap<>();
+    private final TreeSet<Counter<T>> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+    private long nextOrder;
+
+    /**
+     * @param capacity  number of counters; counts are accurate within total / capacity
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * the number of counters that guarantees the given relative error
+     * @param epsilon   maximum error of a count as a fraction of the total count, e.g. 0.01
+     * @return
+     */
+    public static int capacityFor(double epsilon) {
+        if (!(epsilon > 0.0 && epsilon <= 1.0)) {
+            throw new IllegalArgumentException("Error bound must be in (0, 1]: " + epsilon);
+        }
+        return (int) Math.ceil(1.0 / epsilon);
+    }
+
+    /**
+     * counts an occurrence of the item
+     * @param item
+     * @param count     weight of the occurrence, e.g. the amount of a purchase
+     */
+    public void add(T item, long count) {
+        if (count <= 0) return;
+        total += count;
+        Counter<T> counter = counters.get(item);
+        if (counter != null) {
+            increment(counter, count, 0);
+        } else if (counters.size() < capacity) {
+            insert(item, count, 0);
+        } else {
+            // the least frequent item gives up its counter
+            Counter<T> min = byCount.pollFirst();
+            counters.remove(min.item);
+            insert(item, min.count + count, min.count);
+        }
+    }
+
+    private void increment(Counter<T> counter, long count, long error) {
+        byCount.remove(counter);
+        counter.count += count;
+        counter.error += error;
+        byCount.add(counter);
+    }
+
+    private void insert(T item, long count, long error) {
+        Counter<T> counter = new Counter<>(item, count, error);
+        counter.order = nextOrder++;
+        counters.put(item, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * recreates a sketch from its total and counters, e.g. after passing them between processes
+     * @param capacity
+     * @param total
+     * @param counters      at most capacity counters of distinct items
+     * @param <T>
+     * @return
+     */
+    public static <T> SpaceSaving<T> restore(int capacity, long total, List<Counter<T>> counters) {
+        if (counters.size() > capacity) {
+            throw new IllegalArgumentException("Too many counters for capacity " + capacity + ": " + counters.size());
+        }
+        SpaceSaving<T> sketch = new SpaceSaving<>(capacity);
+        sketch.total = total;
+        for (Counter<T> counter : counters) {
+            if (sketch.counters.containsKey(counter.item)) {
+                throw new IllegalArgumentException("Duplicate counter of " + counter.item);
+            }
+            sketch.insert(counter.item, counter.count, counter.error);
+        }
+        return sketch;
+    }
+
+    /**
+     * adds the counts of another sketch into this one
+     * an item that is missing from a full sketch may have occurred up to its minimum count in there,
+     * so its count and error are raised by that minimum; the largest counters are kept
+     * @param other     a sketch of another part of the stream, of the same capacity
+     * @throws IllegalArgumentException if the capacities differ
+     */
+    public void merge(SpaceSaving<T> other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge sketches of capacity " + capacity + " and " + other.capacity);
+        }
+        long minThis = getMinimumCount();
+        long minOther = other.getMinimumCount();
+        Map<T, long[]> merged = new HashMap<>();
+        for (Counter<T> counter : counters.values()) {
+            Counter<T> match = other.counters.get(counter.item);
+            merged.put(counter.item, match != null ?
+                    new long[]{counter.count + match.count, counter.error + match.error} :
+                    new long[]{counter.count + minOther, counter.error + minOther});
+        }
+        for (Counter<T> counter : other.counters.values()) {
+            if (!counters.containsKey(counter.item)) {
+                merged.put(counter.item, new long[]{counter.count + minThis, counter.error + minThis});
+            }
+        }
+
+        counters.clear();
+        byCount.clear();
+        total += other.total;
+        List<Map.Entry<T, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (int i = 0; i < Math.min(capacity, entries.size()); i++) {
+            insert(entries.get(i).getKey(), entries.get(i).getValue()[0], entries.get(i).getValue()[1]);
+        }
+    }
+
+    /**
+     * @param k
+     * @return the at most k items with the highest estimated counts, highest first
+     */
+    public List<Counter<T>> top(int k) {
+        List<Counter<T>> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Counter<T> counter : byCount.descendingSet()) {
+            if (top.size() >= k) break;
+            top.add(counter);
+        }
+        return top;
+    }
+
+    /**
+     * @param item
+     * @return the estimated count of the item, an upper bound of its true count
+     */
+    public long estimate(T item) {
+        Counter<T> counter = counters.get(item);
+        return (counter != null ? counter.count : getMinimumCount());
+    }
+
+    /**
+     * @return the count that an item without a counter may have had, 0 while not all counters are in use
+     */
+    public long getMinimumCount() {
+        return (counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    @Override
+    public String toString() {
+        return top(counters.size()).toString();
+    }
+}
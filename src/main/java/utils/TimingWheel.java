@@ -0,0 +1,202 @@
+package utils;
+
+import java.util.function.Consumer;
+
+/**
+ * a hierarchical timing wheel of timers on integer times, e.g. seconds of the day
+ * each level has 64 slots; a timer is kept at the lowest level whose slot range still covers it
+ * and moves down a level whenever the wheel turns into its slot (cascading)
+ * scheduling and cancelling a timer take constant time, regardless of the number of pending timers
+ * timers expire in order of their time; timers with equal times expire in order of scheduling
+ * @param <T>   the payload of the timers
+ */
+public class TimingWheel<T> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;            // covers 2^24 time units ahead, later timers overflow
+    private static final int OVERFLOW = LEVELS;
+
+    /**
+     * a pending timer, which can be cancelled
+     * @param <T>
+     */
+    public static final class Timer<T> {
+        private final int time;
+        private final T payload;
+        private Timer<T> prev, next;
+        private int level = -1;         // -1 if the timer is not pending
+        private int slot;
+
+        private Timer(int time, T payload) {
+            this.time = time;
+            this.payload = payload;
+        }
+
+        public int getTime() {
+            return time;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isPending() {
+            return level >= 0;
+        }
+    }
+
+    private final Timer<T>[][] slots;   // per level per slot the sentinel of a circular list of timers
+    private final long[] occupied;      // per level a bit per non-empty slot
+    private int currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int startTime) {
+        this.currentTime = startTime;
+        this.slots = (Timer<T>[][]) new Timer<?>[LEVELS + 1][];
+        this.occupied = new long[LEVELS + 1];
+        for (int level = 0; level <= LEVELS; level++) {
+            this.slots[level] = (Timer<T>[]) new Timer<?>[level < LEVELS ? SLOTS : 1];
+            for (int slot = 0; slot < this.slots[level].length; slot++) {
+                Timer<T> sentinel = new Timer<>(0, null);
+                sentinel.prev = sentinel.next = sentinel;
+                this.slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * schedules a timer; a time that has passed already expires at the next advance
+     * @param time
+     * @param payload
+     * @return the timer, which can be used to cancel it
+     */
+    public Timer<T> schedule(int time, T payload) {
+        Timer<T> timer = new Timer<>(time, payload);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * cancels a pending timer
+     * @param timer
+     * @return false if the timer already expired or has been cancelled before
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer == null || !timer.isPending()) return false;
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * advances the wheel to the given time, expiring all timers up to and including that time in order of time
+     * the action may schedule and cancel timers
+     * @param time
+     * @param action    receives each expired timer
+     */
+    public void advanceTo(int time, Consumer<Timer<T>> action) {
+        while (true) {
+            // expire the timers of the current time
+            Timer<T> head = slots[0][currentTime & MASK];
+            while (head.next != head) {
+                Timer<T> timer = head.next;
+                unlink(timer);
+                size--;
+                action.accept(timer);
+            }
+            if (currentTime >= time) return;
+            if (size == 0) {
+                currentTime = time;
+                return;
+            }
+
+            // move to the next occupied slot in this turn of the lowest level
+            int index = currentTime & MASK;
+            long ahead = (index == MASK ? 0L : occupied[0] & (-1L << (index + 1)));
+            if (ahead != 0) {
+                currentTime = Math.min(time, (currentTime & ~MASK) + Long.numberOfTrailingZeros(ahead));
+                continue;
+            }
+
+            // or else to the start of the next turn, which brings down the timers of the higher levels
+            int nextTurn = (currentTime | MASK) + 1;
+            if (nextTurn > time || nextTurn < currentTime) {
+                currentTime = time;
+                return;
+            }
+            currentTime = nextTurn;
+            cascade(1);
+        }
+    }
+
+    /**
+     * moves the timers of the current slot of a level down to lower levels,
+     * after cascading the next level if that has turned as well
+     * @param level
+     */
+    private void cascade(int level) {
+        if (level == LEVELS) {
+            reinsertAll(OVERFLOW, 0);
+            return;
+        }
+        int index = (currentTime >>> (BITS * level)) & MASK;
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        reinsertAll(level, index);
+    }
+
+    private void reinsertAll(int level, int slot) {
+        Timer<T> head = slots[level][slot];
+        Timer<T> timer = head.next;
+        head.prev = head.next = head;
+        occupied[level] &= ~(1L << slot);
+        while (timer != head) {
+            Timer<T> next = timer.next;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        int time = Math.max(timer.time, currentTime);
+        int level = 0;
+        while (level < LEVELS && (time >>> (BITS * (level + 1))) != (currentTime >>> (BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (level < LEVELS ? (time >>> (BITS * level)) & MASK : 0);
+        Timer<T> head = slots[level][slot];
+        timer.prev = head.prev;
+        timer.next = head;
+        head.prev.next = timer;
+        head.prev = timer;
+        timer.level = level;
+        timer.slot = slot;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        Timer<T> head = slots[timer.level][timer.slot];
+        if (head.next == head) {
+            occupied[timer.level] &= ~(1L << timer.slot);
+        }
+        timer.prev = timer.next = null;
+        timer.level = -1;
+    }
+
+    public int getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * @return the number of pending timers
+     */
+    public int size() {
+        return size;
+    }
+}
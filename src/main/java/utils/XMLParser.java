@@ -4,18 +4,63 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.util.StreamReaderDelegate;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 
 public class XMLParser extends StreamReaderDelegate {
     private String sourceName = "";
+    private InputStream inputStream;
 
+    /**
+     * opens the named resource from the class path,
+     * or else a file with that name in the file system
+     * @param resourceName
+     */
     public XMLParser(String resourceName) {
-        this(XMLParser.class.getClassLoader().getResourceAsStream(resourceName));
+        this(ResourceOrFileInputStream(resourceName));
         this.sourceName = resourceName;
     }
 
     public XMLParser(InputStream inputStream) {
         super(createXMLStreamReader(inputStream));
+        this.inputStream = inputStream;
+    }
+
+    private static InputStream ResourceOrFileInputStream(String resourceName) {
+        InputStream inputStream = XMLParser.class.getClassLoader().getResourceAsStream(resourceName);
+        if (inputStream != null) {
+            return inputStream;
+        }
+        try {
+            return new BufferedInputStream(new FileInputStream(resourceName));
+        } catch (FileNotFoundException ex) {
+            SLF4J.logException("Cannot find resource or file " + resourceName, ex);
+            return null;
+        }
+    }
+
+    /**
+     * closes the parser together with its input stream, also if no reader could be attached to the stream
+     * @throws XMLStreamException
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        try {
+            if (getParent() != null) {
+                super.close();
+            }
+        } finally {
+            if (this.inputStream != null) {
+                try {
+                    this.inputStream.close();
+                } catch (IOException ex) {
+                    SLF4J.logException("Cannot close " + this.sourceName, ex);
+                }
+            }
+        }
     }
 
     public static XMLStreamReader createXMLStreamReader(InputStream input) {
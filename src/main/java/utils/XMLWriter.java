@@ -6,10 +6,12 @@ import javanet.staxutils.IndentingXMLStreamWriter;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 
 public class XMLWriter extends IndentingXMLStreamWriter {
     private String sourceName = "";
+    private OutputStream outputStream;
 
     public XMLWriter(String resourceName) {
         this(FileOutputStreamOrNull(resourceName));
@@ -27,6 +29,29 @@ public class XMLWriter extends IndentingXMLStreamWriter {
 
     public XMLWriter(OutputStream outputStream) {
         super(createXMLStreamWriter(outputStream));
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * closes the writer together with its output stream, which the StAX writer itself leaves open
+     * @throws XMLStreamException also if the output stream cannot be closed, as the file may be incomplete
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        try {
+            super.flush();
+            super.close();
+        } finally {
+            if (this.outputStream != null) {
+                try {
+                    this.outputStream.close();
+                } catch (IOException ex) {
+                    throw new XMLStreamException("Cannot close " + this.sourceName, ex);
+                } finally {
+                    this.outputStream = null;
+                }
+            }
+        }
     }
 
     public static XMLStreamWriter createXMLStreamWriter(OutputStream output) {
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class BatchRunnerTest {
+
+    @Test
+    void t601_batchResultsMatchSeparateSimulations() {
+        List<Path> datasets = BatchRunner.findDatasets("src/main/resources/jambi*.xml");
+        assertThat(datasets.size(), is(5));
+        assertEquals(datasets, BatchRunner.findDatasets("src/main/resources").subList(0, 5));
+
+        List<LaneMix> laneMixes = List.of(LaneMix.parse("FIFO"), LaneMix.parse("2xFIFO, PRIO:5"));
+        // a single load permit per simulator forces the backpressure
+        BatchRunner runner = new BatchRunner(laneMixes, 2, 2);
+        List<BatchRunner.Result> results = runner.run(datasets);
+
+        assertEquals(datasets.size(), results.size());
+        for (int d = 0; d < datasets.size(); d++) {
+            BatchRunner.Result result = results.get(d);
+            assertEquals(datasets.get(d), result.getDataset());
+            Supermarket supermarket = Supermarket.importFromXML(datasets.get(d).toString());
+            for (int m = 0; m < laneMixes.size(); m++) {
+                supermarket.getCashiers().clear();
+                supermarket.getCashiers().addAll(laneMixes.get(m).createCashiers());
+                supermarket.simulateCashiers();
+                assertEquals(supermarket.getSimulationStatistics().toString(), result.getStatistics(m).toString());
+            }
+        }
+
+        StringWriter output = new StringWriter();
+        runner.writeResults(results, new PrintWriter(output));
+        assertEquals(1 + datasets.size() * laneMixes.size(), output.toString().split("\n").length);
+    }
+
+    @Test
+    void t602_datasetsThatCannotBeLoadedAreReported() {
+        BatchRunner runner = new BatchRunner(List.of(LaneMix.parse("FIFO")), 1);
+        List<BatchRunner.Result> results = runner.run(List.of(Paths.get("src/test/resources/malformed.xml")));
+        assertFalse(results.get(0).isLoaded());
+    }
+}
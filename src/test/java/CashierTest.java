@@ -109,6 +109,71 @@ class CashierTest {
         assertThat(cashier.getMaxQueueLength(), is(finalQueueSize+1));
     }
 
+    @Test
+    void t102_priorityCustomersOvertakeRegularCustomers() {
+        Customer first = new Customer(LocalTime.NOON, "1000AA");
+        first.getItems().add(new Purchase(this.prod1, 9));
+        Customer regular = new Customer(LocalTime.NOON.plusSeconds(1), "1000AB");
+        regular.getItems().add(new Purchase(this.prod2, 9));
+        Customer priority = new Customer(LocalTime.NOON.plusSeconds(2), "1000AC");
+        priority.getItems().add(new Purchase(this.prod3, 1));
+
+        this.priorityCashier.reStart(LocalTime.NOON);
+        this.priorityCashier.add(first);
+        this.priorityCashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(1));
+        this.priorityCashier.add(regular);
+        this.priorityCashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(2));
+        this.priorityCashier.add(priority);
+        // the priority customer joins behind the regular one, but will be served before
+        assertThat(this.priorityCashier.expectedWaitingTime(priority), is((20+9*2) - 2));
+        this.priorityCashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(120));
+
+        assertThat(priority.getActualWaitingTime(), is((20+9*2) - 2));
+        assertThat(regular.getActualWaitingTime(), is((20+9*2) + (20+1*2) - 1));
+    }
+
+    @Test
+    void t103_renegingCustomersAreSkipped() {
+        this.fifoCashier.reStart(LocalTime.NOON);
+        this.fifoCashier.add(this.customer9);
+        this.fifoCashier.add(this.customer2);
+        this.fifoCashier.add(this.customer1);
+        this.fifoCashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(1));
+        assertFalse(this.fifoCashier.renege(this.customer9), "the customer being served cannot leave");
+        assertTrue(this.fifoCashier.renege(this.customer2));
+        assertFalse(this.fifoCashier.renege(this.customer2));
+        assertThat(this.fifoCashier.getNumberOfWaitingCustomers(), is(1));
+        assertThat(this.fifoCashier.expectedWaitingTime(this.customer1), is((20+9*2) - 1));
+
+        this.fifoCashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(120));
+        assertThat(this.customer2.getActualCheckOutTime(), is(0));
+        assertThat(this.customer1.getActualWaitingTime(), is(20+9*2));
+        assertThat(this.fifoCashier.getWaitingQueue().size(), is(0));
+    }
+
+    @Test
+    void t151_sharedQueueCashierServesOneLineWithSeveralStations() {
+        SharedQueueCashier cashier = new SharedQueueCashier("SELF", 1.0, 0.5);
+        cashier.reStart(LocalTime.NOON);
+        cashier.add(this.customer9);
+        cashier.add(this.customer2);
+        assertThat(cashier.getWaitingQueue().size(), is(2));
+        assertThat(cashier.getMaxQueueLength(), is(2));
+        // the next customer waits for the first station that becomes free, and checks out at its speed
+        assertThat(cashier.expectedWaitingTime(this.customer1), is(20+9*2));
+        assertThat(cashier.expectedCheckOutTime(this.customer1.getNumberOfItems()), is(20+1*2));
+        // the check-out times are only known once the check-outs have ended
+        assertThat(this.customer2.getActualCheckOutTime(), is(0));
+
+        cashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(10));
+        assertThat(cashier.getWaitingQueue().size(), is(0));
+        assertThat(cashier.getTotalIdleTime(), is(0));
+        cashier.doTheWorkUntil(LocalTime.NOON.plusSeconds(60));
+        assertThat(cashier.getTotalIdleTime(), is((60 - (20+9*2)) + (60 - 2 * (20+2*2))));
+        assertThat(this.customer2.getActualCheckOutTime(), is(2 * (20+2*2)));
+        assertEquals("SHARED:1.0;0.5", cashier.getLaneType());
+    }
+
     @Test
     void t051_fifoCashierConcreteClassHasBeenDefined() {
         assertTrue(this.fifoCashier instanceof Cashier, "FIFOCashier is not a Cashier");
@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import utils.XMLWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class CustomerGeneratorTest {
+
+    private Supermarket supermarket;
+
+    @BeforeEach
+    void setup() {
+        supermarket = Supermarket.importFromXML("supermarket25.xml");
+    }
+
+    @Test
+    void t201_sameSeedGeneratesSameCustomersOnAnyNumberOfThreads() {
+        int nCustomers = 3 * CustomerGenerator.BLOCK_SIZE + 17;
+        List<Customer> sequential = supermarket.randomCustomerGenerator(8, 42L).generate(nCustomers, 1);
+        List<Customer> parallel = supermarket.randomCustomerGenerator(8, 42L).generate(nCustomers, 4);
+
+        assertEquals(nCustomers, sequential.size());
+        assertEquals(nCustomers, parallel.size());
+        for (int i = 0; i < nCustomers; i++) {
+            assertEquals(sequential.get(i).getQueuedAt(), parallel.get(i).getQueuedAt());
+            assertEquals(sequential.get(i).getZipCode(), parallel.get(i).getZipCode());
+            assertEquals(sequential.get(i).getNumberOfItems(), parallel.get(i).getNumberOfItems());
+            assertEquals(sequential.get(i).calculateTotalBill(), parallel.get(i).calculateTotalBill());
+        }
+    }
+
+    @Test
+    void t202_differentSeedsGenerateDifferentCustomers() {
+        List<Customer> customers1 = supermarket.randomCustomerGenerator(8, 1L).generate(100, 2);
+        List<Customer> customers2 = supermarket.randomCustomerGenerator(8, 2L).generate(100, 2);
+        int nIdentical = 0;
+        for (int i = 0; i < 100; i++) {
+            if (customers1.get(i).getQueuedAt().equals(customers2.get(i).getQueuedAt())) nIdentical++;
+        }
+        assertThat(nIdentical, is(lessThan(100)));
+    }
+
+    @Test
+    void t203_generatedCustomersArriveWithinOpeningHours() {
+        supermarket.addRandomCustomers(500, 8, 7L);
+        assertEquals(500, supermarket.getCustomers().size());
+        for (Customer c : supermarket.getCustomers()) {
+            assertFalse(c.getQueuedAt().isBefore(supermarket.getOpenTime()));
+            assertTrue(c.getQueuedAt().isBefore(supermarket.getClosingTime()));
+            assertThat(c.getNumberOfItems(), is(both(greaterThan(0)).and(lessThan(4 * 8))));
+        }
+    }
+
+    @Test
+    void t204_arrivalOrderedCustomersAreSortedAndReproducible() {
+        int nCustomers = 2 * CustomerGenerator.BLOCK_SIZE + 5;
+        Iterator<Customer> ordered1 = supermarket.randomCustomerGenerator(8, 9L).arrivalOrderedIterator(nCustomers, 1);
+        Iterator<Customer> ordered2 = supermarket.randomCustomerGenerator(8, 9L).arrivalOrderedIterator(nCustomers, 3);
+        Customer previous = null;
+        int count = 0;
+        while (ordered1.hasNext()) {
+            Customer c = ordered1.next();
+            Customer c2 = ordered2.next();
+            assertEquals(c.getQueuedAt(), c2.getQueuedAt());
+            assertEquals(c.getNumberOfItems(), c2.getNumberOfItems());
+            assertTrue(c.getQueuedAt().isBefore(supermarket.getClosingTime()));
+            if (previous != null) {
+                assertFalse(c.getQueuedAt().isBefore(previous.getQueuedAt()));
+            }
+            previous = c;
+            count++;
+        }
+        assertFalse(ordered2.hasNext());
+        assertEquals(nCustomers, count);
+    }
+
+    @Test
+    void t205_exportedDatasetsCloseTheirFiles(@TempDir Path directory) throws Exception {
+        boolean[] closed = {false};
+        XMLWriter writer = new XMLWriter(new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        });
+        writer.writeStartDocument();
+        writer.writeEmptyElement("supermarket");
+        writer.writeEndDocument();
+        writer.close();
+        assertTrue(closed[0]);
+
+        String file = directory.resolve("day-1.xml").toString();
+        assertTrue(supermarket.exportXML(file, supermarket.randomCustomerGenerator(8, 5L).arrivalOrderedIterator(20, 2)));
+        assertEquals(20, Supermarket.importFromXML(file).getCustomers().size());
+        String missing = directory.resolve("missing").resolve("day-2.xml").toString();
+        assertFalse(supermarket.exportXML(missing, supermarket.randomCustomerGenerator(8, 5L).arrivalOrderedIterator(20, 2)));
+    }
+}
@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class CustomerIndexTest {
+
+    @Test
+    void t671_rangeAggregatesMatchAScanOfTheCustomers() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().addAll(LaneMix.parse("FIFO").createCashiers());
+        supermarket.simulateCashiers();
+        CustomerIndex index = supermarket.getCustomerIndex();
+        assertEquals(250, index.getNumberOfCustomers());
+
+        Random random = new Random(671);
+        int open = supermarket.getOpenTime().toSecondOfDay();
+        int closing = supermarket.getClosingTime().toSecondOfDay();
+        for (int q = 0; q < 200; q++) {
+            int from = open - 60 + random.nextInt(closing - open + 120);
+            int to = from + random.nextInt(3600);
+            String zipCode = (q % 2 == 0 ? null : supermarket.getCustomers().get(random.nextInt(250)).getZipCode());
+            int n = 0, nItems = 0;
+            double revenue = 0.0;
+            long waitingTime = 0;
+            for (Customer customer : supermarket.getCustomers()) {
+                int arrival = customer.getQueuedAt().toSecondOfDay();
+                if (arrival >= from && arrival < to && (zipCode == null || zipCode.equals(customer.getZipCode()))) {
+                    n++;
+                    nItems += customer.getNumberOfItems();
+                    revenue += customer.calculateTotalBill();
+                    waitingTime += customer.getActualWaitingTime();
+                }
+            }
+            CustomerIndex.Aggregate aggregate = (zipCode == null ? index.aggregate(from, to) : index.aggregate(zipCode, from, to));
+            assertEquals(n, aggregate.getNumberOfCustomers());
+            assertEquals(nItems, aggregate.getNumberOfItems());
+            assertEquals(revenue, aggregate.getRevenue(), 1e-6);
+            assertEquals(waitingTime, aggregate.getTotalWaitingTime());
+        }
+
+        // the whole day per zip code matches the revenues of the customer statistics
+        Map<String, Double> revenues = supermarket.revenueByZipCode();
+        Map<String, CustomerIndex.Aggregate> byZipCode = index.aggregateByZipCode();
+        assertEquals(revenues.keySet(), byZipCode.keySet());
+        for (Map.Entry<String, Double> revenue : revenues.entrySet()) {
+            assertEquals(revenue.getValue(), byZipCode.get(revenue.getKey()).getRevenue(), 1e-6);
+        }
+        assertEquals(0, index.aggregate("no-such-zip", LocalTime.MIN, LocalTime.MAX).getNumberOfCustomers());
+
+        // a customer in the last second of the day is part of the whole day
+        Customer lastSecond = new Customer(LocalTime.MAX, "1013AD");
+        supermarket.getCustomers().add(lastSecond);
+        CustomerIndex extended = supermarket.getCustomerIndex();
+        assertEquals(250, extended.aggregate(LocalTime.MIN, LocalTime.MAX).getNumberOfCustomers());
+        assertEquals(251, extended.aggregateThrough(LocalTime.MIN, LocalTime.MAX).getNumberOfCustomers());
+        assertEquals(251, extended.aggregateDay().getNumberOfCustomers());
+        assertEquals(1, extended.aggregateThrough("1013AD", LocalTime.MAX, LocalTime.MAX).getNumberOfCustomers()
+                - extended.aggregate("1013AD", LocalTime.MAX, LocalTime.MAX).getNumberOfCustomers());
+        assertEquals(251, extended.aggregateByZipCode().values().stream()
+                .mapToInt(CustomerIndex.Aggregate::getNumberOfCustomers).sum());
+    }
+
+    @Test
+    void t672_bucketsAndCaching() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        CustomerIndex index = supermarket.getCustomerIndex();
+        assertSame(index, supermarket.getCustomerIndex());
+
+        List<CustomerIndex.Aggregate> halfHours = index.aggregatePerBucket(supermarket.getOpenTime(),
+                supermarket.getClosingTime(), 30 * 60);
+        assertEquals(6, halfHours.size());
+        assertEquals(LocalTime.of(12, 30), halfHours.get(1).getFrom());
+        assertEquals(250, halfHours.stream().mapToInt(CustomerIndex.Aggregate::getNumberOfCustomers).sum());
+        assertEquals(supermarket.getTotalNumberOfItems(), halfHours.stream().mapToLong(CustomerIndex.Aggregate::getNumberOfItems).sum());
+        assertEquals(0.0, halfHours.get(0).getAverageWaitingTime());
+
+        // a simulation replaces the index, such that it includes the new waiting times
+        supermarket.getCashiers().addAll(LaneMix.parse("FIFO").createCashiers());
+        supermarket.simulateCashiers();
+        CustomerIndex simulated = supermarket.getCustomerIndex();
+        assertNotSame(index, simulated);
+        assertEquals(supermarket.getSimulationStatistics().getAverageWaitingTime(),
+                simulated.aggregateDay().getAverageWaitingTime(), 1e-9);
+
+        // restoring a checkpoint replaces the index as well
+        supermarket.startSimulation();
+        supermarket.simulateUntil(supermarket.getOpenTime().plusHours(1));
+        SimulationCheckpoint checkpoint = supermarket.checkpoint();
+        supermarket.finishSimulation();
+        CustomerIndex finished = supermarket.getCustomerIndex();
+        supermarket.restore(checkpoint);
+        assertNotSame(finished, supermarket.getCustomerIndex());
+        assertThat(supermarket.getCustomerIndex().aggregateDay().getTotalWaitingTime(),
+                is(lessThan(finished.aggregateDay().getTotalWaitingTime())));
+        assertThrows(IllegalArgumentException.class, () -> simulated.aggregatePerBucket(LocalTime.NOON, LocalTime.MIDNIGHT, 0));
+    }
+}
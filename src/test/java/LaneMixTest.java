@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class LaneMixTest {
+
+    @Test
+    void t301_laneMixCreatesFreshCashiers() {
+        LaneMix laneMix = LaneMix.parse("2xFIFO, prio:5");
+        assertEquals(3, laneMix.getNumberOfLanes());
+        List<Cashier> cashiers = laneMix.createCashiers();
+        assertThat(cashiers.get(0), is(instanceOf(FIFOCashier.class)));
+        assertThat(cashiers.get(1).getName(), is("FIFO-2"));
+        assertThat(cashiers.get(2), is(instanceOf(PriorityCashier.class)));
+        assertNotSame(cashiers.get(0), laneMix.createCashiers().get(0));
+    }
+
+    @Test
+    void t302_laneMixHasCanonicalDescription() {
+        assertEquals("FIFO,FIFO,PRIO:5", LaneMix.parse("2xFIFO,PRIO:5").toString());
+        assertEquals(LaneMix.parse("FIFO,FIFO,PRIO:5"), LaneMix.of(2, 1, 5));
+        assertThrows(IllegalArgumentException.class, () -> LaneMix.parse("SELF"));
+        assertThat(LaneMix.parse("SHARED:4").createCashiers().get(0), is(instanceOf(SharedQueueCashier.class)));
+        assertThrows(IllegalArgumentException.class, () -> LaneMix.parse("SHARED:0"));
+        assertThrows(IllegalArgumentException.class, () -> LaneMix.parse("SHARED:0.0"));
+        assertThrows(IllegalArgumentException.class, () -> LaneMix.parse("SHARED:1.0;0"));
+        assertThrows(IllegalArgumentException.class, () -> LaneMix.parse("0xFIFO"));
+        assertEquals(LaneMix.parse("SHARED:1"), LaneMix.parse("SHARED:1.0"));
+        assertEquals(LaneMix.parse("SHARED:2"), LaneMix.parse("shared:1;1.00"));
+        assertEquals("SHARED:1.0;0.5", LaneMix.parse("SHARED:1;0.50").toString());
+        for (String lane : new String[]{"SHARED:02", "SHARED:1.0;0.5"}) {
+            assertEquals(LaneMix.parse(lane).toString(), LaneMix.parse(lane).createCashiers().get(0).getLaneType());
+        }
+    }
+
+    @Test
+    void t303_laneMixDescribesItsLanes() {
+        List<LaneMix.Lane> lanes = LaneMix.parse("FIFO, PRIO:5, SHARED:3, SHARED:1;0.5").getLanes();
+        assertEquals(LaneMix.Lane.Type.FIFO, lanes.get(0).getType());
+        assertEquals(LaneMix.Lane.Type.PRIO, lanes.get(1).getType());
+        assertEquals(5, lanes.get(1).getMaxNumPriorityItems());
+        assertEquals(0, lanes.get(0).getMaxNumPriorityItems());
+        assertEquals(3, lanes.get(2).getNumberOfStations());
+        assertEquals(3.0, lanes.get(2).getCapacity(), 1e-12);
+        assertArrayEquals(new double[]{1.0, 0.5}, lanes.get(3).getServiceRates(), 1e-12);
+        assertEquals(1.5, lanes.get(3).getCapacity(), 1e-12);
+        assertEquals("SHARED:1.0;0.5", lanes.get(3).toString());
+    }
+}
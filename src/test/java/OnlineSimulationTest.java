@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class OnlineSimulationTest {
+
+    private static String eventOf(Customer customer) {
+        StringBuilder event = new StringBuilder(customer.getQueuedAt() + " " + customer.getZipCode());
+        for (Purchase purchase : customer.getItems()) {
+            event.append(' ').append(purchase.getProduct().getCode()).append(':').append(purchase.getAmount());
+        }
+        return event.toString();
+    }
+
+    private static Supermarket emptyCopy(Supermarket supermarket, String laneMix) {
+        Supermarket copy = supermarket.copyForSimulation();
+        copy.getCustomers().clear();
+        copy.getCashiers().addAll(LaneMix.parse(laneMix).createCashiers());
+        return copy;
+    }
+
+    @Test
+    void t661_streamedCustomersGiveTheSameOutcomeAsTheDataset() throws IOException {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        StringBuilder events = new StringBuilder("# arrivals of the day\n\n");
+        for (Customer customer : supermarket.getCustomersInArrivalOrder()) {
+            events.append(eventOf(customer)).append('\n');
+        }
+
+        OnlineSimulation online = new OnlineSimulation(emptyCopy(supermarket, "2xFIFO"), 15 * 60);
+        online.feed(new StringReader(events.toString()));
+        assertEquals(0, online.getNumberOfRejectedEvents());
+        assertEquals(250, online.getNumberOfEvents());
+        online.advanceTo(supermarket.getClosingTime().plusMinutes(10));
+
+        supermarket.getCashiers().addAll(LaneMix.parse("2xFIFO").createCashiers());
+        supermarket.simulateCashiers();
+        SimulationStatistics expected = supermarket.getSimulationStatistics();
+        SimulationStatistics actual = online.getTotalStatistics();
+        assertEquals(expected.getNumberOfCustomers(), actual.getNumberOfCustomers());
+        assertEquals(expected.getAverageWaitingTime(), actual.getAverageWaitingTime(), 1e-9);
+        assertEquals(expected.getMaxWaitingTime(), actual.getMaxWaitingTime());
+        assertEquals(expected.getMaxQueueLength(), actual.getMaxQueueLength());
+
+        // only the last quarter of an hour is in the window, and nobody is waiting anymore
+        SimulationStatistics window = online.getWindowStatistics();
+        assertTrue(window.getNumberOfCustomers() < actual.getNumberOfCustomers());
+        assertEquals(0, online.getExpectedWaitingTime());
+        assertEquals(0, online.predictWaitingTime(15 * 60));
+    }
+
+    @Test
+    void t662_lateEventsDaysAndTailing(@TempDir Path directory) throws Exception {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        OnlineSimulation online = new OnlineSimulation(emptyCopy(supermarket, "FIFO"), 5 * 60);
+        String product = supermarket.getProducts().iterator().next().getCode();
+
+        online.accept("12:00:00 1011AB " + product + ":30");
+        online.accept("12:00:10 1011AB " + product + ":30");
+        assertTrue(online.getExpectedWaitingTime() > 0);
+        // two customers in five minutes take less than the capacity of the lane, so the queue drains
+        assertTrue(online.predictWaitingTime(60) < online.getExpectedWaitingTime());
+        assertEquals(0, online.predictWaitingTime(15 * 60));
+        assertFalse(online.arrive(new Customer(LocalTime.of(11, 59), "1011AB")));
+        assertThrows(IllegalArgumentException.class, () -> online.accept("12:01 1011AB NO-SUCH-PRODUCT"));
+        assertThrows(IllegalArgumentException.class, () -> online.accept("noon"));
+        assertEquals(1, online.getNumberOfRejectedEvents());
+
+        // after closing time, an earlier arrival starts the next day once the last day has been finished
+        online.accept("23:50");
+        assertEquals(2, online.getTotalStatistics().getNumberOfCustomers());
+        online.accept("12:10:00 1011AB " + product + ":1");
+        assertEquals(1, online.getNumberOfDays());
+
+        Path file = directory.resolve("events.txt");
+        Files.writeString(file, "12:11:00 1011AB " + product + ":1\n12:12:00 1011AB " + product);
+        Thread tail = new Thread(() -> {
+            try {
+                online.tail(file, 10);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        tail.start();
+        Files.writeString(file, ":2\n12:14\n", StandardOpenOption.APPEND);
+        for (int i = 0; i < 500 && online.getNumberOfEvents() < 8; i++) {
+            Thread.sleep(10);
+        }
+        tail.interrupt();
+        tail.join(5000);
+        assertEquals(8, online.getNumberOfEvents());
+        assertEquals(5, online.getTotalStatistics().getNumberOfCustomers());
+        assertEquals(3, online.getWindowStatistics().getNumberOfCustomers());
+        assertEquals(3 / 300.0, online.getArrivalRate(), 1e-9);
+    }
+}
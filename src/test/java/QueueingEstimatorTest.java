@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class QueueingEstimatorTest {
+
+    @Test
+    void t651_estimatesRankLaneMixesLikeTheSimulation() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        QueueingEstimator estimator = new QueueingEstimator(supermarket);
+
+        QueueingEstimator.Estimate one = estimator.estimate(LaneMix.parse("FIFO"));
+        QueueingEstimator.Estimate two = estimator.estimate(LaneMix.parse("2xFIFO"));
+        QueueingEstimator.Estimate three = estimator.estimate(LaneMix.parse("3xFIFO"));
+        assertFalse(one.isStable());
+        assertTrue(two.isStable());
+        assertTrue(one.getAverageWaitingTime() > two.getAverageWaitingTime());
+        assertTrue(two.getAverageWaitingTime() > three.getAverageWaitingTime());
+
+        // a shared line of three regular stations pools the same capacity as three lanes
+        assertEquals(three.getAverageWaitingTime(), estimator.estimate(LaneMix.parse("SHARED:3")).getAverageWaitingTime(), 1e-9);
+        assertTrue(estimator.estimate(LaneMix.parse("SHARED:1.0;0.5")).getAverageWaitingTime() > two.getAverageWaitingTime());
+
+        // within the same order of magnitude as the simulation of a stable mix
+        supermarket.getCashiers().addAll(LaneMix.parse("2xFIFO").createCashiers());
+        supermarket.simulateCashiers();
+        double simulated = supermarket.getSimulationStatistics().getAverageWaitingTime();
+        assertTrue(two.getAverageWaitingTime() > simulated / 3 && two.getAverageWaitingTime() < simulated * 3,
+                two + " vs " + simulated);
+    }
+
+    @Test
+    void t652_priorityLanesAndScreening() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi50_7.xml");
+        QueueingEstimator estimator = new QueueingEstimator(supermarket, 10 * 60);
+        assertTrue(estimator.getNumberOfBuckets() > 1);
+
+        double fifo = estimator.estimate(LaneMix.parse("2xFIFO")).getAverageWaitingTime();
+        double priority = estimator.estimate(LaneMix.parse("FIFO,PRIO:3")).getAverageWaitingTime();
+        // priorities reorder the queue, which hardly changes the average wait
+        assertTrue(priority > 0.0 && Math.abs(priority - fifo) < fifo / 2, priority + " vs " + fifo);
+
+        assertTrue(estimator.isHopeless(LaneMix.parse("FIFO"), 30, 1.5));
+        assertFalse(estimator.isHopeless(LaneMix.parse("3xFIFO"), 30, 1.5));
+        assertEquals(0.0, QueueingEstimator.erlangC(1, 0.0), 1e-12);
+        assertEquals(0.5, QueueingEstimator.erlangC(1, 0.5), 1e-12);
+    }
+}
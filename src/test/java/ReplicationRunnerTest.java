@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class ReplicationRunnerTest {
+
+    private Supermarket supermarket;
+
+    @BeforeEach
+    void setup() {
+        supermarket = Supermarket.importFromXML("supermarket25.xml");
+    }
+
+    @Test
+    void t401_statisticsMergeWaitingTimeHistograms() {
+        SimulationStatistics statistics1 = new SimulationStatistics();
+        SimulationStatistics statistics2 = new SimulationStatistics();
+        for (int w = 1; w <= 50; w++) statistics1.addCustomer(w, 10);
+        for (int w = 51; w <= 100; w++) statistics2.addCustomer(w, 20);
+        statistics1.merge(statistics2);
+
+        assertEquals(100, statistics1.getNumberOfCustomers());
+        assertEquals(50.5, statistics1.getAverageWaitingTime(), 0.0001);
+        assertEquals(15.0, statistics1.getAverageCheckOutTime(), 0.0001);
+        assertEquals(95, statistics1.getWaitingTimePercentile(0.95));
+        assertEquals(100, statistics1.getMaxWaitingTime());
+    }
+
+    @Test
+    void t402_replicationsAreReproducibleOnAnyNumberOfThreads() {
+        List<LaneMix> laneMixes = Arrays.asList(LaneMix.parse("FIFO"), LaneMix.parse("2xFIFO"));
+        ReplicationRunner runner = new ReplicationRunner(supermarket, 100, 5);
+        List<ReplicationRunner.Result> sequential = runner.run(laneMixes, 6, 42L, 1);
+        List<ReplicationRunner.Result> parallel = runner.run(laneMixes, 6, 42L, 3);
+
+        for (int m = 0; m < laneMixes.size(); m++) {
+            assertEquals(laneMixes.get(m), parallel.get(m).getLaneMix());
+            for (int r = 0; r < 6; r++) {
+                assertEquals(sequential.get(m).getReplication(r).toString(), parallel.get(m).getReplication(r).toString());
+            }
+        }
+        // a second lane never increases the waiting time of the same customers
+        ReplicationRunner.Estimate gain = parallel.get(1).difference(parallel.get(0),
+                SimulationStatistics::getAverageWaitingTime);
+        assertThat(gain.getUpper(), is(lessThanOrEqualTo(0.0)));
+    }
+}
@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class ResultCacheTest {
+
+    @Test
+    void t631_repeatedSimulationsAreServedFromTheCache(@TempDir Path directory) {
+        ResultCache cache = new ResultCache(directory, 1_000_000);
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().addAll(LaneMix.parse("FIFO,PRIO:5").createCashiers());
+        String simulated = cache.simulate(supermarket).toString();
+        assertEquals(0, cache.getHits());
+
+        // the same inputs in another supermarket hit the cache
+        Supermarket same = Supermarket.importFromXML("jambi250_8.xml");
+        same.getCashiers().addAll(LaneMix.parse("FIFO,PRIO:5").createCashiers());
+        assertEquals(ResultCache.fingerprint(supermarket), ResultCache.fingerprint(same));
+        assertEquals(simulated, cache.simulate(same).toString());
+        assertEquals(1, cache.getHits());
+        Supermarket lazy = Supermarket.importFromXML("jambi250_8.xml", true);
+        lazy.getCashiers().addAll(LaneMix.parse("FIFO,PRIO:5").createCashiers());
+        assertEquals(ResultCache.fingerprint(supermarket), ResultCache.fingerprint(lazy));
+
+        // any change of the cashiers or the customers is another simulation
+        same.getCashiers().set(1, new PriorityCashier("PRIO-1", 4));
+        assertNotEquals(ResultCache.fingerprint(supermarket), ResultCache.fingerprint(same));
+        same.getCashiers().set(1, new PriorityCashier("PRIO-1", 5));
+        same.getCustomers().add(new Customer(LocalTime.of(12, 0), "1013ZZ"));
+        assertNotEquals(ResultCache.fingerprint(supermarket), ResultCache.fingerprint(same));
+        cache.simulate(same);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void t632_leastRecentlyUsedEntriesAreEvicted(@TempDir Path directory) throws IOException {
+        // room for a single entry only
+        ResultCache cache = new ResultCache(directory, 1);
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        for (int n = 1; n <= 3; n++) {
+            supermarket.getCashiers().add(new FIFOCashier("FIFO-" + n));
+            cache.simulate(supermarket);
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            assertEquals(1, entries.count());
+        }
+        cache.simulate(supermarket);
+        assertEquals(1, cache.getHits());
+        supermarket.getCashiers().remove(2);
+        cache.simulate(supermarket);
+        assertEquals(4, cache.getMisses());
+    }
+}
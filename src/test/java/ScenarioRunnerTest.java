@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class ScenarioRunnerTest {
+
+    @Test
+    void t641_defaultScenariosAreLoaded() {
+        List<ScenarioRunner.Dataset> datasets = ScenarioRunner.importFromXML("scenarios.xml");
+        assertEquals(1, datasets.size());
+        assertEquals("jambi250_8.xml", datasets.get(0).getFile());
+        assertEquals(3, datasets.get(0).getScenarios().size());
+
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        datasets.get(0).getScenarios().get(2).configure(supermarket);
+        assertEquals("[FIFO(FIFO), PRIO(FIFO)]", supermarket.getCashiers().toString());
+
+        List<ScenarioRunner.Dataset> shared = ScenarioRunner.importFromXML("scenarios-shared.xml");
+        assertEquals(1, shared.get(0).getScenarios().size());
+        shared.get(0).getScenarios().get(0).configure(supermarket);
+        assertEquals("[SELF(SHARED:2)]", supermarket.getCashiers().toString());
+    }
+
+    @Test
+    void t642_scenariosConfigureLanesSchedulesAndAbandonment(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("what-if.xml");
+        Files.writeString(file, "<scenarios>\n" +
+                "  <dataset file=\"jambi50_7.xml\">\n" +
+                "    <scenario name=\"mix\" lanes=\"2xFIFO\" report=\"summary\"><cashier lane=\"PRIO:3\" name=\"EXPRESS\"/></scenario>\n" +
+                "    <scenario name=\"shift\" schedule=\"FIFO, FIFO@12:00-14:00\" patience=\"240\" report=\"none\"/>\n" +
+                "  </dataset>\n" +
+                "  <dataset file=\"jambi5.xml\"><scenario name=\"single\" lanes=\"FIFO\"/></dataset>\n" +
+                "</scenarios>\n");
+        List<ScenarioRunner.Dataset> datasets = ScenarioRunner.importFromXML(file.toString());
+        assertEquals(2, datasets.size());
+
+        Supermarket supermarket = Supermarket.importFromXML("jambi50_7.xml");
+        datasets.get(0).getScenarios().get(0).configure(supermarket);
+        assertEquals("[FIFO-1(FIFO), FIFO-2(FIFO), EXPRESS(PRIO:3)]", supermarket.getCashiers().toString());
+        assertNull(supermarket.getAbandonment());
+        datasets.get(0).getScenarios().get(1).configure(supermarket);
+        assertEquals(0, supermarket.getCashiers().size());
+        assertNotNull(supermarket.getStaffingSchedule());
+        assertEquals(240, supermarket.getAbandonment().getPatience());
+        assertEquals(Abandonment.NEVER, supermarket.getAbandonment().getBalkingThreshold());
+
+        // only the reports that have been asked for are printed
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            ScenarioRunner.run(datasets, 2);
+        } finally {
+            System.setOut(stdout);
+        }
+        String printed = output.toString();
+        Supermarket mix = Supermarket.importFromXML("jambi50_7.xml");
+        datasets.get(0).getScenarios().get(0).configure(mix);
+        mix.simulateCashiers();
+        assertTrue(printed.contains("mix: " + mix.getSimulationStatistics() + "\n"));
+        assertFalse(printed.contains("shift"));
+        assertEquals(1, printed.split("Simulation scenario results:", -1).length - 1);
+
+        Files.writeString(file, "<scenarios><dataset file=\"jambi5.xml\"><scenario name=\"none\"/></dataset></scenarios>");
+        assertThrows(IllegalArgumentException.class, () -> ScenarioRunner.importFromXML(file.toString()));
+    }
+}
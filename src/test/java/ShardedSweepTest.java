@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class ShardedSweepTest {
+
+    @Test
+    void t611_statisticsRecordsRoundTrip() {
+        SimulationStatistics statistics = new SimulationStatistics();
+        for (int w = 0; w < 500; w += 7) statistics.addCustomer(w, 30 + w % 11);
+        SimulationStatistics decoded = SimulationStatistics.fromRecord(statistics.toRecord());
+        assertEquals(statistics.toString(), decoded.toString());
+        assertEquals(statistics.toRecord(), decoded.toRecord());
+        assertThrows(IllegalArgumentException.class, () -> SimulationStatistics.fromRecord("1 2 three"));
+    }
+
+    @Test
+    void t612_workersMergeIntoTheSameResultAsOneProcess(@TempDir Path workDirectory) throws IOException {
+        List<String> datasets = List.of("jambi1.xml", "jambi5.xml", "jambi50_7.xml");
+        List<LaneMix> laneMixes = List.of(LaneMix.parse("FIFO"), LaneMix.parse("PRIO:5"));
+        ShardedSweep sweep = new ShardedSweep(datasets, laneMixes, 0, 0L);
+        ShardedSweep.Result result = sweep.run(2, workDirectory);
+        assertEquals(datasets.size(), result.getNumberOfTasks());
+
+        for (LaneMix laneMix : laneMixes) {
+            SimulationStatistics merged = new SimulationStatistics();
+            for (String dataset : datasets) {
+                Supermarket supermarket = Supermarket.importFromXML(dataset);
+                supermarket.getCashiers().addAll(laneMix.createCashiers());
+                supermarket.simulateCashiers();
+                merged.merge(supermarket.getSimulationStatistics());
+                assertEquals(supermarket.getSimulationStatistics().toString(),
+                        result.getStatistics(dataset, laneMix).toString());
+            }
+            assertEquals(merged.toString(), result.getStatistics(laneMix).toString());
+        }
+    }
+}
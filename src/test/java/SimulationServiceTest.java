@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class SimulationServiceTest {
+
+    @Test
+    void t621_cacheReloadsChangedFilesAndEvictsLeastRecentlyUsed(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("jambi5.xml");
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("jambi5.xml")) {
+            Files.copy(in, file);
+        }
+        // room for the 250 customers of the large dataset, plus a small one
+        DatasetCache cache = new DatasetCache(260);
+        Supermarket first = cache.get(file.toString());
+        assertSame(first, cache.get(file.toString()));
+        assertEquals(1, cache.getHits());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        Supermarket reloaded = cache.get(file.toString());
+        assertNotSame(first, reloaded);
+        assertEquals(2, cache.size());
+        assertEquals(12, cache.getNumberOfCustomers());
+
+        cache.get("jambi250_8.xml");
+        assertEquals(2, cache.size());
+        assertSame(reloaded, cache.get(file.toString()));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(directory.resolve("missing.xml").toString()));
+
+        // a failed load is not cached, and later requests fail as well instead of waiting
+        assertThrows(IllegalArgumentException.class, () -> cache.get("src/test/resources/malformed.xml"));
+        assertThrows(IllegalArgumentException.class, () -> cache.get("src/test/resources/malformed.xml"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void t622_serviceAnswersWhatIfQuestions() throws IOException, InterruptedException {
+        SimulationService service = new SimulationService(0, 10_000);
+        service.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String url = "http://localhost:" + service.getPort() + "/simulate?dataset=jambi250_8.xml&lanes=2xFIFO,PRIO:5";
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertThat(response.body(), containsString("lanes=FIFO,FIFO,PRIO:5\n"));
+            assertThat(response.body(), containsString("n-customers=250\n"));
+
+            // the second request reuses the parsed dataset
+            client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(1, service.getDatasets().getMisses());
+            assertEquals(1, service.getDatasets().getHits());
+
+            response = client.send(HttpRequest.newBuilder(URI.create(url.replace("PRIO:5", "UNKNOWN"))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+        } finally {
+            service.stop(0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import utils.SpaceSaving;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class SpaceSavingTest {
+
+    /**
+     * a skewed stream of 1000 items, item i with a weight proportional to 1 / (i + 1)
+     */
+    private static int[] skewedStream(Random random, int length) {
+        double[] cumulative = new double[1000];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        int[] stream = new int[length];
+        for (int s = 0; s < length; s++) {
+            double r = random.nextDouble() * sum;
+            int i = 0;
+            while (cumulative[i] < r) i++;
+            stream[s] = i;
+        }
+        return stream;
+    }
+
+    private static void assertWithinBounds(SpaceSaving<Integer> sketch, Map<Integer, Long> exact, long total) {
+        assertEquals(total, sketch.getTotal());
+        for (SpaceSaving.Counter<Integer> counter : sketch.top(sketch.size())) {
+            long count = exact.getOrDefault(counter.getItem(), 0L);
+            assertTrue(counter.getCount() >= count, counter + " vs " + count);
+            assertTrue(counter.getCount() - counter.getError() <= count, counter + " vs " + count);
+            assertTrue(counter.getError() <= total / sketch.getCapacity(), counter.toString());
+        }
+        // every item above total / capacity has a counter
+        for (Map.Entry<Integer, Long> item : exact.entrySet()) {
+            if (item.getValue() > total / sketch.getCapacity()) {
+                assertTrue(sketch.estimate(item.getKey()) >= item.getValue());
+                assertTrue(sketch.top(sketch.size()).stream().anyMatch(c -> c.getItem().equals(item.getKey())));
+            }
+        }
+    }
+
+    @Test
+    void t681_countsAreBoundedOverestimates() {
+        Random random = new Random(681);
+        SpaceSaving<Integer> sketch = new SpaceSaving<>(SpaceSaving.capacityFor(0.02));
+        assertEquals(50, sketch.getCapacity());
+        Map<Integer, Long> exact = new HashMap<>();
+        long total = 0;
+        for (int item : skewedStream(random, 20000)) {
+            int amount = 1 + random.nextInt(3);
+            sketch.add(item, amount);
+            exact.merge(item, (long) amount, Long::sum);
+            total += amount;
+        }
+        assertEquals(50, sketch.size());
+        assertWithinBounds(sketch, exact, total);
+        List<SpaceSaving.Counter<Integer>> top = sketch.top(3);
+        assertEquals(List.of(0, 1, 2), List.of(top.get(0).getItem(), top.get(1).getItem(), top.get(2).getItem()));
+
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving<Integer>(0));
+        assertThrows(IllegalArgumentException.class, () -> SpaceSaving.capacityFor(0.0));
+    }
+
+    @Test
+    void t682_mergedSketchesKeepTheirBounds() {
+        Random random = new Random(682);
+        SpaceSaving<Integer> merged = new SpaceSaving<>(40);
+        Map<Integer, Long> exact = new HashMap<>();
+        long total = 0;
+        for (int part = 0; part < 4; part++) {
+            SpaceSaving<Integer> sketch = new SpaceSaving<>(40);
+            for (int item : skewedStream(random, 5000)) {
+                // the parts see different popular items
+                int shifted = (item + 7 * part) % 1000;
+                sketch.add(shifted, 1);
+                exact.merge(shifted, 1L, Long::sum);
+                total++;
+            }
+            merged.merge(SpaceSaving.restore(40, sketch.getTotal(), sketch.top(40)));
+        }
+        assertEquals(40, merged.size());
+        assertWithinBounds(merged, exact, total);
+
+        assertThrows(IllegalArgumentException.class, () -> merged.merge(new SpaceSaving<>(10)));
+    }
+}
@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class StaffingOptimizerTest {
+
+    @Test
+    void t501_copyIsSimulatedIndependently() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        Supermarket copy = supermarket.copyForSimulation();
+        assertEquals(supermarket.getCustomers().size(), copy.getCustomers().size());
+        assertSame(supermarket.getCustomers().get(0).getItems(), copy.getCustomers().get(0).getItems());
+
+        copy.getCashiers().add(new FIFOCashier("FIFO"));
+        copy.simulateCashiers();
+        assertThat(copy.getSimulationStatistics().getAverageWaitingTime(), is(greaterThan(0.0)));
+        assertNull(supermarket.getCustomers().get(0).getCheckOutCashier());
+    }
+
+    @Test
+    void t502_optimizerFindsSmallestFeasibleLaneMix() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        StaffingOptimizer optimizer = new StaffingOptimizer(supermarket, 0.95, 60);
+        StaffingOptimizer.Candidate best = optimizer.optimize(2);
+
+        assertNotNull(best);
+        assertTrue(best.isFeasible());
+        assertThat(best.getStatistics().getWaitingTimePercentile(0.95), is(lessThanOrEqualTo(60)));
+
+        // no mix with one lane less meets the target
+        int nLanes = best.getLaneMix().getNumberOfLanes();
+        if (nLanes > 1) {
+            supermarket.getCashiers().addAll(LaneMix.of(nLanes - 1, 0, 0).createCashiers());
+            supermarket.simulateCashiers();
+            assertThat(supermarket.getSimulationStatistics().getWaitingTimePercentile(0.95), is(greaterThan(60)));
+        }
+    }
+
+    @Test
+    void t503_listenerStopsTheSimulation() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().add(new FIFOCashier("FIFO"));
+        int[] nServed = new int[1];
+        boolean[] ended = new boolean[1];
+        supermarket.setSimulationListener(new SimulationListener() {
+            @Override
+            public void onServiceStart(Cashier cashier, Customer customer, int time) {
+                if (++nServed[0] == 10) supermarket.stopSimulation();
+            }
+
+            @Override
+            public void onSimulationEnd(List<Cashier> cashiers) {
+                ended[0] = true;
+            }
+        });
+        supermarket.simulateCashiers();
+        assertTrue(supermarket.isStopped());
+        assertTrue(ended[0]);
+        assertThat(nServed[0], is(lessThan(20)));
+        assertThat(supermarket.getSimulationStatistics().getNumberOfUnserved(), is(greaterThan(200L)));
+
+        // the next simulation runs to the end
+        supermarket.setSimulationListener(null);
+        supermarket.simulateCashiers();
+        assertFalse(supermarket.isStopped());
+        assertEquals(0, supermarket.getSimulationStatistics().getNumberOfUnserved());
+    }
+}
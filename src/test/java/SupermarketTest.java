@@ -5,7 +5,13 @@ import org.junit.jupiter.api.TestMethodOrder;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,6 +87,30 @@ class SupermarketTest {
         assertNull(supermarket5.mostBoughtProductByZipCode().get("1016DK"));
     }
 
+    @Test
+    void t043_customersAreProvidedInArrivalOrder() {
+        List<Customer> ordered = supermarket5.getCustomersInArrivalOrder();
+        assertEquals(supermarket5.getCustomers().size(), ordered.size());
+        for (int i = 1; i < ordered.size(); i++) {
+            assertThat(ordered.get(i).getQueuedAt(), is(greaterThanOrEqualTo(ordered.get(i-1).getQueuedAt())));
+        }
+        assertSame(ordered.get(0), supermarket5.getCustomersInArrivalOrder().get(0));
+
+        Customer early = new Customer(supermarket5.getOpenTime(), "1013AA");
+        supermarket5.getCustomers().add(early);
+        assertSame(early, supermarket5.getCustomersInArrivalOrder().get(0));
+
+        // replacements do not change the size of the list, but do change the order and the index
+        CustomerIndex index = supermarket5.getCustomerIndex();
+        Customer earlier = new Customer(supermarket5.getOpenTime(), "1013AB");
+        supermarket5.getCustomers().set(supermarket5.getCustomers().size() - 1, earlier);
+        assertSame(earlier, supermarket5.getCustomersInArrivalOrder().get(0));
+        assertNotSame(index, supermarket5.getCustomerIndex());
+        Customer earliest = new Customer(supermarket5.getOpenTime(), "1013AC");
+        supermarket5.getCustomers().subList(0, supermarket5.getCustomers().size()).set(supermarket5.getCustomers().size() - 1, earliest);
+        assertSame(earliest, supermarket5.getCustomersInArrivalOrder().get(0));
+    }
+
     @Test
     void t061_oneFIFOCashierSimulation() {
         t060_oneCashierSimulation(this.supermarket1, this.fifoCashier1, 260, 1);
@@ -95,6 +125,399 @@ class SupermarketTest {
         t060_twoCashierSimulation(this.supermarket5, this.fifoCashier1, this.fifoCashier2, 450, 202, 248, 2, 2);
     }
 
+    @Test
+    void t063_simulationMetricsFollowSimulationEvents() {
+        if (this.fifoCashier1 == null || this.fifoCashier2 == null) return;
+        SimulationMetrics metrics = new SimulationMetrics();
+        supermarket5.setSimulationListener(metrics);
+        supermarket5.getCashiers().clear();
+        supermarket5.getCashiers().add(this.fifoCashier1);
+        supermarket5.getCashiers().add(this.fifoCashier2);
+        supermarket5.simulateCashiers();
+
+        assertEquals(1, metrics.getSimulations());
+        assertEquals(5, metrics.getLaneMetrics(this.fifoCashier1).getCustomers() +
+                metrics.getLaneMetrics(this.fifoCashier2).getCustomers());
+        assertEquals(this.fifoCashier1.getMaxQueueLength(), metrics.getLaneMetrics(this.fifoCashier1).getMaxQueueLength());
+        assertThat(metrics.getLaneMetrics(this.fifoCashier1).getUtilization(), is(both(greaterThan(0.0)).and(lessThan(1.0))));
+
+        supermarket5.setSimulationListener(null);
+        supermarket5.simulateCashiers();
+        assertEquals(1, metrics.getSimulations());
+
+        // the queue length is averaged over all arrivals, also those of customers that have left the queue
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        SimulationMetrics impatient = new SimulationMetrics();
+        supermarket.setSimulationListener(impatient);
+        supermarket.setAbandonment(new Abandonment(Abandonment.NEVER, 20));
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-2"));
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-1"));
+        supermarket.simulateCashiers();
+        SimulationMetrics.LaneMetrics lane = impatient.getLaneMetrics(supermarket.getCashiers().get(0));
+        assertEquals(lane.getCustomers() + lane.getAbandoned(), lane.getArrivals());
+        assertThat(lane.getAbandoned(), is(greaterThan(0L)));
+        assertThat(lane.getAverageQueueLength(), is(lessThanOrEqualTo((double) lane.getMaxQueueLength())));
+
+        // lanes are reported in order of name
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        impatient.printMetrics(new PrintStream(printed, true));
+        assertThat(printed.toString().indexOf("FIFO-1"), is(lessThan(printed.toString().indexOf("FIFO-2"))));
+    }
+
+    @Test
+    void t064_queueTimeSeriesRecordsBuckets() {
+        if (this.fifoCashier1 == null) return;
+        QueueTimeSeries timeSeries = new QueueTimeSeries(QueueTimeSeries.ONE_MINUTE);
+        supermarket5.setSimulationListener(timeSeries);
+        supermarket5.getCashiers().clear();
+        supermarket5.getCashiers().add(this.fifoCashier1);
+        supermarket5.simulateCashiers();
+
+        assertEquals(1, timeSeries.getNumberOfLanes());
+        assertThat(timeSeries.getNumberOfBuckets(), is(greaterThanOrEqualTo(5)));
+        int totalIdleTime = 0, maxQueueLength = 0;
+        for (int bucket = 0; bucket < timeSeries.getNumberOfBuckets(); bucket++) {
+            totalIdleTime += timeSeries.getIdleSeconds(0, bucket);
+            maxQueueLength = Math.max(maxQueueLength, timeSeries.getMaxQueueLength(0, bucket));
+        }
+        // the time series also covers the idle overtime of 15 minutes
+        assertEquals(this.fifoCashier1.getTotalIdleTime() + 15 * 60, totalIdleTime);
+        assertEquals(this.fifoCashier1.getMaxQueueLength(), maxQueueLength);
+        assertEquals(supermarket5.getOpenTime(), timeSeries.getBucketStart(0));
+    }
+
+    @Test
+    void t064_queueTimeSeriesFollowsOpenedLanesAndAbandonment() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        QueueTimeSeries timeSeries = new QueueTimeSeries(QueueTimeSeries.FIVE_MINUTES);
+        supermarket.setSimulationListener(timeSeries);
+        supermarket.setAbandonment(new Abandonment(5 * 60, 4 * 60));
+        Cashier cashier = new FIFOCashier("FIFO-1");
+        supermarket.getCashiers().add(cashier);
+        supermarket.startSimulation();
+        supermarket.simulateUntil(supermarket.getOpenTime().plusHours(1));
+        Cashier extra = new FIFOCashier("FIFO-extra");
+        supermarket.openCashier(extra);
+        supermarket.finishSimulation();
+        assertThat(supermarket.getAbandonment().getNumberOfReneged(cashier), is(greaterThan(0)));
+
+        assertEquals(2, timeSeries.getNumberOfLanes());
+        int lastBucket = timeSeries.getNumberOfBuckets() - 1;
+        for (int lane = 0; lane < 2; lane++) {
+            Cashier laneCashier = (lane == 0 ? cashier : extra);
+            int busySeconds = 0;
+            for (int bucket = 0; bucket <= lastBucket; bucket++) {
+                busySeconds += timeSeries.getBusySeconds(lane, bucket);
+                assertThat(timeSeries.getBusySeconds(lane, bucket) + timeSeries.getIdleSeconds(lane, bucket),
+                        is(lessThanOrEqualTo(QueueTimeSeries.FIVE_MINUTES)));
+                assertThat(timeSeries.getUtilization(lane, bucket), is(both(greaterThanOrEqualTo(0.0)).and(lessThanOrEqualTo(1.0))));
+            }
+            int checkOutTime = 0;
+            for (Customer c : supermarket.getCustomers()) {
+                if (c.getCheckOutCashier() == laneCashier) checkOutTime += c.getActualCheckOutTime();
+            }
+            assertEquals(checkOutTime, busySeconds);
+            // customers that reneged have left the queue by the idle overtime
+            assertEquals(0.0, timeSeries.getAverageQueueLength(lane, lastBucket));
+        }
+        // the extra lane is not staffed before it has been opened
+        assertEquals(0, timeSeries.getIdleSeconds(1, 0) + timeSeries.getBusySeconds(1, 0));
+        assertEquals(0.0, timeSeries.getUtilization(1, 0));
+    }
+
+    @Test
+    void t065_checkpointsResumeTheSimulation() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().addAll(LaneMix.parse("FIFO,PRIO:5").createCashiers());
+        supermarket.simulateCashiers();
+        String fullDay = supermarket.getSimulationStatistics().toString();
+        Cashier priority = supermarket.getCashiers().get(1);
+        int fullDayIdleTime = priority.getTotalIdleTime();
+
+        supermarket.startSimulation();
+        supermarket.simulateUntil(supermarket.getOpenTime().plusHours(2));
+        SimulationCheckpoint checkpoint = supermarket.checkpoint();
+        assertThat(checkpoint.getNumberOfArrivals(), is(both(greaterThan(0)).and(lessThan(250))));
+        supermarket.finishSimulation();
+        assertEquals(fullDay, supermarket.getSimulationStatistics().toString());
+
+        // a branch with an extra lane does not affect the original, nor other branches
+        Supermarket branch = checkpoint.fork();
+        branch.openCashier(new FIFOCashier("FIFO-extra"));
+        branch.finishSimulation();
+        assertEquals(3, branch.getCashiers().size());
+        assertThat(branch.getSimulationStatistics().getAverageWaitingTime(),
+                is(lessThan(supermarket.getSimulationStatistics().getAverageWaitingTime())));
+        assertEquals(fullDay, supermarket.getSimulationStatistics().toString());
+
+        // restoring keeps the cashier instances, which continue from their state at the snapshot
+        supermarket.restore(checkpoint);
+        assertSame(priority, supermarket.getCashiers().get(1));
+        assertThat(priority.getTotalIdleTime(), is(lessThanOrEqualTo(fullDayIdleTime)));
+        supermarket.finishSimulation();
+        assertEquals(fullDay, supermarket.getSimulationStatistics().toString());
+        assertEquals(fullDayIdleTime, priority.getTotalIdleTime());
+        Supermarket unchangedBranch = checkpoint.fork();
+        unchangedBranch.finishSimulation();
+        assertEquals(fullDay, unchangedBranch.getSimulationStatistics().toString());
+
+        // the snapshot does not capture the patience of customers
+        supermarket.setAbandonment(new Abandonment(5 * 60, 4 * 60));
+        assertThrows(IllegalStateException.class, checkpoint::fork);
+        assertThrows(IllegalStateException.class, () -> supermarket.restore(checkpoint));
+    }
+
+    @Test
+    void t066_scheduledCashiersOpenAndClose() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        StaffingSchedule schedule = StaffingSchedule.parse("FIFO, PRIO:5@13:00-14:00");
+        Cashier extra = schedule.getCashiers().get(1);
+        assertEquals("PRIO-1", extra.getName());
+        supermarket.setStaffingSchedule(schedule);
+        supermarket.simulateCashiers();
+
+        assertEquals(2, supermarket.getCashiers().size());
+        int nExtra = 0;
+        for (Customer c : supermarket.getCustomers()) {
+            if (c.getCheckOutCashier() == extra) {
+                nExtra++;
+                assertFalse(c.getQueuedAt().isBefore(LocalTime.of(13, 0)));
+                assertTrue(c.getQueuedAt().isBefore(LocalTime.of(14, 0)));
+            }
+        }
+        assertThat(nExtra, is(greaterThan(0)));
+        // idle time is only accounted during the shift
+        assertThat(extra.getTotalIdleTime(), is(both(greaterThan(0)).and(lessThan(60 * 60))));
+        assertFalse(extra.isStaffed());
+        assertThrows(IllegalArgumentException.class, () -> StaffingSchedule.parse("FIFO@14:00-13:00"));
+
+        // the cashiers of a schedule only take part in the simulations of that schedule
+        supermarket.simulateCashiers();
+        assertEquals(2, supermarket.getCashiers().size());
+        supermarket.setStaffingSchedule(StaffingSchedule.parse("FIFO@12:00-13:00, FIFO@14:00-"));
+        assertEquals(0, supermarket.getCashiers().size());
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-extra"));
+        supermarket.simulateCashiers();
+        assertEquals(3, supermarket.getCashiers().size());
+        supermarket.setStaffingSchedule(null);
+        assertEquals(1, supermarket.getCashiers().size());
+    }
+
+    @Test
+    void t066_restoredScheduledCashiersTakePartInTheirScheduleOnly() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-extra"));
+        supermarket.setStaffingSchedule(StaffingSchedule.parse("FIFO, PRIO:5@13:00-14:00"));
+        supermarket.simulateCashiers();
+        String fullDay = supermarket.getSimulationStatistics().toString();
+
+        supermarket.startSimulation();
+        supermarket.simulateUntil(LocalTime.of(13, 30));
+        SimulationCheckpoint checkpoint = supermarket.checkpoint();
+        supermarket.finishSimulation();
+        supermarket.restore(checkpoint);
+        assertEquals(3, supermarket.getCashiers().size());
+        supermarket.finishSimulation();
+        assertEquals(fullDay, supermarket.getSimulationStatistics().toString());
+
+        // the next simulation starts with the scheduled cashiers only once
+        supermarket.startSimulation();
+        assertEquals(3, supermarket.getCashiers().size());
+        supermarket.finishSimulation();
+        assertEquals(fullDay, supermarket.getSimulationStatistics().toString());
+        supermarket.restore(checkpoint);
+        supermarket.setStaffingSchedule(null);
+        assertEquals(1, supermarket.getCashiers().size());
+    }
+
+    @Test
+    void t066_closedCashiersAreCalledBackIfAllLanesAreClosed() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.setStaffingSchedule(StaffingSchedule.parse("FIFO@12:00-13:00, FIFO@14:00-"));
+        Customer lunchBreak = null;
+        for (Customer c : supermarket.getCustomersInArrivalOrder()) {
+            if (!c.getQueuedAt().isBefore(LocalTime.of(13, 30))) {
+                lunchBreak = c;
+                break;
+            }
+        }
+        assertNotNull(lunchBreak);
+
+        supermarket.startSimulation();
+        supermarket.simulateUntil(lunchBreak.getQueuedAt().toSecondOfDay() + 1);
+        Cashier calledBack = lunchBreak.getCheckOutCashier();
+        assertNotNull(calledBack);
+        assertFalse(calledBack.isOpen());
+        assertTrue(calledBack.isStaffed());
+        int idleTime = calledBack.getTotalIdleTime();
+        supermarket.finishSimulation();
+        assertEquals(0, supermarket.getSimulationStatistics().getNumberOfUnserved());
+        assertThat(calledBack.getTotalIdleTime(), is(greaterThanOrEqualTo(idleTime)));
+    }
+
+    @Test
+    void t067_customersBalkAndRenege() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-1"));
+        supermarket.simulateCashiers();
+        SimulationStatistics patient = supermarket.getSimulationStatistics();
+        assertEquals(0, patient.getNumberOfAbandoned());
+
+        // nobody waits longer than their patience, and nobody joins a queue that is expected to exceed the threshold
+        final int balkingThreshold = 5 * 60, patience = 4 * 60;
+        supermarket.setAbandonment(new Abandonment(balkingThreshold, patience));
+        supermarket.simulateCashiers();
+        SimulationStatistics impatient = supermarket.getSimulationStatistics();
+        Abandonment abandonment = supermarket.getAbandonment();
+        Cashier cashier = supermarket.getCashiers().get(0);
+        int nBalked = abandonment.getNumberOfBalked(cashier);
+        int nReneged = abandonment.getNumberOfReneged(cashier);
+        assertThat(nBalked, is(greaterThan(0)));
+        assertThat(nReneged, is(greaterThan(0)));
+        assertEquals(nBalked + nReneged, impatient.getNumberOfAbandoned());
+        assertEquals(patient.getNumberOfCustomers(), impatient.getNumberOfCustomers() + impatient.getNumberOfAbandoned());
+        assertThat(impatient.getMaxWaitingTime(), is(lessThanOrEqualTo(patience)));
+        for (Customer c : supermarket.getCustomers()) {
+            assertEquals(c.isAbandoned(), c.getCheckOutCashier() == null);
+        }
+
+        // a repeated simulation starts with all customers back in the shop
+        supermarket.simulateCashiers();
+        assertEquals(impatient.toString(), supermarket.getSimulationStatistics().toString());
+        supermarket.startSimulation();
+        assertThrows(IllegalStateException.class, supermarket::checkpoint);
+
+        // customers also abandon cashiers that are opened during the simulation
+        supermarket.simulateUntil(supermarket.getOpenTime().plusHours(1));
+        Cashier extra = new FIFOCashier("FIFO-extra");
+        supermarket.openCashier(extra);
+        supermarket.finishSimulation();
+        assertThat(supermarket.getSimulationStatistics().getNumberOfAbandoned(), is(lessThan(impatient.getNumberOfAbandoned())));
+        assertEquals(supermarket.getSimulationStatistics().getNumberOfAbandoned(),
+                abandonment.getNumberOfBalked(cashier) + abandonment.getNumberOfReneged(cashier) +
+                abandonment.getNumberOfBalked(extra) + abandonment.getNumberOfReneged(extra));
+    }
+
+    @Test
+    void t067_unservedCustomersDoNotWait() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCustomers().add(new Customer(supermarket.getOpenTime().plusHours(1), "1013AD"));
+        supermarket.getCashiers().add(new FIFOCashier("FIFO-1"));
+        int nCustomers = supermarket.getCustomers().size();
+        supermarket.simulateCashiers();
+        SimulationStatistics fullDay = supermarket.getSimulationStatistics();
+        assertEquals(1, fullDay.getNumberOfUnserved());
+        assertEquals(nCustomers - 1, fullDay.getNumberOfCustomers());
+        assertEquals(fullDay.toRecord(), SimulationStatistics.fromRecord(fullDay.toRecord()).toRecord());
+
+        // halfway the day, the customers that have not finished yet do not count as checked out without waiting
+        supermarket.startSimulation();
+        supermarket.simulateUntil(supermarket.getOpenTime().plusHours(2));
+        SimulationStatistics halfway = supermarket.getSimulationStatistics();
+        assertThat(halfway.getNumberOfUnserved(), is(greaterThan(1L)));
+        assertEquals(nCustomers, halfway.getNumberOfCustomers() + halfway.getNumberOfUnserved());
+        assertThat(halfway.getWaitingTimeHistogram()[0], is(lessThanOrEqualTo(fullDay.getWaitingTimeHistogram()[0])));
+    }
+
+    @Test
+    void t067_sharedLaneCustomersCountAsServedWhenCheckedOut() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        supermarket.getCashiers().add(new SharedQueueCashier("SHARED-1", 1.0, 0.5));
+        supermarket.simulateCashiers();
+        SimulationStatistics fullDay = supermarket.getSimulationStatistics();
+        assertEquals(0, fullDay.getNumberOfUnserved());
+
+        // halfway the day, the customers that are still in the line are not served yet
+        Customer longestWaiting = supermarket.getCustomers().get(0);
+        for (Customer c : supermarket.getCustomers()) {
+            if (c.getActualWaitingTime() > longestWaiting.getActualWaitingTime()) longestWaiting = c;
+        }
+        assertThat(longestWaiting.getActualWaitingTime(), is(greaterThan(1)));
+        supermarket.startSimulation();
+        int halfwaySecond = longestWaiting.getQueuedAt().toSecondOfDay() + 1;
+        supermarket.simulateUntil(halfwaySecond);
+        Cashier shared = supermarket.getCashiers().get(0);
+        assertTrue(shared.getWaitingQueue().contains(longestWaiting));
+        for (Customer c : shared.getWaitingQueue()) {
+            assertEquals(0, c.getActualCheckOutTime());
+        }
+        int nServed = 0;
+        for (Customer c : supermarket.getCustomers()) {
+            if (c.getActualCheckOutTime() > 0) {
+                nServed++;
+                assertThat(c.getQueuedAt().toSecondOfDay() + c.getActualWaitingTime() + c.getActualCheckOutTime(),
+                        is(lessThanOrEqualTo(halfwaySecond)));
+            }
+        }
+        SimulationStatistics halfway = supermarket.getSimulationStatistics();
+        assertEquals(nServed, halfway.getNumberOfCustomers());
+        assertThat(halfway.getNumberOfUnserved(), is(greaterThan(0L)));
+        assertThat(halfway.getMaxWaitingTime(), is(lessThanOrEqualTo(fullDay.getMaxWaitingTime())));
+        supermarket.finishSimulation();
+        assertEquals(fullDay.toString(), supermarket.getSimulationStatistics().toString());
+    }
+
+    @Test
+    void t068_lazyImportDecodesPurchasesOnDemand() {
+        Supermarket eager = Supermarket.importFromXML("jambi250_8.xml");
+        Supermarket lazy = Supermarket.importFromXML("jambi250_8.xml", true);
+        assertEquals(eager.getTotalNumberOfItems(), lazy.getTotalNumberOfItems());
+
+        // simulations and bills do not need the purchases themselves
+        eager.getCashiers().add(new FIFOCashier("FIFO-1"));
+        lazy.getCashiers().add(new FIFOCashier("FIFO-1"));
+        eager.simulateCashiers();
+        lazy.simulateCashiers();
+        assertEquals(eager.getSimulationStatistics().toString(), lazy.getSimulationStatistics().toString());
+        assertEquals(eager.revenueByZipCode(), lazy.revenueByZipCode());
+        ProductSketches eagerSketches = new ProductSketches(4), lazySketches = new ProductSketches(4);
+        eager.getCustomers().forEach(eagerSketches::add);
+        lazy.getCustomers().forEach(lazySketches::add);
+        assertEquals(eagerSketches.toRecords(), lazySketches.toRecords());
+
+        Customer lazyCustomer = lazy.getCustomers().get(0);
+        Customer copy = new Customer(lazyCustomer);
+        assertEquals(eager.getCustomers().get(0).getItems().size(), lazyCustomer.getItems().size());
+        assertSame(lazyCustomer.getItems(), copy.getItems());
+        assertEquals(eager.mostBoughtProductByZipCode(), lazy.mostBoughtProductByZipCode());
+    }
+
+    @Test
+    void t069_approximateTopProductsPerZipCode() {
+        Supermarket supermarket = Supermarket.importFromXML("jambi250_8.xml");
+        Map<String, Map<Product, Integer>> amounts = new HashMap<>();
+        for (Customer customer : supermarket.getCustomers()) {
+            for (Purchase purchase : customer.getItems()) {
+                amounts.computeIfAbsent(customer.getZipCode(), zip -> new HashMap<>())
+                        .merge(purchase.getProduct(), purchase.getAmount(), Integer::sum);
+            }
+        }
+
+        // with a counter for every product the sketches are exact
+        Map<String, Product> mostBought = supermarket.mostBoughtProductByZipCode();
+        Map<String, List<Product>> top3 = supermarket.mostBoughtProductsByZipCode(3, 1.0 / supermarket.getProducts().size());
+        assertEquals(mostBought.keySet(), top3.keySet());
+        for (String zip : mostBought.keySet()) {
+            assertEquals(Math.min(3, amounts.get(zip).size()), top3.get(zip).size());
+            assertEquals(amounts.get(zip).get(mostBought.get(zip)), amounts.get(zip).get(top3.get(zip).get(0)));
+            assertThat(amounts.get(zip).get(top3.get(zip).get(0)), is(greaterThanOrEqualTo(amounts.get(zip).get(top3.get(zip).get(1)))));
+        }
+
+        // sketches of parts of the customers merge, also after passing them as records
+        ProductSketches first = new ProductSketches(4), second = new ProductSketches(4);
+        List<Customer> customers = supermarket.getCustomers();
+        for (int c = 0; c < customers.size(); c++) {
+            (c < customers.size() / 2 ? first : second).add(customers.get(c));
+        }
+        first.merge(ProductSketches.fromRecords(second.toRecords(), 4));
+        for (String zip : mostBought.keySet()) {
+            long total = amounts.get(zip).values().stream().mapToLong(Integer::longValue).sum();
+            assertEquals(total, first.getSketch(zip).getTotal());
+            assertThat(first.getSketch(zip).top(1).get(0).getError(), is(lessThanOrEqualTo(total / 4)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> ProductSketches.fromRecords("1013AD\tSCH002\t3", 4));
+    }
+
     @Test
     void t111_onePriorityCashierSimulation() {
         t060_oneCashierSimulation(this.supermarket1, this.priorityCashier, 260, 1);
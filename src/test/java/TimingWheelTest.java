@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import utils.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.Alphanumeric.class)
+class TimingWheelTest {
+
+    @Test
+    void t171_timersExpireInOrderOfTime() {
+        Random random = new Random(171);
+        final int start = 8 * 3600;
+        TimingWheel<Integer> wheel = new TimingWheel<>(start);
+        List<TimingWheel.Timer<Integer>> timers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // mostly within minutes, some beyond the reach of the lower levels
+            int delay = (i % 10 == 0 ? random.nextInt(20_000_000) : random.nextInt(600));
+            timers.add(wheel.schedule(start + delay, i));
+        }
+        List<TimingWheel.Timer<Integer>> expected = new ArrayList<>();
+        for (int i = 0; i < timers.size(); i++) {
+            if (i % 7 == 0) {
+                assertTrue(wheel.cancel(timers.get(i)));
+                assertFalse(wheel.cancel(timers.get(i)));
+            } else {
+                expected.add(timers.get(i));
+            }
+        }
+        expected.sort(Comparator.comparingInt(TimingWheel.Timer::getTime));
+        assertEquals(expected.size(), wheel.size());
+
+        List<TimingWheel.Timer<Integer>> expired = new ArrayList<>();
+        for (int time = start; time < start + 600; time += 1 + random.nextInt(90)) {
+            wheel.advanceTo(time, timer -> {
+                assertFalse(timer.isPending());
+                expired.add(timer);
+            });
+        }
+        wheel.advanceTo(start + 20_000_000, expired::add);
+        assertEquals(expected, expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void t172_timersScheduledInThePastExpireAtTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.advanceTo(200, timer -> fail("no timers have been scheduled"));
+        wheel.schedule(150, "late");
+        List<String> expired = new ArrayList<>();
+        wheel.advanceTo(200, timer -> expired.add(timer.getPayload()));
+        assertEquals(List.of("late"), expired);
+        assertEquals(200, wheel.getCurrentTime());
+    }
+}